@@ -0,0 +1,119 @@
+package io.github.gongding.benchmark;
+
+import io.github.gongding.pool.ConcurrentConnectionPool;
+import io.github.gongding.pool.ConnectionPool;
+import io.github.gongding.pool.IConnectionPool;
+import io.github.gongding.pool.config.DataSourceConfig;
+import io.github.gongding.pool.config.PoolSettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 连接池借用/归还的竞争基准测试
+ * 分别在1、8、64、512个并发借用者下测量一次“借用-持有-归还”的吞吐量（Throughput）和耗时分布（SampleTime，含p99）。
+ * 持有时间固定为holdMicros，因此SampleTime中超出持有时间的部分就是借用和归还的开销与排队等待。
+ * 物理连接由模拟驱动jdbc:sim:提供，不需要MySQL。
+ * 只测某种组合时可以在命令行缩小参数，例如：java -jar benchmarks.jar PoolBenchmark -p poolType=concurrent -p maxSize=8
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class PoolBenchmark {
+    //连接池实现：legacy为ConnectionPool，concurrent为ConcurrentConnectionPool
+    @Param({"legacy", "concurrent"})
+    public String poolType;
+
+    @Param({"8", "32"})
+    public int maxSize;
+
+    //借用者持有连接的时间（微秒），模拟查询耗时
+    @Param({"0", "100", "1000"})
+    public long holdMicros;
+
+    private ScheduledExecutorService scheduler;
+    private IConnectionPool pool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        //通过系统属性覆盖db.properties，只保留连接池本身的开销
+        System.setProperty("jdbc.url", "jdbc:sim:bench?connectLatency=1");
+        System.setProperty("jdbc.poolType", poolType);
+        System.setProperty("jdbc.initSize", String.valueOf(maxSize));
+        System.setProperty("jdbc.maxSize", String.valueOf(maxSize));
+        System.setProperty("jdbc.minIdle", String.valueOf(maxSize));
+        System.setProperty("jdbc.maxIdle", String.valueOf(maxSize));
+        System.setProperty("jdbc.health", "false");
+        System.setProperty("jdbc.statementCacheSize", "0");
+        System.setProperty("jdbc.lanes", "");
+        System.setProperty("jdbc.adaptiveSizing", "false");
+        System.setProperty("jdbc.connectionTimeout", "0");
+        System.setProperty("jdbc.reloadInterval", "0");
+        PoolSettings settings = PoolSettings.from(new DataSourceConfig());
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        pool = "concurrent".equals(poolType)
+                ? new ConcurrentConnectionPool(settings, scheduler)
+                : new ConnectionPool(settings, scheduler);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.close(1000);
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 借用一个连接，持有holdMicros后归还
+     */
+    private void borrowAndRelease() {
+        Connection connection = pool.getConn();
+        if (holdMicros > 0) {
+            LockSupport.parkNanos(holdMicros * 1000);
+        }
+        pool.releaseConn(connection);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void borrowers001() {
+        borrowAndRelease();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void borrowers008() {
+        borrowAndRelease();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void borrowers064() {
+        borrowAndRelease();
+    }
+
+    @Benchmark
+    @Threads(512)
+    public void borrowers512() {
+        borrowAndRelease();
+    }
+}
@@ -0,0 +1,157 @@
+package io.github.gongding.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.gongding.pool.CircuitBreaker;
+import io.github.gongding.pool.DataSourceManager;
+import io.github.gongding.pool.IConnectionPool;
+import io.github.gongding.pool.PoolMetrics;
+import io.github.gongding.pool.WaitTimeHistogram;
+import io.github.gongding.util.JdbcExecutor;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 连接池监控指标接口
+ * 默认返回JSON；请求参数format=prometheus或Accept为text/plain时返回Prometheus文本格式，便于采集和告警
+ */
+@WebServlet("/api/admin/pool/metrics")
+public class AdminPoolMetricsServlet extends HttpServlet {
+    private static final Logger logger = LoggerFactory.getLogger(AdminPoolMetricsServlet.class);
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        logger.debug("收到来自 IP 地址 {} 的连接池监控指标请求。", request.getRemoteAddr());
+
+        HttpSession session = request.getSession(false);
+        if (session == null || session.getAttribute("admin") == null) {
+            logger.warn("未登录或会话过期，拒绝访问连接池监控指标。");
+            Map<String, Object> responseMap = new HashMap<>();
+            response.setContentType("application/json;charset=utf-8");
+            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            responseMap.put("success", false);
+            responseMap.put("message", "未登录或会话已过期");
+            mapper.writeValue(response.getWriter(), responseMap);
+            return;
+        }
+
+        response.setHeader("Cache-Control", "no-store");
+        String accept = request.getHeader("Accept");
+        if ("prometheus".equals(request.getParameter("format")) || (accept != null && accept.startsWith("text/plain"))) {
+            response.setContentType("text/plain; version=0.0.4; charset=utf-8");
+            response.getWriter().write(toPrometheus(DataSourceManager.getPools()));
+            return;
+        }
+
+        Map<String, Object> pools = new LinkedHashMap<>();
+        DataSourceManager.getPools().forEach((name, pool) -> {
+            Map<String, Object> snapshot = pool.getMetrics().snapshot();
+            CircuitBreaker breaker = DataSourceManager.getCircuitBreaker(name);
+            snapshot.put("circuitState", breaker.getState().name());
+            snapshot.put("circuitTrips", breaker.getTripCount());
+            pools.put(name, snapshot);
+        });
+        Map<String, Object> responseMap = new HashMap<>();
+        responseMap.put("success", true);
+        responseMap.put("pools", pools);
+        WaitTimeHistogram queryTime = JdbcExecutor.getQueryTime();
+        long[] queryCounts = queryTime.getCumulativeCounts();
+        Map<String, Object> queries = new LinkedHashMap<>();
+        queries.put("count", queryCounts[queryCounts.length - 1]);
+        queries.put("totalMillis", queryTime.getSum());
+        queries.put("p99Millis", queryTime.estimate(0.99));
+        responseMap.put("queries", queries);
+        response.setContentType("application/json;charset=utf-8");
+        mapper.writeValue(response.getWriter(), responseMap);
+    }
+
+    /**
+     * 按Prometheus文本格式输出所有连接池的指标
+     * @param pools 名称到连接池的映射
+     * @return 文本格式的指标
+     */
+    private String toPrometheus(Map<String, IConnectionPool> pools) {
+        StringBuilder sb = new StringBuilder();
+        header(sb, "anotherview_pool_max_connections", "gauge", "当前最大连接数");
+        pools.forEach((name, pool) -> sample(sb, "anotherview_pool_max_connections", name, "", pool.getMetrics().getMaxSize()));
+        header(sb, "anotherview_pool_connections", "gauge", "按状态统计的连接数");
+        pools.forEach((name, pool) -> {
+            PoolMetrics metrics = pool.getMetrics();
+            sample(sb, "anotherview_pool_connections", name, ",state=\"active\"", metrics.getActiveConnections());
+            sample(sb, "anotherview_pool_connections", name, ",state=\"idle\"", metrics.getIdleConnections());
+            sample(sb, "anotherview_pool_connections", name, ",state=\"total\"", metrics.getTotalConnections());
+        });
+        header(sb, "anotherview_pool_pending_threads", "gauge", "正在等待连接的线程数");
+        pools.forEach((name, pool) -> sample(sb, "anotherview_pool_pending_threads", name, "", pool.getMetrics().getPendingThreads()));
+        header(sb, "anotherview_pool_timeouts_total", "counter", "获取连接超时次数");
+        pools.forEach((name, pool) -> sample(sb, "anotherview_pool_timeouts_total", name, "", pool.getMetrics().getTimeoutCount()));
+        header(sb, "anotherview_pool_creation_failures_total", "counter", "创建物理连接失败次数");
+        pools.forEach((name, pool) -> sample(sb, "anotherview_pool_creation_failures_total", name, "", pool.getMetrics().getCreationFailureCount()));
+        header(sb, "anotherview_pool_leak_warnings_total", "counter", "疑似连接泄漏告警次数");
+        pools.forEach((name, pool) -> sample(sb, "anotherview_pool_leak_warnings_total", name, "", pool.getMetrics().getLeakWarningCount()));
+        header(sb, "anotherview_pool_hold_seconds_total", "counter", "连接累计持有时间");
+        pools.forEach((name, pool) -> sample(sb, "anotherview_pool_hold_seconds_total", name, "", pool.getMetrics().getTotalHoldMillis() / 1000.0));
+        header(sb, "anotherview_pool_statement_cache_total", "counter", "语句缓存命中与未命中次数");
+        pools.forEach((name, pool) -> {
+            PoolMetrics metrics = pool.getMetrics();
+            sample(sb, "anotherview_pool_statement_cache_total", name, ",result=\"hit\"", metrics.getStatementCacheHits());
+            sample(sb, "anotherview_pool_statement_cache_total", name, ",result=\"miss\"", metrics.getStatementCacheMisses());
+        });
+        header(sb, "anotherview_pool_lane_active", "gauge", "各分道当前占用的名额数");
+        pools.forEach((name, pool) -> pool.getMetrics().getLaneUsage().forEach((lane, active) ->
+                sample(sb, "anotherview_pool_lane_active", name, ",lane=\"" + escape(lane) + "\"", active)));
+        header(sb, "anotherview_pool_circuit_open", "gauge", "熔断器是否处于打开或半开状态");
+        pools.forEach((name, pool) -> sample(sb, "anotherview_pool_circuit_open", name, "",
+                DataSourceManager.getCircuitBreaker(name).getState() == CircuitBreaker.State.CLOSED ? 0 : 1));
+        header(sb, "anotherview_pool_circuit_trips_total", "counter", "熔断次数");
+        pools.forEach((name, pool) -> sample(sb, "anotherview_pool_circuit_trips_total", name, "", DataSourceManager.getCircuitBreaker(name).getTripCount()));
+        header(sb, "anotherview_pool_wait_seconds", "histogram", "获取连接的等待时间");
+        pools.forEach((name, pool) -> {
+            PoolMetrics metrics = pool.getMetrics();
+            long[] bounds = metrics.getWaitTime().getBounds();
+            long[] counts = metrics.getWaitTime().getCumulativeCounts();
+            for (int i = 0; i < bounds.length; i++) {
+                sample(sb, "anotherview_pool_wait_seconds_bucket", name, ",le=\"" + bounds[i] / 1000.0 + "\"", counts[i]);
+            }
+            sample(sb, "anotherview_pool_wait_seconds_bucket", name, ",le=\"+Inf\"", counts[counts.length - 1]);
+            sample(sb, "anotherview_pool_wait_seconds_sum", name, "", metrics.getTotalWaitMillis() / 1000.0);
+            sample(sb, "anotherview_pool_wait_seconds_count", name, "", counts[counts.length - 1]);
+        });
+        //JdbcExecutor执行的语句耗时，不区分连接池
+        WaitTimeHistogram queryTime = JdbcExecutor.getQueryTime();
+        long[] queryBounds = queryTime.getBounds();
+        long[] queryCounts = queryTime.getCumulativeCounts();
+        header(sb, "anotherview_jdbc_query_seconds", "histogram", "SQL语句的执行时间");
+        for (int i = 0; i < queryBounds.length; i++) {
+            sb.append("anotherview_jdbc_query_seconds_bucket{le=\"").append(queryBounds[i] / 1000.0).append("\"} ").append(queryCounts[i]).append('\n');
+        }
+        sb.append("anotherview_jdbc_query_seconds_bucket{le=\"+Inf\"} ").append(queryCounts[queryCounts.length - 1]).append('\n');
+        sb.append("anotherview_jdbc_query_seconds_sum ").append(queryTime.getSum() / 1000.0).append('\n');
+        sb.append("anotherview_jdbc_query_seconds_count ").append(queryCounts[queryCounts.length - 1]).append('\n');
+        return sb.toString();
+    }
+
+    private void header(StringBuilder sb, String metric, String type, String help) {
+        sb.append("# HELP ").append(metric).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(metric).append(' ').append(type).append('\n');
+    }
+
+    private void sample(StringBuilder sb, String metric, String pool, String labels, Number value) {
+        sb.append(metric).append("{pool=\"").append(escape(pool)).append('"').append(labels).append("} ").append(value).append('\n');
+    }
+
+    private String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -179,7 +179,7 @@ public class ClassDao {
         ResultSet rs = null;
 
         try {
-            conn = DBUtils.getConnection();
+            conn = DBUtils.getReadConnection();
             String sql = "SELECT class_id, name FROM class";
             logger.debug("执行 SQL: {}", sql);
             pstmt = conn.prepareStatement(sql);
@@ -115,7 +115,7 @@ public class LessonDao {
         ResultSet rs = null;
 
         try {
-            conn = DBUtils.getConnection();
+            conn = DBUtils.getReadConnection();
             String sql = "SELECT * FROM lesson";
             logger.debug("执行 SQL: {}", sql);
             pstmt = conn.prepareStatement(sql);
@@ -661,7 +661,7 @@ public class PracticeDao {
         ResultSet rs = null;
 
         try {
-            conn = DBUtils.getConnection();
+            conn = DBUtils.getReadConnection();
             String sql = "SELECT p.* FROM practice p " +
                     "JOIN practice_class pc ON p.practice_id = pc.practice_id " +
                     "WHERE p.lesson_id = ? AND pc.class_id = ?";
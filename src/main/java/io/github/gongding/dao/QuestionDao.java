@@ -32,7 +32,7 @@ public class QuestionDao {
         ResultSet rs = null;
 
         try {
-            conn = DBUtils.getConnection();
+            conn = DBUtils.getReadConnection();
             String sql = "SELECT * FROM question WHERE lesson_id = ?";
             logger.debug("执行 SQL: {} with lessonId = {}", sql, lessonId);
             pstmt = conn.prepareStatement(sql);
@@ -77,7 +77,7 @@ public class QuestionDao {
         ResultSet rs = null;
 
         try {
-            conn = DBUtils.getConnection();
+            conn = DBUtils.getReadConnection();
             String sql = "SELECT q.* FROM question q " +
                     "JOIN practice_question pq ON q.question_id = pq.question_id " +
                     "WHERE pq.practice_id = ? ORDER BY pq.seq_no";
@@ -228,7 +228,7 @@ public class QuestionDao {
         ResultSet rs = null;
 
         try {
-            conn = DBUtils.getConnection();
+            conn = DBUtils.getReadConnection();
             String sql = "SELECT * FROM question";
             logger.debug("执行 SQL: {}", sql);
             pstmt = conn.prepareStatement(sql);
@@ -2,7 +2,7 @@ package io.github.gongding.dao;
 
 import io.github.gongding.entity.LessonEntity;
 import io.github.gongding.entity.StudentEntity;
-import io.github.gongding.util.DBUtils;
+import io.github.gongding.util.JdbcExecutor;
 
 import java.sql.*;
 import java.util.ArrayList;
@@ -24,21 +24,13 @@ public class StudentDao {
      */
     public StudentEntity getStudentByStudentNumber(String studentNumber) {
         logger.debug("尝试根据学号 {} 查询学生信息。", studentNumber);
-        Connection conn = null;
-        PreparedStatement pstmt = null;
-        ResultSet rs = null;
         StudentEntity student = null;
 
         try {
-            conn = DBUtils.getConnection();
             String sql = "SELECT * FROM student WHERE student_number = ?";
             logger.debug("执行 SQL: {} with studentNumber = {}", sql, studentNumber);
-            pstmt = conn.prepareStatement(sql);
-            pstmt.setString(1, studentNumber);
-
-            rs = pstmt.executeQuery();
-            if (rs.next()) {
-                student = new StudentEntity();
+            student = JdbcExecutor.queryOne(sql, rs -> {
+                StudentEntity found = new StudentEntity();
 
                 //创建一个上海时区的Calendar实例，用于处理时间戳的时区转换
                 Calendar shanghaiCalendar = Calendar.getInstance(TimeZone.getTimeZone("Asia/Shanghai"));
@@ -46,27 +38,26 @@ public class StudentDao {
                 Timestamp lastLoginTs = rs.getTimestamp("last_login", shanghaiCalendar);
                 Timestamp createdAtTs = rs.getTimestamp("created_at", shanghaiCalendar);
 
-                student.setId(rs.getInt("student_id"));
-                student.setStudentNumber(rs.getString("student_number"));
-                student.setName(rs.getString("name"));
-                student.setEmail(rs.getString("email"));
-                student.setSchool(rs.getString("school"));
-                student.setClassof(rs.getString("classof"));
-                student.setPasswordSalt(rs.getString("password_salt"));
-                student.setPasswordHash(rs.getString("password_hash"));
+                found.setId(rs.getInt("student_id"));
+                found.setStudentNumber(rs.getString("student_number"));
+                found.setName(rs.getString("name"));
+                found.setEmail(rs.getString("email"));
+                found.setSchool(rs.getString("school"));
+                found.setClassof(rs.getString("classof"));
+                found.setPasswordSalt(rs.getString("password_salt"));
+                found.setPasswordHash(rs.getString("password_hash"));
                 //将Timestamp转换为LocalDateTime，如果时间戳为null则设置为null
-                student.setLastLogin(lastLoginTs != null ? lastLoginTs.toLocalDateTime() : null);
-                student.setCreatedAt(createdAtTs != null ? createdAtTs.toLocalDateTime() : null);
-
+                found.setLastLogin(lastLoginTs != null ? lastLoginTs.toLocalDateTime() : null);
+                found.setCreatedAt(createdAtTs != null ? createdAtTs.toLocalDateTime() : null);
+                return found;
+            }, studentNumber);
+            if (student != null) {
                 logger.debug("成功找到学号 {} 的学生信息，ID: {}, 姓名: {}", studentNumber, student.getId(), student.getName());
             } else {
                 logger.debug("未找到学号 {} 的学生信息。", studentNumber);
             }
         } catch (SQLException e) {
             logger.error("根据学号 {} 查询学生信息时发生数据库异常。", studentNumber, e);
-        } finally {
-            DBUtils.close(conn, pstmt, rs);
-            logger.debug("关闭数据库资源。");
         }
         logger.debug("完成根据学号 {} 查询学生信息操作。", studentNumber);
         return student;
@@ -79,42 +70,18 @@ public class StudentDao {
      */
     public boolean addStudent(StudentEntity student) {
         logger.info("尝试添加学生信息，学号: {}", student.getStudentNumber());
-        Connection conn = null;
-        PreparedStatement pstmtStudent = null;
-        PreparedStatement pstmtClassStudent = null;
-        ResultSet rs = null;
         boolean success = false;
 
         try {
-            conn = DBUtils.getConnection();
-
             String sqlStudent = "INSERT INTO student (student_number, name, email, school, classof, password_salt, password_hash) VALUES(?,?,?,?,?,?,?)";
             logger.debug("执行 SQL (添加学生): {} with studentNumber = {}", sqlStudent, student.getStudentNumber());
-            pstmtStudent = conn.prepareStatement(sqlStudent, Statement.RETURN_GENERATED_KEYS);
-            pstmtStudent.setString(1, student.getStudentNumber());
-            pstmtStudent.setString(2, student.getName());
-            pstmtStudent.setString(3, student.getEmail());
-            pstmtStudent.setString(4, student.getSchool());
-            pstmtStudent.setString(5, student.getClassof());
-            pstmtStudent.setString(6, student.getPasswordSalt());
-            pstmtStudent.setString(7, student.getPasswordHash());
-
-            int affectedRows = pstmtStudent.executeUpdate();
-            if (affectedRows == 0) {
-                logger.warn("添加学生信息失败，学号: {}，数据库操作未成功。", student.getStudentNumber());
-                return false;
-            }
-            logger.debug("添加学生信息影响行数: {}", affectedRows);
-
-            int studentId = -1;
-            rs = pstmtStudent.getGeneratedKeys();
-            if (rs.next()) {
-                studentId = rs.getInt(1);
-                logger.debug("获取到新学生的 student_id: {}", studentId);
-            } else {
-                logger.error("未能获取新学生的 student_id，学号: {}。", student.getStudentNumber());
+            int studentId = JdbcExecutor.insert(sqlStudent, student.getStudentNumber(), student.getName(), student.getEmail(),
+                    student.getSchool(), student.getClassof(), student.getPasswordSalt(), student.getPasswordHash());
+            if (studentId == -1) {
+                logger.warn("添加学生信息失败，学号: {}，未能获取新学生的 student_id。", student.getStudentNumber());
                 return false;
             }
+            logger.debug("获取到新学生的 student_id: {}", studentId);
 
             int classId = classDao.getClassIdByClassName(student.getClassof());
             if (classId == -1) {
@@ -125,11 +92,7 @@ public class StudentDao {
 
             String sqlClassStudent = "INSERT INTO class_student (student_id, class_id) VALUES (?, ?)";
             logger.debug("执行 SQL (添加班级学生关联): {} with student_id = {}, class_id = {}", sqlClassStudent, studentId, classId);
-            pstmtClassStudent = conn.prepareStatement(sqlClassStudent);
-            pstmtClassStudent.setInt(1, studentId);
-            pstmtClassStudent.setInt(2, classId);
-
-            affectedRows = pstmtClassStudent.executeUpdate();
+            int affectedRows = JdbcExecutor.update(sqlClassStudent, studentId, classId);
             if (affectedRows == 0) {
                 logger.warn("添加学生与班级关联失败，学生ID: {}, 班级ID: {}.", studentId, classId);
                 return false;
@@ -141,16 +104,6 @@ public class StudentDao {
 
         } catch (SQLException e) {
             logger.error("添加学生信息或关联班级时发生数据库异常，学号: {}.", student.getStudentNumber(), e);
-        } finally {
-            try {
-                if (pstmtStudent != null) pstmtStudent.close();
-                if (rs != null) rs.close();
-                if (pstmtClassStudent != null) pstmtClassStudent.close();
-            } catch (SQLException closeEx) {
-                logger.error("关闭 PreparedStatement 时发生异常。", closeEx);
-            }
-            DBUtils.close(conn, null, null);
-            logger.debug("关闭数据库资源。");
         }
         logger.debug("完成添加学生信息操作，学号: {}，结果: {}", student.getStudentNumber(), success ? "成功" : "失败");
         return success;
@@ -163,17 +116,12 @@ public class StudentDao {
      */
     public boolean updateStudentLoginTime(String studentNumber) {
         logger.debug("尝试更新学号 {} 的最后登录时间。", studentNumber);
-        Connection conn = null;
-        PreparedStatement pstmt = null;
         boolean success = false;
 
         try {
-            conn = DBUtils.getConnection();
             String sql = "UPDATE student SET last_login = NOW() WHERE student_number = ?";
             logger.debug("执行 SQL (更新最后登录时间): {} with studentNumber = {}", sql, studentNumber);
-            pstmt = conn.prepareStatement(sql);
-            pstmt.setString(1, studentNumber);
-            int affectedRows = pstmt.executeUpdate();
+            int affectedRows = JdbcExecutor.update(sql, studentNumber);
             success = affectedRows > 0;
             logger.debug("更新最后登录时间影响行数: {}", affectedRows);
 
@@ -185,9 +133,6 @@ public class StudentDao {
 
         } catch (SQLException e) {
             logger.error("更新学号 {} 的最后登录时间时发生数据库异常。", studentNumber, e);
-        } finally {
-            DBUtils.close(conn, pstmt);
-            logger.debug("关闭数据库资源。");
         }
         logger.debug("完成更新学号 {} 最后登录时间操作，结果: {}", studentNumber, success ? "成功" : "失败");
         return success;
@@ -201,36 +146,25 @@ public class StudentDao {
      */
     public List<LessonEntity> getStudentLessons(String studentNumber) {
         logger.debug("尝试根据学号 {} 查询参与的所有课程列表。", studentNumber);
-        Connection conn = null;
-        PreparedStatement pstmt = null;
-        ResultSet rs = null;
         List<LessonEntity> lessons = new ArrayList<>();
 
         try {
-            conn = DBUtils.getConnection();
             String sql = "SELECT l.lesson_id AS id, l.title " +
                     "FROM lesson l " +
                     "JOIN lesson_student ls ON l.lesson_id = ls.lesson_id " +
                     "JOIN student s ON ls.student_id = s.student_id " +
                     "WHERE s.student_number = ?";
             logger.debug("执行 SQL: {} with studentNumber = {}", sql, studentNumber);
-            pstmt = conn.prepareStatement(sql);
-            pstmt.setString(1, studentNumber);
-            rs = pstmt.executeQuery();
-
-            while (rs.next()) {
+            lessons = JdbcExecutor.queryRead(sql, rs -> {
                 LessonEntity lesson = new LessonEntity();
                 lesson.setId(rs.getInt("id"));
                 lesson.setTitle(rs.getString("title"));
-                lessons.add(lesson);
                 logger.trace("找到学生 {} 参与的课程: ID = {}, Title = {}", studentNumber, lesson.getId(), lesson.getTitle());
-            }
+                return lesson;
+            }, studentNumber);
             logger.debug("成功找到学生 {} 参与的 {} 个课程。", studentNumber, lessons.size());
         } catch (SQLException e) {
             logger.error("根据学号 {} 查询学生课程列表时发生数据库异常。", studentNumber, e);
-        } finally {
-            DBUtils.close(conn, pstmt, rs);
-            logger.debug("关闭数据库资源。");
         }
         logger.debug("完成根据学号 {} 查询学生课程列表操作。", studentNumber);
         return lessons;
@@ -249,45 +183,23 @@ public class StudentDao {
             return students;
         }
 
-        Connection conn = null;
-        PreparedStatement pstmt = null;
-        ResultSet rs = null;
-
         try {
-            conn = DBUtils.getConnection();
             String sql = "SELECT s.student_id, s.student_number, s.name, s.classof " +
                     "FROM student s JOIN class_student cs ON s.student_id = cs.student_id " +
-                    "WHERE cs.class_id IN (";
-            for (int i = 0; i < classIds.size(); i++) {
-                sql += "?";
-                if (i < classIds.size() - 1) {
-                    sql += ",";
-                }
-            }
-            sql += ")";
+                    "WHERE cs.class_id IN (" + JdbcExecutor.placeholders(classIds.size()) + ")";
             logger.debug("执行 SQL: {} with classIds = {}", sql, classIds);
-
-            pstmt = conn.prepareStatement(sql);
-            for (int i = 0; i < classIds.size(); i++) {
-                pstmt.setInt(i + 1, classIds.get(i));
-            }
-
-            rs = pstmt.executeQuery();
-            while (rs.next()) {
+            students = JdbcExecutor.query(sql, rs -> {
                 StudentEntity student = new StudentEntity();
                 student.setId(rs.getInt("student_id"));
                 student.setStudentNumber(rs.getString("student_number"));
                 student.setName(rs.getString("name"));
                 student.setClassof(rs.getString("classof"));
-                students.add(student);
                 logger.trace("找到班级关联学生: ID = {}, 学号 = {}, 姓名 = {}", student.getId(), student.getStudentNumber(), student.getName());
-            }
+                return student;
+            }, classIds.toArray());
             logger.debug("成功找到 {} 个与班级 ID 列表 {} 关联的学生。", students.size(), classIds);
         } catch (SQLException e) {
             logger.error("根据班级ID列表 {} 获取学生列表时发生数据库异常。", classIds, e);
-        } finally {
-            DBUtils.close(conn, pstmt, rs);
-            logger.debug("关闭数据库资源。");
         }
         logger.debug("完成根据班级ID列表 {} 查询学生列表操作。", classIds);
         return students;
@@ -301,23 +213,14 @@ public class StudentDao {
     public List<StudentEntity> getStudentsByLessonId(int lessonId) {
         logger.debug("尝试根据课程ID {} 获取学生列表。", lessonId);
         List<StudentEntity> students = new ArrayList<>();
-        Connection conn = null;
-        PreparedStatement pstmt = null;
-        ResultSet rs = null;
 
         try {
-            conn = DBUtils.getConnection();
             String sql = "SELECT s.student_id, s.student_number, s.name, s.email, s.school, s.classof " +
                     "FROM student s " +
                     "JOIN lesson_student ls ON s.student_id = ls.student_id " +
                     "WHERE ls.lesson_id = ?";
             logger.debug("执行 SQL: {} with lessonId = {}", sql, lessonId);
-
-            pstmt = conn.prepareStatement(sql);
-            pstmt.setInt(1, lessonId);
-            rs = pstmt.executeQuery();
-
-            while (rs.next()) {
+            students = JdbcExecutor.query(sql, rs -> {
                 StudentEntity student = new StudentEntity();
                 student.setId(rs.getInt("student_id"));
                 student.setStudentNumber(rs.getString("student_number"));
@@ -325,15 +228,12 @@ public class StudentDao {
                 student.setEmail(rs.getString("email"));
                 student.setSchool(rs.getString("school"));
                 student.setClassof(rs.getString("classof"));
-                students.add(student);
                 logger.trace("找到课程关联学生: ID = {}, 学号 = {}, 姓名 = {}", student.getId(), student.getStudentNumber(), student.getName());
-            }
+                return student;
+            }, lessonId);
             logger.debug("成功找到 {} 个与课程 ID {} 关联的学生。", students.size(), lessonId);
         } catch (SQLException e) {
             logger.error("根据课程ID {} 获取学生列表时发生数据库异常。", lessonId, e);
-        } finally {
-            DBUtils.close(conn, pstmt, rs);
-            logger.debug("关闭数据库资源。");
         }
         return students;
     }
@@ -345,26 +245,14 @@ public class StudentDao {
     public List<StudentEntity> getAllStudents() {
         logger.debug("尝试获取所有学生列表。");
         List<StudentEntity> students = new ArrayList<>();
-        Connection conn = null;
-        PreparedStatement pstmt = null;
-        ResultSet rs = null;
 
         try {
-            conn = DBUtils.getConnection();
             String sql = "SELECT student_id, student_number, name, email, school, classof, password_salt, password_hash, last_login, created_at FROM student";
             logger.debug("执行 SQL: {}", sql);
-            pstmt = conn.prepareStatement(sql);
-            rs = pstmt.executeQuery();
-
-            while (rs.next()) {
-                students.add(buildStudentEntity(rs));
-            }
+            students = JdbcExecutor.queryRead(sql, this::buildStudentEntity);
             logger.debug("成功找到 {} 个学生。", students.size());
         } catch (SQLException e) {
             logger.error("获取所有学生列表时发生数据库异常。", e);
-        } finally {
-            DBUtils.close(conn, pstmt, rs);
-            logger.debug("关闭数据库资源。");
         }
         return students;
     }
@@ -377,27 +265,14 @@ public class StudentDao {
     public List<Integer> getAssociatedLessonIds(int studentId) {
         logger.debug("尝试获取学生 ID {} 已关联的课程ID列表。", studentId);
         List<Integer> lessonIds = new ArrayList<>();
-        Connection conn = null;
-        PreparedStatement pstmt = null;
-        ResultSet rs = null;
 
         try {
-            conn = DBUtils.getConnection();
             String sql = "SELECT lesson_id FROM lesson_student WHERE student_id = ?";
             logger.debug("执行 SQL: {} with studentId = {}", sql, studentId);
-            pstmt = conn.prepareStatement(sql);
-            pstmt.setInt(1, studentId);
-            rs = pstmt.executeQuery();
-
-            while (rs.next()) {
-                lessonIds.add(rs.getInt("lesson_id"));
-            }
+            lessonIds = JdbcExecutor.query(sql, rs -> rs.getInt("lesson_id"), studentId);
             logger.debug("成功找到学生 ID {} 关联的 {} 门课程。", studentId, lessonIds.size());
         } catch (SQLException e) {
             logger.error("获取学生 ID {} 关联课程时发生数据库异常。", studentId, e);
-        } finally {
-            DBUtils.close(conn, pstmt, rs);
-            logger.debug("关闭数据库资源。");
         }
         return lessonIds;
     }
@@ -410,27 +285,14 @@ public class StudentDao {
     public List<Integer> getAssociatedClassIds(int studentId) {
         logger.debug("尝试获取学生 ID {} 已关联的班级ID列表。", studentId);
         List<Integer> classIds = new ArrayList<>();
-        Connection conn = null;
-        PreparedStatement pstmt = null;
-        ResultSet rs = null;
 
         try {
-            conn = DBUtils.getConnection();
             String sql = "SELECT class_id FROM class_student WHERE student_id = ?";
             logger.debug("执行 SQL: {} with studentId = {}", sql, studentId);
-            pstmt = conn.prepareStatement(sql);
-            pstmt.setInt(1, studentId);
-            rs = pstmt.executeQuery();
-
-            while (rs.next()) {
-                classIds.add(rs.getInt("class_id"));
-            }
+            classIds = JdbcExecutor.query(sql, rs -> rs.getInt("class_id"), studentId);
             logger.debug("成功获取学生 ID {} 关联的 {} 个班级ID。", studentId, classIds.size());
         } catch (SQLException e) {
             logger.error("获取学生 ID {} 关联的班级ID列表时发生数据库异常。", studentId, e);
-        } finally {
-            DBUtils.close(conn, pstmt, rs);
-            logger.debug("关闭数据库资源。");
         }
         return classIds;
     }
@@ -443,31 +305,21 @@ public class StudentDao {
      */
     public boolean updateStudentLessons(int studentId, List<Integer> lessonIds) {
         logger.info("尝试更新学生 ID {} 的课程关联。", studentId);
-        Connection conn = null;
-        PreparedStatement deletePstmt = null;
-        PreparedStatement insertPstmt = null;
         boolean success = false;
 
         try {
-            conn = DBUtils.getConnection();
-
             String deleteSql = "DELETE FROM lesson_student WHERE student_id = ?";
             logger.debug("执行 SQL (删除旧关联): {}", deleteSql);
-            deletePstmt = conn.prepareStatement(deleteSql);
-            deletePstmt.setInt(1, studentId);
-            deletePstmt.executeUpdate();
+            JdbcExecutor.update(deleteSql, studentId);
             logger.debug("删除学生 ID {} 的旧课程关联。", studentId);
 
             if (lessonIds != null && !lessonIds.isEmpty()) {
                 String insertSql = "INSERT INTO lesson_student (lesson_id, student_id) VALUES (?, ?)";
                 logger.debug("执行 SQL (插入新关联): {}", insertSql);
-                insertPstmt = conn.prepareStatement(insertSql);
-                for (Integer lessonId : lessonIds) {
-                    insertPstmt.setInt(1, lessonId);
-                    insertPstmt.setInt(2, studentId);
-                    insertPstmt.addBatch();
-                }
-                int[] affectedRows = insertPstmt.executeBatch();
+                int[] affectedRows = JdbcExecutor.batch(insertSql, lessonIds, (pstmt, lessonId) -> {
+                    pstmt.setInt(1, lessonId);
+                    pstmt.setInt(2, studentId);
+                });
                 logger.debug("插入新关联影响行数: {}", affectedRows.length);
             }
 
@@ -475,15 +327,6 @@ public class StudentDao {
             logger.info("成功更新学生 ID {} 的课程关联。", studentId);
         } catch (SQLException e) {
             logger.error("更新学生 ID {} 课程关联时发生数据库异常。", studentId, e);
-        } finally {
-            try {
-                if (deletePstmt != null) deletePstmt.close();
-                if (insertPstmt != null) insertPstmt.close();
-            } catch (SQLException closeEx) {
-                logger.error("关闭 PreparedStatement 时发生异常。", closeEx);
-            }
-            DBUtils.close(conn, null, null);
-            logger.debug("关闭数据库资源。");
         }
         return success;
     }
@@ -2,6 +2,7 @@ package io.github.gongding.dao;
 
 import io.github.gongding.entity.QuestionEntity;
 import io.github.gongding.util.DBUtils;
+import io.github.gongding.util.JdbcExecutor;
 
 import java.math.BigDecimal;
 import java.sql.*;
@@ -11,12 +12,18 @@ import java.util.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * 提交记录和答案的数据访问
+ * 学生在每个练习中的最近一次提交由submission_latest表指向，读取最近提交的方法都通过该表点查，
+ * 部署前必须先执行src/main/resources/sql/submission_latest.sql建表并回填
+ */
 public class SubmissionDao {
     private static final Logger logger = LoggerFactory.getLogger(SubmissionDao.class);
-    private final QuestionDao questionDao = new QuestionDao();
 
     /**
      * 创建学生提交记录并保存答案
+     * 已有提交时复用submission_latest指向的提交记录，否则插入新记录并更新submission_latest指针，
+     * 需要与答案写入保持一致时应在UnitOfWork.inTransaction中调用
      *
      * @param studentId  学生ID
      * @param practiceId 练习ID
@@ -28,196 +35,325 @@ public class SubmissionDao {
         logger.debug("提交答案数量: {}", (answers != null ? answers.size() : 0));
 
         Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
-        int submissionIdToUse = -1;
-
         try {
             conn = DBUtils.getConnection();
 
-            String selectLatestSubmissionSql = "SELECT submission_id FROM submission " +
-                    "WHERE student_id = ? AND practice_id = ? " +
-                    "ORDER BY submission_id DESC LIMIT 1";
-            logger.debug("执行 SQL (查询最新提交): {} with studentId = {}, practiceId = {}", selectLatestSubmissionSql, studentId, practiceId);
-            stmt = conn.prepareStatement(selectLatestSubmissionSql);
-            stmt.setInt(1, studentId);
-            stmt.setInt(2, practiceId);
-            rs = stmt.executeQuery();
-
-            if (rs.next()) {
-                submissionIdToUse = rs.getInt("submission_id");
-                logger.debug("找到学生 ID {} 对练习 ID {} 的现有最新提交记录，ID: {}", studentId, practiceId, submissionIdToUse);
-            } else {
-                logger.debug("未找到学生 ID {} 对练习 ID {} 的现有提交记录。", studentId, practiceId);
-            }
-            if (rs != null) { rs.close(); rs = null; }
-            if (stmt != null) { stmt.close(); stmt = null; }
-
-
+            int submissionIdToUse = findLatestSubmissionId(conn, studentId, practiceId);
             if (submissionIdToUse != -1) {
-                logger.debug("删除现有提交记录 {} 的关联答案。", submissionIdToUse);
-                String deleteAnswersSql = "DELETE FROM submission_answer WHERE submission_id = ?";
-                stmt = conn.prepareStatement(deleteAnswersSql);
-                stmt.setInt(1, submissionIdToUse);
-                int deletedRows = stmt.executeUpdate();
-                logger.debug("删除旧答案影响行数: {}", deletedRows);
-                if (stmt != null) { stmt.close(); stmt = null; }
-
-                logger.debug("更新现有提交记录 {} 的提交时间。", submissionIdToUse);
-                String updateSubmissionTimeSql = "UPDATE submission SET submitted_at = ? WHERE submission_id = ?";
-                stmt = conn.prepareStatement(updateSubmissionTimeSql);
-                stmt.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
-                stmt.setInt(2, submissionIdToUse);
-                int updatedRows = stmt.executeUpdate();
-                logger.debug("更新提交时间影响行数: {}", updatedRows);
-                if (stmt != null) { stmt.close(); stmt = null; }
-
+                reuseSubmission(conn, submissionIdToUse);
             } else {
-                logger.debug("创建新的提交记录，学生 ID: {}, 练习 ID: {}", studentId, practiceId);
-                String insertSubmissionSql = "INSERT INTO submission (student_id, practice_id, submitted_at) VALUES (?, ?, ?)";
-                stmt = conn.prepareStatement(insertSubmissionSql, Statement.RETURN_GENERATED_KEYS);
-                stmt.setInt(1, studentId);
-                stmt.setInt(2, practiceId);
-                stmt.setTimestamp(3, Timestamp.valueOf(LocalDateTime.now()));
-                int affectedRows = stmt.executeUpdate();
-                logger.debug("插入新提交记录影响行数: {}", affectedRows);
-
-                if (affectedRows > 0) {
-                    rs = stmt.getGeneratedKeys();
-                    if (rs.next()) {
-                        submissionIdToUse = rs.getInt(1);
-                        logger.info("成功创建新的提交记录，ID: {}", submissionIdToUse);
-                    } else {
-                        logger.error("创建提交记录失败，影响行数 > 0 但未能获取生成的 submission_id。");
-                        return -1;
-                    }
-                } else {
-                    logger.error("创建提交记录失败，submission 表未插入行。学生ID: {}, 练习ID: {}", studentId, practiceId);
+                submissionIdToUse = insertSubmission(conn, studentId, practiceId);
+                if (submissionIdToUse == -1) {
                     return -1;
                 }
-                if (rs != null) { rs.close(); rs = null; }
-                if (stmt != null) { stmt.close(); stmt = null; }
-            }
-
-            if (submissionIdToUse == -1) {
-                logger.error("无效的 submission_id ({})，无法保存答案。学生ID: {}, 练习ID: {}", submissionIdToUse, studentId, practiceId);
-                return -1;
+                updateLatestPointer(conn, studentId, practiceId, submissionIdToUse);
             }
 
             logger.debug("开始保存提交记录 {} 的答案，共 {} 个。", submissionIdToUse, (answers != null ? answers.size() : 0));
-            String insertAnswerSql = "INSERT INTO submission_answer (submission_id, question_id, student_answer, is_correct, grade, feedback, graded_at) VALUES (?, ?, ?, ?, ?, ?, ?)";
-            stmt = conn.prepareStatement(insertAnswerSql);
-
-            if (answers != null) {
-                for (Map<String, Object> answerMap : answers) {
-                    if (!answerMap.containsKey("questionId") || !answerMap.containsKey("studentAnswer")) {
-                        logger.warn("提交答案Map缺少必要字段 (questionId 或 studentAnswer): {}", answerMap);
-                        continue;
-                    }
+            //一次查询取出本次提交涉及题目的答案和分值，使用同一个连接，不再逐题另借连接
+            Map<Integer, QuestionEntity> answerKeys = loadAnswerKeys(conn, answers);
+            insertAnswers(conn, submissionIdToUse, gradeAnswers(answers, answerKeys));
 
-                    int questionId = (Integer) answerMap.get("questionId");
-                    String studentAnswerText = (String) answerMap.get("studentAnswer");
-                    logger.trace("处理题目 {} 的学生答案。", questionId);
+            logger.info("成功创建提交记录 {} 并保存答案。", submissionIdToUse);
+            return submissionIdToUse;
+        } catch (SQLException e) {
+            logger.error("创建提交记录或保存答案时发生数据库异常。学生ID: {}, 练习ID: {}", studentId, practiceId, e);
+            return -1;
+        } catch (Exception e) {
+            logger.error("创建提交记录或保存答案时发生其他异常。学生ID: {}, 练习ID: {}", studentId, practiceId, e);
+            return -1;
+        } finally {
+            DBUtils.close(conn, null, null);
+            logger.debug("关闭数据库资源。");
+        }
+    }
 
-                    QuestionEntity question = questionDao.getQuestionById(questionId);
+    /**
+     * 通过submission_latest查询学生在练习中的最近一次提交
+     * @param conn 提交使用的数据库连接，由调用方关闭
+     * @param studentId 学生ID
+     * @param practiceId 练习ID
+     * @return 最近一次提交的submission_id，没有提交过时返回-1
+     * @throws SQLException 查询失败
+     */
+    private int findLatestSubmissionId(Connection conn, int studentId, int practiceId) throws SQLException {
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        try {
+            String sql = "SELECT submission_id FROM submission_latest WHERE student_id = ? AND practice_id = ?";
+            logger.debug("执行 SQL (查询最新提交): {} with studentId = {}, practiceId = {}", sql, studentId, practiceId);
+            pstmt = conn.prepareStatement(sql);
+            pstmt.setInt(1, studentId);
+            pstmt.setInt(2, practiceId);
+            rs = pstmt.executeQuery();
+            if (rs.next()) {
+                int submissionId = rs.getInt("submission_id");
+                logger.debug("找到学生 ID {} 对练习 ID {} 的现有最新提交记录，ID: {}", studentId, practiceId, submissionId);
+                return submissionId;
+            }
+            logger.debug("未找到学生 ID {} 对练习 ID {} 的现有提交记录。", studentId, practiceId);
+            return -1;
+        } finally {
+            DBUtils.close(null, pstmt, rs);
+        }
+    }
 
-                    Boolean isCorrect = null;
-                    Double grade = null;
-                    String feedback = null;
-                    Timestamp gradedAt = null;
+    /**
+     * 复用已有的提交记录：删除旧答案并更新提交时间
+     * @param conn 提交使用的数据库连接，由调用方关闭
+     * @param submissionId 要复用的提交记录ID
+     * @throws SQLException 写入失败
+     */
+    private void reuseSubmission(Connection conn, int submissionId) throws SQLException {
+        PreparedStatement deletePstmt = null;
+        PreparedStatement updatePstmt = null;
+        try {
+            logger.debug("删除现有提交记录 {} 的关联答案。", submissionId);
+            deletePstmt = conn.prepareStatement("DELETE FROM submission_answer WHERE submission_id = ?");
+            deletePstmt.setInt(1, submissionId);
+            int deletedRows = deletePstmt.executeUpdate();
+            logger.debug("删除旧答案影响行数: {}", deletedRows);
+
+            logger.debug("更新现有提交记录 {} 的提交时间。", submissionId);
+            updatePstmt = conn.prepareStatement("UPDATE submission SET submitted_at = ? WHERE submission_id = ?");
+            updatePstmt.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
+            updatePstmt.setInt(2, submissionId);
+            int updatedRows = updatePstmt.executeUpdate();
+            logger.debug("更新提交时间影响行数: {}", updatedRows);
+        } finally {
+            DBUtils.close(null, deletePstmt, null);
+            DBUtils.close(null, updatePstmt, null);
+        }
+    }
 
-                    if (question != null) {
-                        String questionType = question.getType();
-                        String correctAnswerDB = question.getCorrectAnswer();
-                        logger.trace("题目 {} 详情 - 类型: {}, 正确答案: '{}'", questionId, questionType, correctAnswerDB);
+    /**
+     * 插入新的提交记录
+     * @param conn 提交使用的数据库连接，由调用方关闭
+     * @param studentId 学生ID
+     * @param practiceId 练习ID
+     * @return 新提交记录的submission_id，插入失败时返回-1
+     * @throws SQLException 写入失败
+     */
+    private int insertSubmission(Connection conn, int studentId, int practiceId) throws SQLException {
+        logger.debug("创建新的提交记录，学生 ID: {}, 练习 ID: {}", studentId, practiceId);
+        String sql = "INSERT INTO submission (student_id, practice_id, submitted_at) VALUES (?, ?, ?)";
+        int submissionId = JdbcExecutor.insert(conn, sql, studentId, practiceId, Timestamp.valueOf(LocalDateTime.now()));
+        if (submissionId == -1) {
+            logger.error("创建提交记录失败，未插入行或未能获取生成的 submission_id。学生ID: {}, 练习ID: {}", studentId, practiceId);
+        } else {
+            logger.info("成功创建新的提交记录，ID: {}", submissionId);
+        }
+        return submissionId;
+    }
 
-                        if (("single_choice".equals(questionType) || "multiple_choice".equals(questionType) || "fill_blank".equals(questionType))
-                                && correctAnswerDB != null && !correctAnswerDB.trim().isEmpty()) {
-                            logger.trace("题目 {} 是可自动评分题型。", questionId);
-                            if (studentAnswerText != null && !studentAnswerText.trim().isEmpty()) {
-                                String studentAnswerTrimmed = studentAnswerText.trim();
-                                String correctAnswerTrimmed = correctAnswerDB.trim();
-                                logger.trace("学生答案: '{}'", studentAnswerTrimmed);
+    /**
+     * 对提交的答案自动评分，客观题按正确答案判定对错和得分，其余题目留待教师批改
+     * @param answers 提交的答案列表
+     * @param answerKeys 以题目ID为键的题目答案和分值，见loadAnswerKeys
+     * @return 等待写入的答案，缺少必要字段的答案被跳过
+     */
+    private List<GradedAnswer> gradeAnswers(List<Map<String, Object>> answers, Map<Integer, QuestionEntity> answerKeys) {
+        List<GradedAnswer> gradedAnswers = new ArrayList<>();
+        if (answers != null) {
+            for (Map<String, Object> answerMap : answers) {
+                if (!answerMap.containsKey("questionId") || !answerMap.containsKey("studentAnswer")) {
+                    logger.warn("提交答案Map缺少必要字段 (questionId 或 studentAnswer): {}", answerMap);
+                    continue;
+                }
 
-                                if ("single_choice".equals(questionType)) {
-                                    isCorrect = correctAnswerTrimmed.equalsIgnoreCase(studentAnswerTrimmed);
-                                } else if ("multiple_choice".equals(questionType)) {
-                                    Set<String> correctOptions = new HashSet<>(Arrays.asList(correctAnswerTrimmed.toLowerCase().split("\\s*,\\s*")));
-                                    Set<String> studentOptions = new HashSet<>(Arrays.asList(studentAnswerTrimmed.toLowerCase().split("\\s*,\\s*")));
-                                    isCorrect = correctOptions.equals(studentOptions);
-                                    logger.trace("多选题比较 - 正确选项集合: {}, 学生选项集合: {}", correctOptions, studentOptions);
-                                } else if ("fill_blank".equals(questionType)) {
-                                    if (correctAnswerTrimmed.contains(",")) {
-                                        List<String> correctParts = Arrays.asList(correctAnswerTrimmed.split("\\s*,\\s*"));
-                                        List<String> studentParts = Arrays.asList(studentAnswerTrimmed.split("\\s*,\\s*"));
-                                        if (correctParts.size() == studentParts.size()) {
-                                            boolean allMatch = true;
-                                            for (int i = 0; i < correctParts.size(); i++) {
-                                                if (!correctParts.get(i).trim().equalsIgnoreCase(studentParts.get(i).trim())) {
-                                                    allMatch = false;
-                                                    break;
-                                                }
+                int questionId = (Integer) answerMap.get("questionId");
+                String studentAnswerText = (String) answerMap.get("studentAnswer");
+                logger.trace("处理题目 {} 的学生答案。", questionId);
+
+                QuestionEntity question = answerKeys.get(questionId);
+
+                Boolean isCorrect = null;
+                Double grade = null;
+                String feedback = null;
+                Timestamp gradedAt = null;
+
+                if (question != null) {
+                    String questionType = question.getType();
+                    String correctAnswerDB = question.getCorrectAnswer();
+                    logger.trace("题目 {} 详情 - 类型: {}, 正确答案: '{}'", questionId, questionType, correctAnswerDB);
+
+                    if (("single_choice".equals(questionType) || "multiple_choice".equals(questionType) || "fill_blank".equals(questionType))
+                            && correctAnswerDB != null && !correctAnswerDB.trim().isEmpty()) {
+                        logger.trace("题目 {} 是可自动评分题型。", questionId);
+                        if (studentAnswerText != null && !studentAnswerText.trim().isEmpty()) {
+                            String studentAnswerTrimmed = studentAnswerText.trim();
+                            String correctAnswerTrimmed = correctAnswerDB.trim();
+                            logger.trace("学生答案: '{}'", studentAnswerTrimmed);
+
+                            if ("single_choice".equals(questionType)) {
+                                isCorrect = correctAnswerTrimmed.equalsIgnoreCase(studentAnswerTrimmed);
+                            } else if ("multiple_choice".equals(questionType)) {
+                                Set<String> correctOptions = new HashSet<>(Arrays.asList(correctAnswerTrimmed.toLowerCase().split("\\s*,\\s*")));
+                                Set<String> studentOptions = new HashSet<>(Arrays.asList(studentAnswerTrimmed.toLowerCase().split("\\s*,\\s*")));
+                                isCorrect = correctOptions.equals(studentOptions);
+                                logger.trace("多选题比较 - 正确选项集合: {}, 学生选项集合: {}", correctOptions, studentOptions);
+                            } else if ("fill_blank".equals(questionType)) {
+                                if (correctAnswerTrimmed.contains(",")) {
+                                    List<String> correctParts = Arrays.asList(correctAnswerTrimmed.split("\\s*,\\s*"));
+                                    List<String> studentParts = Arrays.asList(studentAnswerTrimmed.split("\\s*,\\s*"));
+                                    if (correctParts.size() == studentParts.size()) {
+                                        boolean allMatch = true;
+                                        for (int i = 0; i < correctParts.size(); i++) {
+                                            if (!correctParts.get(i).trim().equalsIgnoreCase(studentParts.get(i).trim())) {
+                                                allMatch = false;
+                                                break;
                                             }
-                                            isCorrect = allMatch;
-                                        } else {
-                                            isCorrect = false;
-                                            logger.trace("填空题答案数量不匹配 - 正确部分数: {}, 学生部分数: {}", correctParts.size(), studentParts.size());
                                         }
+                                        isCorrect = allMatch;
                                     } else {
-                                        isCorrect = correctAnswerTrimmed.equalsIgnoreCase(studentAnswerTrimmed);
+                                        isCorrect = false;
+                                        logger.trace("填空题答案数量不匹配 - 正确部分数: {}, 学生部分数: {}", correctParts.size(), studentParts.size());
                                     }
-                                    logger.trace("填空题比较结果: {}", isCorrect);
+                                } else {
+                                    isCorrect = correctAnswerTrimmed.equalsIgnoreCase(studentAnswerTrimmed);
                                 }
-                            } else {
-                                isCorrect = false;
-                                logger.trace("学生答案为空，标记为不正确。");
-                            }
-                            if (Boolean.TRUE.equals(isCorrect)) {
-                                grade = question.getScore();
-                                logger.trace("自动评分：答案正确，得分 {}", grade);
-                            } else if (Boolean.FALSE.equals(isCorrect)){
-                                grade = 0.0;
-                                logger.trace("自动评分：答案不正确，得分 0.0");
+                                logger.trace("填空题比较结果: {}", isCorrect);
                             }
                         } else {
-                            logger.trace("题目 {} 不是可自动评分题型或没有正确答案。", questionId);
+                            isCorrect = false;
+                            logger.trace("学生答案为空，标记为不正确。");
+                        }
+                        if (Boolean.TRUE.equals(isCorrect)) {
+                            grade = question.getScore();
+                            logger.trace("自动评分：答案正确，得分 {}", grade);
+                        } else if (Boolean.FALSE.equals(isCorrect)){
+                            grade = 0.0;
+                            logger.trace("自动评分：答案不正确，得分 0.0");
                         }
                     } else {
-                        logger.warn("提交答案时未找到题目详情，题目ID: {}。无法进行自动评分。", questionId);
+                        logger.trace("题目 {} 不是可自动评分题型或没有正确答案。", questionId);
                     }
-
-                    stmt.setInt(1, submissionIdToUse);
-                    stmt.setInt(2, questionId);
-                    stmt.setString(3, studentAnswerText);
-                    if (isCorrect != null) stmt.setBoolean(4, isCorrect); else stmt.setNull(4, Types.TINYINT);
-                    if (grade != null) stmt.setDouble(5, grade); else stmt.setNull(5, Types.DECIMAL);
-                    stmt.setString(6, feedback);
-                    stmt.setTimestamp(7, gradedAt);
-                    stmt.addBatch();
-                    logger.trace("添加答案到批量插入 - 题目ID: {}, 学生答案: '{}', 是否正确: {}, 评分: {}", questionId, studentAnswerText, isCorrect, grade);
+                } else {
+                    logger.warn("提交答案时未找到题目详情，题目ID: {}。无法进行自动评分。", questionId);
                 }
-            } else {
-                logger.debug("提交的答案列表为 null。");
+
+                gradedAnswers.add(new GradedAnswer(questionId, studentAnswerText, isCorrect, grade, feedback, gradedAt));
+                logger.trace("添加答案到批量插入 - 题目ID: {}, 学生答案: '{}', 是否正确: {}, 评分: {}", questionId, studentAnswerText, isCorrect, grade);
             }
+        } else {
+            logger.debug("提交的答案列表为 null。");
+        }
 
-            int[] batchResult = stmt.executeBatch();
-            logger.debug("批量插入答案结果 (每项影响行数): {}", batchResult);
+        return gradedAnswers;
+    }
 
-            logger.info("成功创建提交记录 {} 并保存答案。", submissionIdToUse);
-            return submissionIdToUse;
+    /**
+     * 批量写入评分后的答案
+     * @param conn 提交使用的数据库连接，由调用方关闭
+     * @param submissionId 提交记录ID
+     * @param gradedAnswers 评分后的答案
+     * @throws SQLException 写入失败
+     */
+    private void insertAnswers(Connection conn, int submissionId, List<GradedAnswer> gradedAnswers) throws SQLException {
+        String sql = "INSERT INTO submission_answer (submission_id, question_id, student_answer, is_correct, grade, feedback, graded_at) VALUES (?, ?, ?, ?, ?, ?, ?)";
+        int[] batchResult = JdbcExecutor.batch(conn, sql, gradedAnswers, (pstmt, graded) -> {
+            pstmt.setInt(1, submissionId);
+            pstmt.setInt(2, graded.questionId);
+            pstmt.setString(3, graded.studentAnswer);
+            if (graded.isCorrect != null) pstmt.setBoolean(4, graded.isCorrect); else pstmt.setNull(4, Types.TINYINT);
+            if (graded.grade != null) pstmt.setDouble(5, graded.grade); else pstmt.setNull(5, Types.DECIMAL);
+            pstmt.setString(6, graded.feedback);
+            pstmt.setTimestamp(7, graded.gradedAt);
+        });
+        logger.debug("批量插入答案结果 (每项影响行数): {}", batchResult);
+    }
 
+    /**
+     * 自动评分后等待批量写入的一条答案
+     */
+    private static final class GradedAnswer {
+        private final int questionId;
+        private final String studentAnswer;
+        private final Boolean isCorrect;
+        private final Double grade;
+        private final String feedback;
+        private final Timestamp gradedAt;
+
+        private GradedAnswer(int questionId, String studentAnswer, Boolean isCorrect, Double grade, String feedback, Timestamp gradedAt) {
+            this.questionId = questionId;
+            this.studentAnswer = studentAnswer;
+            this.isCorrect = isCorrect;
+            this.grade = grade;
+            this.feedback = feedback;
+            this.gradedAt = gradedAt;
+        }
+    }
 
-        } catch (SQLException e) {
-            logger.error("创建提交记录或保存答案时发生数据库异常。学生ID: {}, 练习ID: {}", studentId, practiceId, e);
-            return -1;
-        } catch (Exception e) {
-            logger.error("创建提交记录或保存答案时发生其他异常。学生ID: {}, 练习ID: {}", studentId, practiceId, e);
-            return -1;
+    /**
+     * 把学生在练习中的最近一次提交指针指向新的提交记录
+     * @param conn 提交使用的数据库连接，由调用方关闭
+     * @param studentId 学生ID
+     * @param practiceId 练习ID
+     * @param submissionId 新的提交记录ID
+     * @throws SQLException 写入失败
+     */
+    private void updateLatestPointer(Connection conn, int studentId, int practiceId, int submissionId) throws SQLException {
+        PreparedStatement pstmt = null;
+        try {
+            String sql = "INSERT INTO submission_latest (student_id, practice_id, submission_id) VALUES (?, ?, ?) " +
+                    "ON DUPLICATE KEY UPDATE submission_id = VALUES(submission_id)";
+            logger.debug("执行 SQL (更新最近提交指针): {} with studentId = {}, practiceId = {}, submissionId = {}", sql, studentId, practiceId, submissionId);
+            pstmt = conn.prepareStatement(sql);
+            pstmt.setInt(1, studentId);
+            pstmt.setInt(2, practiceId);
+            pstmt.setInt(3, submissionId);
+            pstmt.executeUpdate();
         } finally {
-            DBUtils.close(null, stmt, rs);
-            DBUtils.close(conn, null, null);
-            logger.debug("关闭数据库资源。");
+            DBUtils.close(null, pstmt, null);
+        }
+    }
+
+    /**
+     * 在提交使用的连接上一次查询出答案涉及的所有题目的类型、正确答案和分值，用于自动评分
+     * @param conn 提交使用的数据库连接，由调用方关闭
+     * @param answers 提交的答案列表
+     * @return 以题目ID为键的题目实体，只包含评分需要的字段；不存在的题目不在结果中
+     * @throws SQLException 查询失败
+     */
+    private Map<Integer, QuestionEntity> loadAnswerKeys(Connection conn, List<Map<String, Object>> answers) throws SQLException {
+        Map<Integer, QuestionEntity> answerKeys = new HashMap<>();
+        Set<Integer> questionIds = new LinkedHashSet<>();
+        if (answers != null) {
+            for (Map<String, Object> answerMap : answers) {
+                if (answerMap.get("questionId") instanceof Integer) {
+                    questionIds.add((Integer) answerMap.get("questionId"));
+                }
+            }
+        }
+        if (questionIds.isEmpty()) {
+            return answerKeys;
+        }
+
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        try {
+            String sql = "SELECT question_id, type, correct_answer, score FROM question WHERE question_id IN (" +
+                    JdbcExecutor.placeholders(questionIds.size()) + ")";
+            logger.debug("执行 SQL (批量查询题目答案): {} with questionIds = {}", sql, questionIds);
+            pstmt = conn.prepareStatement(sql);
+            int index = 1;
+            for (Integer questionId : questionIds) {
+                pstmt.setInt(index++, questionId);
+            }
+            rs = pstmt.executeQuery();
+            while (rs.next()) {
+                QuestionEntity question = new QuestionEntity();
+                question.setId(rs.getInt("question_id"));
+                question.setType(rs.getString("type"));
+                question.setCorrectAnswer(rs.getString("correct_answer"));
+                question.setScore(rs.getDouble("score"));
+                answerKeys.put(question.getId(), question);
+            }
+            logger.debug("批量查询到 {} / {} 道题目的答案。", answerKeys.size(), questionIds.size());
+        } finally {
+            DBUtils.close(null, pstmt, rs);
         }
+        return answerKeys;
     }
 
     /**
@@ -234,20 +370,17 @@ public class SubmissionDao {
         int completedCount = 0;
 
         try {
-            conn = DBUtils.getConnection();
+            conn = DBUtils.getReadConnection();
             String sql = "SELECT COUNT(sa.question_id) AS completed_count " +
-                    "FROM submission s " +
-                    "JOIN submission_answer sa ON s.submission_id = sa.submission_id " +
-                    "WHERE s.student_id = ? AND s.practice_id = ? " +
-                    "AND s.submitted_at = (SELECT MAX(submitted_at) FROM submission WHERE student_id = ? AND practice_id = ?) " +
+                    "FROM submission_latest sl " +
+                    "JOIN submission_answer sa ON sl.submission_id = sa.submission_id " +
+                    "WHERE sl.student_id = ? AND sl.practice_id = ? " +
                     "AND (sa.student_answer IS NOT NULL AND sa.student_answer != '')";
             logger.debug("执行 SQL (计算完成题目数): {} with studentId = {}, practiceId = {}", sql, studentId, practiceId);
 
             pstmt = conn.prepareStatement(sql);
             pstmt.setInt(1, studentId);
             pstmt.setInt(2, practiceId);
-            pstmt.setInt(3, studentId);
-            pstmt.setInt(4, practiceId);
 
             rs = pstmt.executeQuery();
 
@@ -282,25 +415,22 @@ public class SubmissionDao {
         double obtainedScore = 0.0;
 
         try {
-            conn = DBUtils.getConnection();
+            conn = DBUtils.getReadConnection();
             String sql = "SELECT SUM(CASE " +
                     "WHEN sa.is_correct = TRUE THEN q.score " +
                     "WHEN sa.grade IS NOT NULL THEN sa.grade " +
                     "ELSE 0 " +
                     "END) AS obtained_score " +
-                    "FROM submission s " +
-                    "JOIN submission_answer sa ON s.submission_id = sa.submission_id " +
+                    "FROM submission_latest sl " +
+                    "JOIN submission_answer sa ON sl.submission_id = sa.submission_id " +
                     "JOIN question q ON sa.question_id = q.question_id " +
-                    "WHERE s.student_id = ? AND s.practice_id = ? " +
-                    "AND s.submitted_at = (SELECT MAX(submitted_at) FROM submission WHERE student_id = ? AND practice_id = ?) " +
+                    "WHERE sl.student_id = ? AND sl.practice_id = ? " +
                     "AND (sa.is_correct = TRUE OR sa.grade IS NOT NULL)";
             logger.debug("执行 SQL (计算获得分数): {} with studentId = {}, practiceId = {}", sql, studentId, practiceId);
 
             pstmt = conn.prepareStatement(sql);
             pstmt.setInt(1, studentId);
             pstmt.setInt(2, practiceId);
-            pstmt.setInt(3, studentId);
-            pstmt.setInt(4, practiceId);
 
             rs = pstmt.executeQuery();
 
@@ -334,7 +464,7 @@ public class SubmissionDao {
         double totalScore = 0.0;
 
         try {
-            conn = DBUtils.getConnection();
+            conn = DBUtils.getReadConnection();
             String sql = "SELECT SUM(q.score) AS total_score " +
                     "FROM practice_question pq " +
                     "JOIN question q ON pq.question_id = q.question_id " +
@@ -367,6 +497,90 @@ public class SubmissionDao {
         return totalScore;
     }
 
+    /**
+     * 批量统计学生在多个练习中的完成情况和得分
+     * 一次分组查询代替逐个练习调用getStudentCompletedQuestionCount、getStudentObtainedScore和getPracticeTotalScore，
+     * 每个练习只统计submission_latest指向的学生最近一次提交；与getStudentObtainedScore一致，题目已不存在的答案不计分
+     * @param studentId 学生ID
+     * @param practiceIds 练习ID列表
+     * @return 以练习ID为键的统计结果，包含completedQuestions、obtainedScore、totalScore；
+     *         列表中的每个练习都有结果，没有题目或没有提交的练习对应的值为0
+     */
+    public Map<Integer, Map<String, Object>> getStudentPracticeStats(int studentId, List<Integer> practiceIds) {
+        logger.debug("尝试批量统计学生 ID {} 在练习 {} 中的完成情况和得分。", studentId, practiceIds);
+        Map<Integer, Map<String, Object>> stats = new HashMap<>();
+        if (practiceIds == null || practiceIds.isEmpty()) {
+            logger.debug("练习ID列表为空或为null，返回空统计结果。");
+            return stats;
+        }
+        for (Integer practiceId : practiceIds) {
+            Map<String, Object> stat = new HashMap<>();
+            stat.put("completedQuestions", 0);
+            stat.put("obtainedScore", 0.0);
+            stat.put("totalScore", 0.0);
+            stats.put(practiceId, stat);
+        }
+
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+
+        try {
+            conn = DBUtils.getReadConnection();
+            String placeholders = JdbcExecutor.placeholders(practiceIds.size());
+            String sql = "SELECT p.practice_id, " +
+                    "COALESCE(t.total_score, 0) AS total_score, " +
+                    "COALESCE(st.completed_count, 0) AS completed_count, " +
+                    "COALESCE(st.obtained_score, 0) AS obtained_score " +
+                    "FROM practice p " +
+                    "LEFT JOIN (SELECT pq.practice_id, SUM(q.score) AS total_score " +
+                    "FROM practice_question pq JOIN question q ON pq.question_id = q.question_id " +
+                    "WHERE pq.practice_id IN (" + placeholders + ") GROUP BY pq.practice_id) t ON t.practice_id = p.practice_id " +
+                    "LEFT JOIN (SELECT sl.practice_id, " +
+                    "SUM(CASE WHEN sa.student_answer IS NOT NULL AND sa.student_answer != '' THEN 1 ELSE 0 END) AS completed_count, " +
+                    "SUM(CASE WHEN q.question_id IS NULL THEN 0 WHEN sa.is_correct = TRUE THEN q.score WHEN sa.grade IS NOT NULL THEN sa.grade ELSE 0 END) AS obtained_score " +
+                    "FROM submission_latest sl " +
+                    "JOIN submission_answer sa ON sl.submission_id = sa.submission_id " +
+                    "LEFT JOIN question q ON sa.question_id = q.question_id " +
+                    "WHERE sl.student_id = ? AND sl.practice_id IN (" + placeholders + ") " +
+                    "GROUP BY sl.practice_id) st ON st.practice_id = p.practice_id " +
+                    "WHERE p.practice_id IN (" + placeholders + ")";
+            logger.debug("执行 SQL (批量统计练习完成情况): {} with studentId = {}, practiceIds = {}", sql, studentId, practiceIds);
+
+            pstmt = conn.prepareStatement(sql);
+            int index = 1;
+            for (Integer practiceId : practiceIds) {
+                pstmt.setInt(index++, practiceId);
+            }
+            pstmt.setInt(index++, studentId);
+            for (Integer practiceId : practiceIds) {
+                pstmt.setInt(index++, practiceId);
+            }
+            for (Integer practiceId : practiceIds) {
+                pstmt.setInt(index++, practiceId);
+            }
+
+            rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                Map<String, Object> stat = stats.get(rs.getInt("practice_id"));
+                if (stat == null) {
+                    continue;
+                }
+                stat.put("completedQuestions", rs.getInt("completed_count"));
+                stat.put("obtainedScore", rs.getDouble("obtained_score"));
+                stat.put("totalScore", rs.getDouble("total_score"));
+            }
+            logger.debug("完成批量统计学生 ID {} 的 {} 个练习。", studentId, stats.size());
+        } catch (SQLException e) {
+            logger.error("批量统计学生 ID {} 在练习 {} 中的完成情况时发生数据库异常。", studentId, practiceIds, e);
+        } finally {
+            DBUtils.close(conn, pstmt, rs);
+            logger.debug("关闭数据库资源。");
+        }
+        return stats;
+    }
+
     /**
      * 获取学生对特定练习的最近一次提交记录及答案
      * @param studentId 学生ID
@@ -381,9 +595,9 @@ public class SubmissionDao {
         Map<String, Object> submission = null;
 
         try {
-            conn = DBUtils.getConnection();
+            conn = DBUtils.getReadConnection();
 
-            String selectLatestSubmissionSql = "SELECT submission_id FROM submission WHERE student_id = ? AND practice_id = ? ORDER BY submitted_at DESC LIMIT 1";
+            String selectLatestSubmissionSql = "SELECT submission_id FROM submission_latest WHERE student_id = ? AND practice_id = ?";
             logger.debug("执行 SQL (查询最近提交ID): {} with studentId = {}, practiceId = {}", selectLatestSubmissionSql, studentId, practiceId);
             pstmt = conn.prepareStatement(selectLatestSubmissionSql);
             pstmt.setInt(1, studentId);
@@ -411,38 +625,7 @@ public class SubmissionDao {
 
                 List<Map<String, Object>> answers = new ArrayList<>();
                 while (rs.next()) {
-                    Map<String, Object> answer = new HashMap<>();
-
-                    int questionId = rs.getInt("question_id");
-
-                    String studentAnswer = rs.getString("student_answer");
-                    Object isCorrectObj = rs.getObject("is_correct");
-                    Object gradeObj = rs.getObject("grade");
-                    String feedback = rs.getString("feedback");
-                    Boolean isCorrect = null;
-
-                    if (isCorrectObj instanceof Boolean) {
-                        isCorrect = (Boolean) isCorrectObj;
-                    } else if (isCorrectObj != null) {
-                        logger.warn("提交记录 {} 中题目 {} 的 is_correct 字段类型异常: {}", submissionId, questionId, isCorrectObj.getClass().getName());
-                    }
-
-                    Double grade = null;
-                    if (gradeObj instanceof BigDecimal) {
-                        grade = ((BigDecimal) gradeObj).doubleValue();
-                    } else if (gradeObj instanceof Number) {
-                        grade = ((Number) gradeObj).doubleValue();
-                    } else if (gradeObj != null) {
-                        logger.warn("提交记录 {} 中题目 {} 的 grade 字段类型异常: {}", submissionId, questionId, gradeObj.getClass().getName());
-                    }
-
-                    answer.put("questionId", questionId);
-                    answer.put("studentAnswer", studentAnswer);
-                    answer.put("isCorrect", isCorrect);
-                    answer.put("grade", grade);
-                    answer.put("feedback", feedback);
-                    answers.add(answer);
-                    logger.trace("找到提交记录 {} 的答案 - 题目ID: {}, 学生答案: '{}'", submissionId, questionId, studentAnswer);
+                    answers.add(readAnswer(rs, submissionId));
                 }
                 logger.debug("成功找到提交记录 {} 的 {} 个答案。", submissionId, answers.size());
 
@@ -461,6 +644,101 @@ public class SubmissionDao {
         return submission;
     }
 
+    /**
+     * 一次查询获取某个练习下每个学生的最近一次提交及其答案，用于批改页面，避免按学生逐个查询。
+     * 按practice_id索引读取submission_latest中该练习的指针行（每个学生一行，指向其最近一次提交），
+     * 再左连接答案表，查询次数与学生人数无关。
+     * 依赖submission_latest表：部署前必须执行sql/submission_latest.sql建表并回填已有提交，否则查询失败或漏掉旧的提交。
+     *
+     * @param practiceId 练习ID
+     * @return 学生ID到最近提交的映射，提交的结构与getLatestSubmission相同（submissionId、answers）；没有提交的学生不在映射中
+     */
+    public Map<Integer, Map<String, Object>> getLatestSubmissionsByPractice(int practiceId) {
+        logger.debug("尝试批量获取练习 ID {} 下每个学生的最近一次提交记录。", practiceId);
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        Map<Integer, Map<String, Object>> submissions = new HashMap<>();
+
+        try {
+            conn = DBUtils.getReadConnection();
+            String sql = "SELECT sl.student_id, sl.submission_id, a.question_id, a.student_answer, a.is_correct, a.grade, a.feedback " +
+                    "FROM submission_latest sl LEFT JOIN submission_answer a ON a.submission_id = sl.submission_id " +
+                    "WHERE sl.practice_id = ?";
+            logger.debug("执行 SQL: {} with practiceId = {}", sql, practiceId);
+            pstmt = conn.prepareStatement(sql);
+            pstmt.setInt(1, practiceId);
+            rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                int studentId = rs.getInt("student_id");
+                int submissionId = rs.getInt("submission_id");
+                Map<String, Object> submission = submissions.computeIfAbsent(studentId, id -> {
+                    Map<String, Object> created = new HashMap<>();
+                    created.put("submissionId", submissionId);
+                    created.put("answers", new ArrayList<Map<String, Object>>());
+                    return created;
+                });
+                if (rs.getObject("question_id") == null) {
+                    //提交记录没有任何答案
+                    continue;
+                }
+                @SuppressWarnings("unchecked")
+                List<Map<String, Object>> answers = (List<Map<String, Object>>) submission.get("answers");
+                answers.add(readAnswer(rs, submissionId));
+            }
+            logger.debug("练习 ID {} 共有 {} 名学生提交过。", practiceId, submissions.size());
+        } catch (SQLException e) {
+            logger.error("批量获取练习 ID {} 的最近提交记录时发生数据库异常。", practiceId, e);
+        } finally {
+            DBUtils.close(conn, pstmt, rs);
+            logger.debug("关闭数据库资源。");
+        }
+        return submissions;
+    }
+
+    /**
+     * 读取结果集当前行中的一条提交答案
+     * @param rs 包含question_id、student_answer、is_correct、grade、feedback列的结果集
+     * @param submissionId 答案所属的提交记录ID，用于日志
+     * @return 答案Map，包含questionId、studentAnswer、isCorrect、grade、feedback
+     * @throws SQLException 读取结果集失败
+     */
+    private Map<String, Object> readAnswer(ResultSet rs, int submissionId) throws SQLException {
+        Map<String, Object> answer = new HashMap<>();
+
+        int questionId = rs.getInt("question_id");
+
+        String studentAnswer = rs.getString("student_answer");
+        Object isCorrectObj = rs.getObject("is_correct");
+        Object gradeObj = rs.getObject("grade");
+        String feedback = rs.getString("feedback");
+        Boolean isCorrect = null;
+
+        if (isCorrectObj instanceof Boolean) {
+            isCorrect = (Boolean) isCorrectObj;
+        } else if (isCorrectObj != null) {
+            logger.warn("提交记录 {} 中题目 {} 的 is_correct 字段类型异常: {}", submissionId, questionId, isCorrectObj.getClass().getName());
+        }
+
+        Double grade = null;
+        if (gradeObj instanceof BigDecimal) {
+            grade = ((BigDecimal) gradeObj).doubleValue();
+        } else if (gradeObj instanceof Number) {
+            grade = ((Number) gradeObj).doubleValue();
+        } else if (gradeObj != null) {
+            logger.warn("提交记录 {} 中题目 {} 的 grade 字段类型异常: {}", submissionId, questionId, gradeObj.getClass().getName());
+        }
+
+        answer.put("questionId", questionId);
+        answer.put("studentAnswer", studentAnswer);
+        answer.put("isCorrect", isCorrect);
+        answer.put("grade", grade);
+        answer.put("feedback", feedback);
+        logger.trace("找到提交记录 {} 的答案 - 题目ID: {}, 学生答案: '{}'", submissionId, questionId, studentAnswer);
+        return answer;
+    }
+
     /**
      * 更新学生提交记录中单个题目答案的评分和反馈。
      *
@@ -181,7 +181,7 @@ public class TeacherDao {
         ResultSet rs = null;
 
         try {
-            conn = DBUtils.getConnection();
+            conn = DBUtils.getReadConnection();
             String sql = "SELECT teacher_id, name, email, last_login, created_at FROM teacher";
             logger.debug("执行 SQL: {}", sql);
             pstmt = conn.prepareStatement(sql);
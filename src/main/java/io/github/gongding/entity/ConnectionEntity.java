@@ -8,6 +8,12 @@ import java.sql.Connection;
 public class ConnectionEntity {
     Connection connection;
     private Long useStartTime;
+    //借用连接的线程名称
+    private String borrowThread;
+    //借用位置的调用栈，未采样时为null
+    private Throwable borrowStack;
+    //是否已经报告过疑似泄漏
+    private volatile boolean leakReported;
 
     public ConnectionEntity(Connection connection, Long useStartTime) {
         this.connection = connection;
@@ -32,4 +38,28 @@ public class ConnectionEntity {
     public void setUseStartTime(Long useStartTime) {
         this.useStartTime = useStartTime;
     }
+
+    public String getBorrowThread() {
+        return borrowThread;
+    }
+
+    public void setBorrowThread(String borrowThread) {
+        this.borrowThread = borrowThread;
+    }
+
+    public Throwable getBorrowStack() {
+        return borrowStack;
+    }
+
+    public void setBorrowStack(Throwable borrowStack) {
+        this.borrowStack = borrowStack;
+    }
+
+    public boolean isLeakReported() {
+        return leakReported;
+    }
+
+    public void setLeakReported(boolean leakReported) {
+        this.leakReported = leakReported;
+    }
 }
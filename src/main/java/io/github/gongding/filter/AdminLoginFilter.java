@@ -3,7 +3,6 @@ package io.github.gongding.filter;
 import io.github.gongding.entity.AdminEntity;
 import io.github.gongding.service.AdminService;
 import jakarta.servlet.*;
-import jakarta.servlet.annotation.WebFilter;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -13,7 +12,6 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 
-@WebFilter("/*")
 public class AdminLoginFilter implements Filter {
     private static final Logger logger = LoggerFactory.getLogger(AdminLoginFilter.class);
     private final int COOKIE_EXPIRATION = 7 * 24 * 60 * 60; // 7 days, consistent with other filters
@@ -0,0 +1,218 @@
+package io.github.gongding.filter;
+
+import io.github.gongding.pool.CircuitOpenException;
+import io.github.gongding.pool.DataSourceManager;
+import io.github.gongding.pool.PoolExhaustedException;
+import io.github.gongding.pool.RequestDeadline;
+import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 连接池耗尽时返回503
+ * 请求开始时按路径匹配requestTimeoutRoutes（未匹配时使用requestTimeout）设置处理截止时间，获取连接和执行SQL都受其限制；请求处理过程中只要发生过PoolExhaustedException，
+ * 无论异常是否被Service或DAO捕获，响应都会被替换为503和Retry-After，让客户端稍后重试。
+ * 数据库熔断期间写请求和没有缓存可用的读请求同样快速返回503，Retry-After为熔断剩余时间
+ * 在web.xml中注册为第一个过滤器，后续过滤器抛出的PoolExhaustedException也能被转换为503
+ */
+public class PoolExhaustedFilter implements Filter {
+    private static final Logger logger = LoggerFactory.getLogger(PoolExhaustedFilter.class);
+    private static final String BUSY_BODY = "{\"success\":false,\"message\":\"服务器繁忙，请稍后重试\"}";
+    private static final String UNAVAILABLE_BODY = "{\"success\":false,\"message\":\"数据库暂时不可用，请稍后重试\"}";
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        logger.info("PoolExhaustedFilter 初始化成功，请求预算: {} ms，按路径设置的预算: {}。",
+                DataSourceManager.getSettings().getRequestTimeout(), DataSourceManager.getSettings().getRequestTimeoutRoutes());
+    }
+
+    @Override
+    public void doFilter(ServletRequest req0, ServletResponse resp0, FilterChain chain) throws IOException, ServletException {
+        HttpServletRequest req = (HttpServletRequest) req0;
+        BusyAwareResponse resp = new BusyAwareResponse((HttpServletResponse) resp0, req.getRequestURI());
+        //每个请求读取当前配置，配置热加载后立即生效
+        String path = req.getRequestURI().substring(req.getContextPath().length());
+        RequestDeadline.begin(DataSourceManager.getSettings().requestTimeoutFor(path));
+        try {
+            chain.doFilter(req, resp);
+        } catch (PoolExhaustedException e) {
+            logger.debug("请求 {} 因连接池耗尽而中止。", req.getRequestURI());
+        } finally {
+            try {
+                resp.rejectIfExhausted(resp.streamUsed);
+            } finally {
+                RequestDeadline.end();
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        logger.info("PoolExhaustedFilter 销毁。");
+    }
+
+    /**
+     * 在写出响应内容前检查连接池是否耗尽，耗尽时改为输出503，并丢弃Servlet写入的内容
+     */
+    private final class BusyAwareResponse extends HttpServletResponseWrapper {
+        private final String uri;
+        private boolean rejected;
+        private PrintWriter writer;
+        private ServletOutputStream outputStream;
+        //Servlet是否通过输出流写出响应体
+        private boolean streamUsed;
+
+        BusyAwareResponse(HttpServletResponse response, String uri) {
+            super(response);
+            this.uri = uri;
+        }
+
+        /**
+         * 当前请求发生过连接池耗尽时输出503
+         * @param viaStream 是否通过输出流写出响应体
+         * @return 响应是否已被替换为503
+         * @throws IOException 写出响应失败
+         */
+        boolean rejectIfExhausted(boolean viaStream) throws IOException {
+            if (rejected) {
+                return true;
+            }
+            PoolExhaustedException exhausted = RequestDeadline.exhausted();
+            if (exhausted == null || isCommitted()) {
+                return false;
+            }
+            rejected = true;
+            HttpServletResponse response = (HttpServletResponse) getResponse();
+            response.resetBuffer();
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            String body;
+            long retryAfterSeconds;
+            if (exhausted instanceof CircuitOpenException) {
+                logger.warn("请求 {} 遇到数据库熔断，返回 503。", uri);
+                body = UNAVAILABLE_BODY;
+                retryAfterSeconds = Math.max(1, (((CircuitOpenException) exhausted).getRetryAfterMillis() + 999) / 1000);
+            } else {
+                logger.warn("请求 {} 未能及时获取数据库连接，返回 503。", uri);
+                body = BUSY_BODY;
+                //建议客户端在一个获取连接超时周期之后重试
+                retryAfterSeconds = Math.max(1, DataSourceManager.getSettings().getConnectionTimeout() / 1000);
+            }
+            response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+            response.setContentType("application/json;charset=utf-8");
+            if (viaStream) {
+                response.getOutputStream().write(body.getBytes(StandardCharsets.UTF_8));
+            } else {
+                response.getWriter().write(body);
+            }
+            return true;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                writer = new PrintWriter(new Writer() {
+                    @Override
+                    public void write(char[] cbuf, int off, int len) throws IOException {
+                        if (!rejectIfExhausted(false)) {
+                            getResponse().getWriter().write(cbuf, off, len);
+                        }
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        if (!rejected) {
+                            getResponse().getWriter().flush();
+                        }
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        if (!rejected) {
+                            getResponse().getWriter().close();
+                        }
+                    }
+                });
+            }
+            return writer;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                streamUsed = true;
+                outputStream = new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        if (!rejectIfExhausted(true)) {
+                            getResponse().getOutputStream().write(b);
+                        }
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        if (!rejectIfExhausted(true)) {
+                            getResponse().getOutputStream().write(b, off, len);
+                        }
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        if (!rejected) {
+                            getResponse().getOutputStream().flush();
+                        }
+                    }
+
+                    //异步写出的就绪状态和监听器交给容器的输出流处理
+                    @Override
+                    public boolean isReady() {
+                        try {
+                            return getResponse().getOutputStream().isReady();
+                        } catch (IOException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener writeListener) {
+                        try {
+                            getResponse().getOutputStream().setWriteListener(writeListener);
+                        } catch (IOException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }
+                };
+            }
+            return outputStream;
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            if (!rejectIfExhausted(streamUsed)) {
+                super.sendError(sc, msg);
+            }
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            if (!rejectIfExhausted(streamUsed)) {
+                super.sendError(sc);
+            }
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (!rejectIfExhausted(streamUsed)) {
+                super.flushBuffer();
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package io.github.gongding.filter;
+
+import io.github.gongding.pool.DataSourceManager;
+import io.github.gongding.pool.PoolLanes;
+import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 按请求路径选择连接池分道
+ * 请求处理期间把分道绑定到当前线程，DAO借用连接时据此占用对应分道的名额
+ * 在web.xml中注册，排在会调用DAO的登录过滤器之前
+ */
+public class PoolLaneFilter implements Filter {
+    private static final Logger logger = LoggerFactory.getLogger(PoolLaneFilter.class);
+    //路径前缀与分道的映射，按前缀长度降序排列
+    private final List<String[]> routes = new ArrayList<>();
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        String spec = DataSourceManager.getSettings().getLaneRoutes();
+        for (String item : spec.split(",")) {
+            String[] parts = item.trim().split("=");
+            if (parts.length != 2) {
+                if (!item.trim().isEmpty()) {
+                    logger.warn("忽略格式错误的分道路由配置: '{}'。", item);
+                }
+                continue;
+            }
+            routes.add(new String[]{parts[0].trim(), parts[1].trim()});
+        }
+        routes.sort((a, b) -> Integer.compare(b[0].length(), a[0].length()));
+        logger.info("PoolLaneFilter 初始化成功，分道路由数: {}。", routes.size());
+    }
+
+    @Override
+    public void doFilter(ServletRequest req0, ServletResponse resp0, FilterChain chain) throws IOException, ServletException {
+        HttpServletRequest req = (HttpServletRequest) req0;
+        String path = req.getRequestURI().substring(req.getContextPath().length());
+        String lane = PoolLanes.DEFAULT_LANE;
+        for (String[] route : routes) {
+            if (path.startsWith(route[0])) {
+                lane = route[1];
+                break;
+            }
+        }
+        logger.trace("请求 {} 使用连接池分道 {}。", path, lane);
+        PoolLanes.enter(lane);
+        try {
+            chain.doFilter(req0, resp0);
+        } finally {
+            PoolLanes.exit();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        logger.info("PoolLaneFilter 销毁。");
+    }
+}
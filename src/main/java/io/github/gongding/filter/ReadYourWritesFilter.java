@@ -0,0 +1,54 @@
+package io.github.gongding.filter;
+
+import io.github.gongding.pool.ReadYourWrites;
+import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpSession;
+
+import java.io.IOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 在会话和请求线程之间传递最近一次写入主库的时间
+ * 学生提交答案后，其后续的读请求在一段时间内走主库，不会因从库延迟看不到刚提交的答案
+ * 在web.xml中注册，排在会调用DAO的登录过滤器之前
+ */
+public class ReadYourWritesFilter implements Filter {
+    private static final Logger logger = LoggerFactory.getLogger(ReadYourWritesFilter.class);
+    //会话中保存最近写入时间的属性名
+    private static final String LAST_WRITE_ATTRIBUTE = "lastWriteMillis";
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        logger.info("ReadYourWritesFilter 初始化成功。");
+    }
+
+    @Override
+    public void doFilter(ServletRequest req0, ServletResponse resp0, FilterChain chain) throws IOException, ServletException {
+        HttpServletRequest req = (HttpServletRequest) req0;
+        HttpSession session = req.getSession(false);
+        Long before = session != null ? (Long) session.getAttribute(LAST_WRITE_ATTRIBUTE) : null;
+        ReadYourWrites.begin(before);
+        try {
+            chain.doFilter(req0, resp0);
+        } finally {
+            Long after = ReadYourWrites.lastWrite();
+            ReadYourWrites.end();
+            if (after != null && !after.equals(before)) {
+                //请求处理过程中会话可能被创建或注销，重新获取
+                HttpSession current = req.getSession(false);
+                if (current != null) {
+                    current.setAttribute(LAST_WRITE_ATTRIBUTE, after);
+                    logger.debug("会话 {} 写入了主库，后续读请求暂时走主库。", current.getId());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        logger.info("ReadYourWritesFilter 销毁。");
+    }
+}
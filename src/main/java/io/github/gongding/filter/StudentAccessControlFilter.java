@@ -4,7 +4,6 @@ import io.github.gongding.dao.PracticeDao;
 import io.github.gongding.entity.PracticeEntity;
 import io.github.gongding.entity.StudentEntity;
 import jakarta.servlet.*;
-import jakarta.servlet.annotation.WebFilter;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
@@ -15,7 +14,6 @@ import java.time.LocalDateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-@WebFilter({"/api/student/practiceDetails", "/html/student/student-list-question.html"})
 public class StudentAccessControlFilter implements Filter {
     private static final Logger logger = LoggerFactory.getLogger(StudentAccessControlFilter.class);
     private PracticeDao practiceDao;
@@ -3,7 +3,6 @@ package io.github.gongding.filter;
 import io.github.gongding.entity.StudentEntity;
 import io.github.gongding.service.StudentService;
 import jakarta.servlet.*;
-import jakarta.servlet.annotation.WebFilter;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -14,7 +13,6 @@ import java.io.IOException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-@WebFilter("/*")
 public class StudentLoginFilter implements Filter {
     private static final Logger logger = LoggerFactory.getLogger(StudentLoginFilter.class);
     private final int COOKIE_EXPIRATION = 7 * 24 * 60 * 60;
@@ -0,0 +1,61 @@
+package io.github.gongding.listener;
+
+import io.github.gongding.pool.DataSourceManager;
+import io.github.gongding.util.VirtualThreads;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import jakarta.servlet.ServletRequestEvent;
+import jakarta.servlet.ServletRequestListener;
+import jakarta.servlet.annotation.WebListener;
+import org.apache.log4j.LogManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 应用生命周期监听器
+ * 应用启动时创建并预热连接池，第一个请求不再承担建连的开销；
+ * 应用关闭或重新部署时排空并关闭连接池，停止后台线程，避免线程和连接泄漏。
+ * 第一个请求到达时记录请求是否运行在虚拟线程上，便于确认Connector的useVirtualThreads配置是否生效
+ */
+@WebListener
+public class AppLifecycleListener implements ServletContextListener, ServletRequestListener {
+    private static final Logger logger = LoggerFactory.getLogger(AppLifecycleListener.class);
+
+    //是否已经记录过请求线程的类型
+    private final AtomicBoolean requestThreadLogged = new AtomicBoolean(false);
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        long start = System.currentTimeMillis();
+        logger.info("应用 {} 开始启动。", sce.getServletContext().getContextPath());
+        DataSourceManager.start();
+        if (VirtualThreads.isSupported()) {
+            logger.info("当前运行时支持虚拟线程，可在Connector上配置useVirtualThreads=\"true\"让请求运行在虚拟线程上。");
+        }
+        logger.info("应用启动完成，耗时 {} ms", System.currentTimeMillis() - start);
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        long start = System.currentTimeMillis();
+        logger.info("应用 {} 开始关闭。", sce.getServletContext().getContextPath());
+        try {
+            DataSourceManager.shutdown();
+        } catch (RuntimeException e) {
+            logger.error("关闭数据源时发生异常。", e);
+        }
+        logger.info("应用关闭完成，耗时 {} ms", System.currentTimeMillis() - start);
+        //日志经过AsyncAppender异步写出，关闭时把缓冲区中的日志写完并停止后台线程
+        LogManager.shutdown();
+    }
+
+    @Override
+    public void requestInitialized(ServletRequestEvent sre) {
+        if (requestThreadLogged.compareAndSet(false, true)) {
+            Thread thread = Thread.currentThread();
+            logger.info("请求线程: {}，虚拟线程: {}", thread, VirtualThreads.isVirtual(thread));
+        }
+    }
+}
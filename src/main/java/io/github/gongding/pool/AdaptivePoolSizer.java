@@ -0,0 +1,110 @@
+package io.github.gongding.pool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 连接池大小自适应控制器
+ * 按固定周期采样借用次数、借用等待时间、连接持有时间（即查询耗时）和峰值占用数，
+ * 用利特尔法则估算需要的连接数：平均占用数 = 借用速率 × 平均持有时间，再留出一定余量；
+ * 借用者等待过长或出现获取超时时按当前大小的1/4加速扩容，负载下降时每个周期最多缩小1/10，避免抖动。
+ * 结果限制在配置的上下限之间，每次决策都会输出日志，便于调参
+ */
+public class AdaptivePoolSizer {
+    private static final Logger logger = LoggerFactory.getLogger(AdaptivePoolSizer.class);
+
+    private final ConcurrentConnectionPool pool;
+    private final int minSize;
+    private final int maxSize;
+    //估算结果之上额外保留的比例
+    private final double headroom;
+    //平均借用等待超过该值（毫秒）时扩容
+    private final double waitThreshold;
+
+    //上一次采样的累计值
+    private long lastSampleNanos;
+    private long lastBorrowCount;
+    private long lastWaitMillis;
+    private long lastHoldMillis;
+    private long lastTimeoutCount;
+
+    /**
+     * 构造方法
+     * @param pool 被调整的连接池
+     * @param minSize 最大连接数的下限
+     * @param maxSize 最大连接数的上限
+     * @param headroom 余量比例
+     * @param waitThreshold 平均借用等待阈值（毫秒）
+     */
+    public AdaptivePoolSizer(ConcurrentConnectionPool pool, int minSize, int maxSize, double headroom, double waitThreshold) {
+        this.pool = pool;
+        this.minSize = Math.max(1, minSize);
+        this.maxSize = Math.max(this.minSize, maxSize);
+        this.headroom = headroom;
+        this.waitThreshold = waitThreshold;
+        this.lastSampleNanos = System.nanoTime();
+        this.lastBorrowCount = pool.getBorrowCount();
+        this.lastWaitMillis = pool.getTotalWaitMillis();
+        this.lastHoldMillis = pool.getTotalHoldMillis();
+        this.lastTimeoutCount = pool.getTimeoutCount();
+    }
+
+    /**
+     * 采样一次并调整连接池大小，由连接池的定时任务调用
+     */
+    public void adjust() {
+        try {
+            long now = System.nanoTime();
+            long borrowCount = pool.getBorrowCount();
+            long waitMillis = pool.getTotalWaitMillis();
+            long holdMillis = pool.getTotalHoldMillis();
+            long timeoutCount = pool.getTimeoutCount();
+            double intervalSeconds = Math.max(1, now - lastSampleNanos) / 1_000_000_000.0;
+            long borrows = borrowCount - lastBorrowCount;
+            long timeouts = timeoutCount - lastTimeoutCount;
+            double avgWait = borrows > 0 ? (double) (waitMillis - lastWaitMillis) / borrows : 0;
+            double avgHold = borrows > 0 ? (double) (holdMillis - lastHoldMillis) / borrows : 0;
+            lastSampleNanos = now;
+            lastBorrowCount = borrowCount;
+            lastWaitMillis = waitMillis;
+            lastHoldMillis = holdMillis;
+            lastTimeoutCount = timeoutCount;
+
+            int current = pool.getMaxSize();
+            int peakActive = pool.resetPeakActive();
+            double rate = borrows / intervalSeconds;
+            //利特尔法则：平均同时占用的连接数
+            double demand = rate * avgHold / 1000.0;
+            int target = (int) Math.ceil(demand * (1 + headroom));
+            String reason;
+            if (timeouts > 0 || avgWait > waitThreshold) {
+                target = Math.max(target, current + Math.max(1, current / 4));
+                reason = timeouts > 0 ? "出现获取连接超时" : "平均借用等待超过阈值";
+            } else if (target >= current) {
+                reason = target > current ? "估算占用数超过当前大小" : "估算占用数与当前大小一致";
+            } else {
+                //负载下降时逐步缩小，且不低于本周期的峰值占用数
+                target = Math.max(Math.max(target, peakActive), current - Math.max(1, current / 10));
+                reason = "估算占用数低于当前大小";
+            }
+            target = Math.min(maxSize, Math.max(minSize, target));
+
+            if (target != current) {
+                int applied = pool.resize(target);
+                logger.info("调整连接池最大连接数: {} -> {}，原因: {}。借用速率: {}/s，平均持有: {} ms，平均等待: {} ms，估算占用: {}，峰值占用: {}，超时次数: {}",
+                        current, applied, reason, String.format("%.1f", rate), String.format("%.1f", avgHold),
+                        String.format("%.1f", avgWait), String.format("%.2f", demand), peakActive, timeouts);
+            } else if (timeouts > 0 || avgWait > waitThreshold) {
+                logger.warn("连接池最大连接数已达到上限 {}，无法继续扩容，原因: {}。借用速率: {}/s，平均持有: {} ms，平均等待: {} ms，估算占用: {}，峰值占用: {}，超时次数: {}",
+                        current, reason, String.format("%.1f", rate), String.format("%.1f", avgHold),
+                        String.format("%.1f", avgWait), String.format("%.2f", demand), peakActive, timeouts);
+            } else {
+                logger.debug("保持连接池最大连接数: {}，原因: {}。借用速率: {}/s，平均持有: {} ms，平均等待: {} ms，估算占用: {}，峰值占用: {}，超时次数: {}",
+                        current, reason, String.format("%.1f", rate), String.format("%.1f", avgHold),
+                        String.format("%.1f", avgWait), String.format("%.2f", demand), peakActive, timeouts);
+            }
+        } catch (RuntimeException e) {
+            logger.error("自适应调整连接池大小失败。", e);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package io.github.gongding.pool;
+
+import io.github.gongding.pool.config.PoolSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 连接池前的熔断器
+ * 连续失败（整个连接池获取连接超时、建连失败、借出的连接断开；分道上限已满和请求预算用完不算）达到breakerThreshold次后进入打开状态，
+ * breakerOpenTime内获取连接直接抛出CircuitOpenException，请求线程不再排队等待一个已经不可用的数据库；
+ * 打开时间结束后进入半开状态，只放行一个探测请求，探测成功则关闭熔断，失败则重新打开。
+ * 每次失败同时记录到RequestDeadline的线程错误计数中
+ */
+public class CircuitBreaker {
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private volatile int threshold;
+    private volatile long openTime;
+    private volatile State state = State.CLOSED;
+    //连续失败次数，成功一次后清零
+    private final AtomicInteger consecutiveFailures = new AtomicInteger(0);
+    //熔断打开的时间
+    private volatile long openedAt;
+    //半开状态下是否已有探测请求在进行
+    private final AtomicBoolean probing = new AtomicBoolean(false);
+    //累计熔断次数
+    private final AtomicInteger tripCount = new AtomicInteger(0);
+
+    /**
+     * 构造方法
+     * @param name 所属连接池名称，用于日志
+     * @param settings 连接池配置
+     */
+    public CircuitBreaker(String name, PoolSettings settings) {
+        this.name = name;
+        reconfigure(settings);
+    }
+
+    /**
+     * 应用新的熔断配置
+     * @param settings 新的连接池配置
+     */
+    public void reconfigure(PoolSettings settings) {
+        this.threshold = settings.getBreakerThreshold();
+        this.openTime = settings.getBreakerOpenTime();
+        if (threshold <= 0 && state != State.CLOSED) {
+            close();
+        }
+    }
+
+    /**
+     * 获取连接前调用，熔断打开时直接拒绝；半开状态只放行一个探测请求
+     * 获得探测许可的调用方之后必须调用recordSuccess、recordFailure或releaseProbe之一
+     * @return 本次调用是否获得了半开状态的探测许可
+     * @throws CircuitOpenException 熔断打开或已有探测请求在进行
+     */
+    public boolean acquirePermission() {
+        if (threshold <= 0 || state == State.CLOSED) {
+            return false;
+        }
+        long remaining = openTime - (System.currentTimeMillis() - openedAt);
+        if (state == State.OPEN && remaining > 0) {
+            throw new CircuitOpenException("数据库 " + name + " 暂时不可用，已熔断", remaining);
+        }
+        //打开时间已过，只允许一个线程进入半开状态进行探测
+        if (probing.compareAndSet(false, true)) {
+            state = State.HALF_OPEN;
+            logger.info("连接池 {} 熔断进入半开状态，放行一个探测请求。", name);
+            return true;
+        }
+        throw new CircuitOpenException("数据库 " + name + " 暂时不可用，正在探测恢复", Math.max(remaining, 1000));
+    }
+
+    /**
+     * 记录一次成功，半开状态下关闭熔断
+     */
+    public void recordSuccess() {
+        consecutiveFailures.set(0);
+        if (state != State.CLOSED) {
+            close();
+            logger.info("连接池 {} 探测成功，熔断关闭。", name);
+        }
+    }
+
+    /**
+     * 探测请求既没有成功也没有失败（如连接池已关闭）时归还探测许可，下一个请求可以重新探测
+     */
+    public void releaseProbe() {
+        if (state == State.HALF_OPEN) {
+            probing.set(false);
+        }
+    }
+
+    /**
+     * 记录一次失败，连续失败达到阈值或半开探测失败时打开熔断
+     */
+    public void recordFailure() {
+        RequestDeadline.recordDatabaseError();
+        int failures = consecutiveFailures.incrementAndGet();
+        if (threshold <= 0) {
+            return;
+        }
+        if (state == State.HALF_OPEN || (state == State.CLOSED && failures >= threshold)) {
+            open(failures);
+        }
+    }
+
+    private synchronized void open(int failures) {
+        if (state == State.OPEN) {
+            return;
+        }
+        openedAt = System.currentTimeMillis();
+        state = State.OPEN;
+        probing.set(false);
+        tripCount.incrementAndGet();
+        logger.warn("连接池 {} 连续失败 {} 次，熔断 {} ms。", name, failures, openTime);
+    }
+
+    private synchronized void close() {
+        state = State.CLOSED;
+        consecutiveFailures.set(0);
+        probing.set(false);
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures.get();
+    }
+
+    public int getTripCount() {
+        return tripCount.get();
+    }
+}
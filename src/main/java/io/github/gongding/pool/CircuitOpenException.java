@@ -0,0 +1,26 @@
+package io.github.gongding.pool;
+
+/**
+ * 数据库熔断期间获取连接时抛出
+ * 继承PoolExhaustedException，同样由过滤器转换为503，Retry-After为熔断剩余时间
+ */
+public class CircuitOpenException extends PoolExhaustedException {
+    private static final long serialVersionUID = 1L;
+
+    //距离放行探测请求的剩余时间（毫秒）
+    private final long retryAfterMillis;
+
+    /**
+     * 构造方法
+     * @param message 异常信息
+     * @param retryAfterMillis 距离放行探测请求的剩余时间（毫秒）
+     */
+    public CircuitOpenException(String message, long retryAfterMillis) {
+        super(message, 0, Reason.CIRCUIT_OPEN);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
@@ -0,0 +1,751 @@
+package io.github.gongding.pool;
+
+import io.github.gongding.entity.ConnectionEntity;
+import io.github.gongding.pool.config.PoolSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 无锁连接池实现
+ * 空闲连接保存在无锁双端队列中（后进先出，优先复用最近归还的连接），
+ * 借出与归还都是O(1)的CAS操作；连接耗尽时借用者在SynchronousQueue上等待，
+ * 归还连接的线程直接把连接交给等待者，不再需要全局锁和notifyAll。
+ * 物理连接只在后台补充线程中创建，借用者不会阻塞在TCP握手和认证上。
+ * 借出的是ProxyConnection代理，close()即可把连接归还连接池。
+ * 定时维护任务按minIdle/maxIdle/idleTimeout回收空闲连接，并按带随机抖动的maxLifetime轮换连接，
+ * 避免连接在服务端wait_timeout后失效。
+ * 空闲超过validationSkipWindow的连接在借出前会用isValid或校验SQL确认可用，近期使用过的连接不产生额外往返。
+ * 配置statementCacheSize后每个连接维护一个PreparedStatement的LRU缓存，跨借用复用预编译语句。
+ * 配置lanes后借用前先按请求所属分道获取名额，保证关键请求始终有保留的连接可用。
+ * 获取连接最多等待connectionTimeout和当前请求剩余预算中较短的时间，超时抛出PoolExhaustedException。
+ * 开启adaptiveSizing后由AdaptivePoolSizer根据借用统计在上下限之间调整最大连接数。
+ * 借用、超时、建连失败等统计记录在PoolMetrics中。
+ * 配置热加载时由reconfigure应用新的大小、超时和校验配置，正在使用的连接不受影响
+ */
+public class ConcurrentConnectionPool implements IConnectionPool {
+    private static final Logger logger = LoggerFactory.getLogger(ConcurrentConnectionPool.class);
+
+    //连接存活时间的最大随机缩短比例，使同一批创建的连接分散到期
+    private static final double LIFETIME_JITTER_RATIO = 0.05;
+    //归还连接时等待交接给等待线程的最长时间（毫秒）
+    private static final long HANDOFF_TIMEOUT_MILLIS = 10;
+
+    //当前配置，热加载时整体替换
+    private volatile PoolSettings settings;
+    //最大连接数，开启自适应调整后会在运行时变化
+    private volatile int maxSize;
+    //以下配置项支持热加载，由reconfigure更新
+    private volatile int minIdle;
+    private volatile int maxIdle;
+    private volatile long idleTimeout;
+    private volatile long maxLifetime;
+    private volatile long waitTime;
+    private volatile long connectionTimeout;
+    private volatile long validationSkipWindow;
+    private volatile int validationTimeoutSeconds;
+    private volatile String validationQuery;
+    private final int statementCacheSize;
+    private final boolean adaptiveSizing;
+
+    //记录当前连接总数（包括正在创建的连接）
+    private final AtomicInteger totalCount = new AtomicInteger(0);
+    //当前空闲连接数
+    private final AtomicInteger idleCount = new AtomicInteger(0);
+    //后台正在创建的连接数
+    private final AtomicInteger pendingCount = new AtomicInteger(0);
+    //正在等待连接的线程数
+    private final AtomicInteger waiters = new AtomicInteger(0);
+    //空闲连接栈
+    private final ConcurrentLinkedDeque<PoolEntry> idlePool = new ConcurrentLinkedDeque<>();
+    //连接池中的所有条目
+    private final Set<PoolEntry> entries = ConcurrentHashMap.newKeySet();
+    //归还线程与等待线程之间的直接交接队列
+    private final SynchronousQueue<PoolEntry> handoffQueue = new SynchronousQueue<>(true);
+    //后台创建物理连接的线程池
+    private final ExecutorService connectionFiller;
+    //运行定时维护任务（泄漏检测、空闲回收等）的共享调度线程池
+    private final ScheduledExecutorService housekeeper;
+    //本连接池提交的定时任务，关闭时取消
+    private final List<ScheduledFuture<?>> scheduledTasks = new CopyOnWriteArrayList<>();
+    //连接池是否已关闭
+    private volatile boolean closed;
+    private final LeakDetector leakDetector;
+    //连接池分道，未配置时为null
+    private final PoolLanes lanes;
+    //借用统计，供自适应调整和监控使用
+    private final PoolMetrics metrics;
+    //当前借出的连接数及上次采样以来的峰值
+    private final AtomicInteger activeCount = new AtomicInteger(0);
+    private final AtomicInteger peakActive = new AtomicInteger(0);
+
+    /**
+     * 构造方法
+     * @param settings 连接池配置
+     * @param scheduler 运行定时维护任务的共享调度线程池
+     */
+    public ConcurrentConnectionPool(PoolSettings settings, ScheduledExecutorService scheduler) {
+        this.settings = settings;
+        this.maxSize = settings.getMaxSize();
+        applyReloadable(settings);
+        this.statementCacheSize = settings.getStatementCacheSize();
+        this.adaptiveSizing = settings.isAdaptiveSizing();
+        int sizeUpperBound = adaptiveSizing ? Math.max(maxSize, settings.getAdaptiveMaxSize()) : maxSize;
+        int fillerThreads = Math.max(1, Math.min(sizeUpperBound, Runtime.getRuntime().availableProcessors()));
+        this.connectionFiller = Executors.newFixedThreadPool(fillerThreads, new PoolThreadFactory("pool-filler"));
+        this.housekeeper = scheduler;
+        //开启健康检查时，持有超过timeout的连接会被报告为疑似泄漏
+        this.leakDetector = new LeakDetector(settings.getLeakThreshold(), settings.getLeakStackSampling());
+        this.metrics = new PoolMetrics(this, leakDetector);
+        this.lanes = settings.getLanes().isEmpty() ? null : new PoolLanes(settings.getLanes(), maxSize);
+        init();
+        if (adaptiveSizing) {
+            AdaptivePoolSizer sizer = new AdaptivePoolSizer(this, settings.getAdaptiveMinSize(), settings.getAdaptiveMaxSize(),
+                    settings.getAdaptiveHeadroom(), settings.getAdaptiveWaitThreshold());
+            long interval = settings.getAdaptiveInterval();
+            scheduledTasks.add(housekeeper.scheduleAtFixedRate(sizer::adjust, interval, interval, TimeUnit.MILLISECONDS));
+            logger.info("已开启连接池大小自适应调整，范围: {} - {}，采样周期: {} ms",
+                    settings.getAdaptiveMinSize(), settings.getAdaptiveMaxSize(), interval);
+        }
+    }
+
+    /**
+     * 读取支持热加载的配置项
+     * @param settings 连接池配置
+     */
+    private void applyReloadable(PoolSettings settings) {
+        this.minIdle = Math.min(settings.getMinIdle(), maxSize);
+        this.maxIdle = Math.max(settings.getMaxIdle(), minIdle);
+        this.idleTimeout = settings.getIdleTimeout();
+        this.maxLifetime = settings.getMaxLifetime();
+        this.waitTime = settings.getWaittime();
+        this.connectionTimeout = settings.getConnectionTimeout();
+        this.validationSkipWindow = settings.getValidationSkipWindow();
+        //isValid和setQueryTimeout都以秒为单位，向上取整且至少1秒
+        this.validationTimeoutSeconds = (int) Math.max(1, (settings.getValidationTimeout() + 999) / 1000);
+        this.validationQuery = settings.getValidationQuery();
+    }
+
+    /**
+     * 应用新的配置，正在使用的连接不受影响
+     * 最大连接数变化时按resize扩容或缩容（开启自适应调整时由AdaptivePoolSizer管理，不在此修改），
+     * 新的maxLifetime只对之后创建的连接生效
+     * @param newSettings 新的连接池配置
+     */
+    @Override
+    public synchronized void reconfigure(PoolSettings newSettings) {
+        if (!adaptiveSizing && newSettings.getMaxSize() != maxSize) {
+            resize(newSettings.getMaxSize());
+        }
+        applyReloadable(newSettings);
+        leakDetector.reconfigure(newSettings.getLeakThreshold(), newSettings.getLeakStackSampling());
+        this.settings = newSettings;
+        fillPool();
+    }
+
+    /**
+     * 初始化连接池，并行创建initSize个连接以缩短启动时间
+     */
+    private void init() {
+        long start = System.currentTimeMillis();
+        int initSize = Math.min(settings.getInitSize(), maxSize);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < initSize; i++) {
+            if (!tryReserveSlot()) {
+                break;
+            }
+            pendingCount.incrementAndGet();
+            futures.add(connectionFiller.submit(this::addConnection));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                logger.error("预热数据库连接失败。", e);
+            }
+        }
+        fillPool();
+        scheduledTasks.add(housekeeper.scheduleAtFixedRate(this::housekeep, settings.getDelay(), settings.getPeriod(), TimeUnit.MILLISECONDS));
+        logger.info("无锁连接池初始化完成，耗时 {} ms，初始连接数: {}，最小空闲数: {}，最大空闲数: {}，最大连接数: {}",
+                System.currentTimeMillis() - start, totalCount.get(), minIdle, maxIdle, maxSize);
+    }
+
+    /**
+     * 定时维护任务：报告疑似泄漏的连接，回收多余或过期的空闲连接，并补足minIdle
+     */
+    private void housekeep() {
+        try {
+            leakDetector.scan(inUseRecords());
+
+            long now = System.currentTimeMillis();
+            List<PoolEntry> idleEntries = entries.stream()
+                    .filter(entry -> entry.getState() == PoolEntry.STATE_IDLE)
+                    .sorted(Comparator.comparingLong(PoolEntry::getLastAccessTime))
+                    .collect(Collectors.toList());
+            int evicted = 0;
+            //从最久未使用的连接开始检查
+            for (PoolEntry entry : idleEntries) {
+                boolean expired = entry.isExpired(now);
+                boolean idleTooLong = idleTimeout > 0 && now - entry.getLastAccessTime() > idleTimeout && idleCount.get() > minIdle;
+                boolean tooManyIdle = idleCount.get() > maxIdle || totalCount.get() > maxSize;
+                if ((expired || idleTooLong || tooManyIdle) && entry.compareAndSetState(PoolEntry.STATE_IDLE, PoolEntry.STATE_REMOVED)) {
+                    idleCount.decrementAndGet();
+                    closeEntry(entry);
+                    evicted++;
+                }
+            }
+            if (evicted > 0) {
+                logger.debug("回收 {} 个空闲或到期的连接，当前连接总数: {}，空闲数: {}", evicted, totalCount.get(), idleCount.get());
+            }
+            if (statementCacheSize > 0) {
+                logger.debug("语句缓存命中: {}，未命中: {}", metrics.getStatementCacheHits(), metrics.getStatementCacheMisses());
+            }
+            fillPool();
+        } catch (RuntimeException e) {
+            logger.error("连接池定时维护任务执行失败。", e);
+        }
+    }
+
+    /**
+     * 获取数据库连接
+     * @return 获取到的连接
+     * @throws PoolExhaustedException 截止时间内没有获取到连接
+     */
+    @Override
+    public Connection getConn() {
+        if (closed) {
+            throw new IllegalStateException("连接池已关闭");
+        }
+        long start = System.currentTimeMillis();
+        long poolTimeout = connectionTimeout > 0 ? connectionTimeout : Long.MAX_VALUE;
+        long budget = RequestDeadline.remainingMillis();
+        long deadline = RequestDeadline.deadlineAfter(Math.min(poolTimeout, budget));
+        //请求预算短于connectionTimeout时，等不到连接算作预算用完而不是连接池耗尽
+        PoolExhaustedException.Reason timeoutReason = budget < poolTimeout
+                ? PoolExhaustedException.Reason.BUDGET : PoolExhaustedException.Reason.POOL;
+        PoolLanes.Ticket ticket = null;
+        try {
+            if (lanes != null) {
+                PoolLanes.Ticket acquired = lanes.acquire(deadline);
+                if (!acquired.isGranted()) {
+                    throw exhausted(start, acquired.isCapReached() ? PoolExhaustedException.Reason.LANE : timeoutReason);
+                }
+                ticket = acquired;
+            }
+            PoolEntry entry = borrow(deadline);
+            if (entry == null) {
+                throw exhausted(start, timeoutReason);
+            }
+            metrics.recordBorrow(System.currentTimeMillis() - start);
+            int active = activeCount.incrementAndGet();
+            peakActive.accumulateAndGet(active, Math::max);
+            return lend(entry, ticket);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (ticket != null) {
+                ticket.release();
+            }
+            throw new RuntimeException("等待数据库连接时线程被中断", e);
+        } catch (RuntimeException e) {
+            if (ticket != null) {
+                ticket.release();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 生成连接池耗尽异常并记录日志
+     * @param start 开始获取连接的时间
+     * @param reason 没有获取到连接的原因
+     * @return 连接池耗尽异常
+     */
+    private PoolExhaustedException exhausted(long start, PoolExhaustedException.Reason reason) {
+        metrics.recordTimeout();
+        long waited = System.currentTimeMillis() - start;
+        String message = String.format("等待 %d ms 仍未获取到数据库连接，分道: %s，连接总数: %d，空闲数: %d，等待数: %d",
+                waited, PoolLanes.current(), totalCount.get(), idleCount.get(), waiters.get());
+        logger.warn(message);
+        return new PoolExhaustedException(message, waited, reason);
+    }
+
+    /**
+     * 占有一个连接条目，没有空闲连接时等待后台补充或其他线程归还
+     * @param deadline 截止时刻，见RequestDeadline.deadlineAfter
+     * @return 已占有的条目，截止时刻前没有获取到时返回null
+     * @throws InterruptedException 等待时线程被中断
+     */
+    private PoolEntry borrow(long deadline) throws InterruptedException {
+        PoolEntry entry = pollIdle();
+        if (entry != null) {
+            if (idleCount.get() < minIdle) {
+                fillPool();
+            }
+            return entry;
+        }
+
+        //没有空闲连接，登记为等待者，由后台线程补充连接后直接交接
+        waiters.incrementAndGet();
+        try {
+            while (true) {
+                fillPool();
+                entry = pollIdle();
+                if (entry != null) {
+                    return entry;
+                }
+                long remaining = RequestDeadline.remainingUntil(deadline);
+                if (remaining <= 0) {
+                    return null;
+                }
+                entry = handoffQueue.poll(Math.min(waitTime, remaining), TimeUnit.MILLISECONDS);
+                if (entry != null && claim(entry)) {
+                    return entry;
+                }
+            }
+        } finally {
+            waiters.decrementAndGet();
+        }
+    }
+
+    /**
+     * 释放数据库连接，等价于调用连接代理的close()
+     * @param connection 待释放连接
+     */
+    @Override
+    public void releaseConn(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        ProxyConnection proxyConnection = ProxyConnection.unwrap(connection);
+        if (proxyConnection == null || proxyConnection.getPool() != this) {
+            //不是本连接池借出的连接，直接关闭
+            logger.warn("归还的连接不属于当前连接池，直接关闭。");
+            closeQuietly(connection);
+            return;
+        }
+        proxyConnection.close();
+    }
+
+    /**
+     * 导出当前所有借用者及其持有时长
+     * @return 借用者信息列表
+     */
+    @Override
+    public List<Map<String, Object>> dumpBorrowers() {
+        return leakDetector.dump(inUseRecords());
+    }
+
+    @Override
+    public PoolMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public Map<String, Integer> getLaneUsage() {
+        return lanes == null ? Collections.emptyMap() : lanes.usage();
+    }
+
+    /**
+     * 为已占有的条目记录借用信息并生成连接代理
+     * @param entry 已占有的条目
+     * @param ticket 本次借用占用的分道名额，未配置分道时为null
+     * @return 连接代理
+     */
+    private Connection lend(PoolEntry entry, PoolLanes.Ticket ticket) {
+        entry.setBorrowRecord(leakDetector.track(entry.getConnection()));
+        return ProxyConnection.create(this, entry, ticket);
+    }
+
+    /**
+     * 连接代理关闭时回收其条目，物理连接不可用则移除
+     * @param entry 处于借出状态的条目
+     */
+    void recycle(PoolEntry entry) {
+        ConnectionEntity record = entry.getBorrowRecord();
+        leakDetector.returned(record);
+        entry.setBorrowRecord(null);
+        activeCount.decrementAndGet();
+        if (record != null) {
+            metrics.recordRelease(System.currentTimeMillis() - record.getUseStartTime());
+        }
+        //缩容后超出最大连接数的部分在归还时关闭
+        if (!closed && totalCount.get() <= maxSize && !entry.isExpired(System.currentTimeMillis()) && isAvailable(entry.getConnection())) {
+            requite(entry);
+        } else {
+            discard(entry);
+        }
+    }
+
+    /**
+     * 把借出状态的条目放回空闲栈，有等待者时直接交接
+     * @param entry 处于借出状态的条目
+     */
+    private void requite(PoolEntry entry) {
+        entry.touch();
+        idleCount.incrementAndGet();
+        entry.setState(PoolEntry.STATE_IDLE);
+        idlePool.offerFirst(entry);
+        //有线程在等待时，尝试把连接直接交给等待者，最多等待HANDOFF_TIMEOUT_MILLIS；
+        //交接失败时连接仍在空闲栈中，等待者下一轮会从空闲栈取走
+        if (waiters.get() > 0 && entry.getState() == PoolEntry.STATE_IDLE) {
+            try {
+                handoffQueue.offer(entry, HANDOFF_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 从空闲栈中取出一个可用连接
+     * 交接过的条目可能在栈中留有过期节点，CAS失败时直接丢弃该节点
+     * @return 取到的连接条目，没有空闲连接时返回null
+     */
+    private PoolEntry pollIdle() {
+        PoolEntry entry;
+        while ((entry = idlePool.pollFirst()) != null) {
+            if (claim(entry)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 尝试把空闲条目标记为借出，并检查其物理连接是否可用
+     * 空闲时间超过校验跳过窗口的连接需要额外校验
+     * @param entry 空闲条目
+     * @return 是否成功占有该条目
+     */
+    private boolean claim(PoolEntry entry) {
+        if (!entry.compareAndSetState(PoolEntry.STATE_IDLE, PoolEntry.STATE_IN_USE)) {
+            return false;
+        }
+        idleCount.decrementAndGet();
+        long now = System.currentTimeMillis();
+        if (!entry.isExpired(now) && isAvailable(entry.getConnection())
+                && (now - entry.getLastAccessTime() <= validationSkipWindow || validate(entry.getConnection()))) {
+            entry.touch();
+            return true;
+        }
+        discard(entry);
+        return false;
+    }
+
+    /**
+     * 校验连接是否仍然可用
+     * 未配置校验SQL时使用Connection.isValid，MySQL驱动会发送一次ping而不是执行查询
+     * @param connection 物理连接
+     * @return 是否可用
+     */
+    private boolean validate(Connection connection) {
+        try {
+            if (validationQuery.isEmpty()) {
+                return connection.isValid(validationTimeoutSeconds);
+            }
+            try (Statement statement = connection.createStatement()) {
+                statement.setQueryTimeout(validationTimeoutSeconds);
+                statement.execute(validationQuery);
+                return true;
+            }
+        } catch (SQLException e) {
+            logger.warn("连接校验失败，丢弃该连接。", e);
+            return false;
+        }
+    }
+
+    /**
+     * 按空闲目标和等待者数量提交后台建连任务
+     * 名额在提交前预占，保证连接总数不超过maxSize
+     */
+    private void fillPool() {
+        if (closed) {
+            return;
+        }
+        int shortage = Math.max(minIdle - idleCount.get(), waiters.get()) - pendingCount.get();
+        for (int i = 0; i < shortage; i++) {
+            if (!tryReserveSlot()) {
+                return;
+            }
+            pendingCount.incrementAndGet();
+            connectionFiller.execute(this::addConnection);
+        }
+    }
+
+    /**
+     * 后台建连任务，创建完成后按归还流程放入连接池或直接交给等待者
+     */
+    private void addConnection() {
+        try {
+            requite(createEntry());
+        } catch (RuntimeException e) {
+            metrics.recordCreationFailure();
+            logger.error("后台创建数据库连接失败，当前连接总数: {}", totalCount.get(), e);
+        } finally {
+            pendingCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * 在不超过最大连接数的前提下预占一个连接名额
+     * @return 是否预占成功
+     */
+    private boolean tryReserveSlot() {
+        int count;
+        do {
+            count = totalCount.get();
+            if (count >= maxSize) {
+                return false;
+            }
+        } while (!totalCount.compareAndSet(count, count + 1));
+        return true;
+    }
+
+    /**
+     * 创建新的物理连接，调用前必须已预占名额
+     * @return 处于借出状态的新条目
+     */
+    private PoolEntry createEntry() {
+        try {
+            PoolSettings settings = this.settings;
+            Class.forName(settings.getDriver());
+            Connection connection = DriverManager.getConnection(settings.getUrl(), settings.getUsername(), settings.getPassword());
+            PoolEntry entry = new PoolEntry(connection, jitteredLifetime());
+            if (statementCacheSize > 0) {
+                entry.setStatementCache(new StatementCache(statementCacheSize, metrics.statementCacheHitCounter(), metrics.statementCacheMissCounter()));
+            }
+            entries.add(entry);
+            logger.debug("创建新的数据库连接，当前连接总数: {}", totalCount.get());
+            return entry;
+        } catch (ClassNotFoundException | SQLException e) {
+            totalCount.decrementAndGet();
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 计算新连接的存活时间，在maxLifetime基础上随机缩短一部分
+     * @return 存活时间（毫秒），0表示不限制
+     */
+    private long jitteredLifetime() {
+        if (maxLifetime <= 0) {
+            return 0;
+        }
+        long jitter = (long) (maxLifetime * LIFETIME_JITTER_RATIO);
+        return jitter > 0 ? maxLifetime - ThreadLocalRandom.current().nextLong(jitter) : maxLifetime;
+    }
+
+    /**
+     * 从连接池中移除并关闭借出状态的连接，必要时补充新连接
+     * @param entry 待移除的条目
+     */
+    private void discard(PoolEntry entry) {
+        entry.setState(PoolEntry.STATE_REMOVED);
+        closeEntry(entry);
+        fillPool();
+    }
+
+    /**
+     * 从条目集合中移除并关闭物理连接，调用前条目必须已是移除状态
+     * @param entry 待关闭的条目
+     */
+    private void closeEntry(PoolEntry entry) {
+        if (entries.remove(entry)) {
+            totalCount.decrementAndGet();
+        }
+        if (entry.getStatementCache() != null) {
+            entry.getStatementCache().closeAll();
+        }
+        closeQuietly(entry.getConnection());
+    }
+
+    /**
+     * 关闭连接池
+     * 先取消定时任务并关闭空闲连接，再等待借出的连接归还（归还时直接关闭），超时后强制关闭仍在使用的连接
+     * @param timeoutMillis 等待借出的连接归还的最长时间（毫秒）
+     */
+    @Override
+    public void close(long timeoutMillis) {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        long start = System.currentTimeMillis();
+        scheduledTasks.forEach(task -> task.cancel(false));
+        connectionFiller.shutdown();
+        try {
+            //等待正在创建的连接完成，避免创建完成后没有被关闭
+            connectionFiller.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+            closeIdle();
+            while (activeCount.get() > 0 && System.currentTimeMillis() - start < timeoutMillis) {
+                Thread.sleep(Math.min(waitTime, 50));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closeIdle();
+        int forced = 0;
+        for (PoolEntry entry : entries) {
+            if (entry.compareAndSetState(PoolEntry.STATE_IN_USE, PoolEntry.STATE_REMOVED)) {
+                forced++;
+            }
+            closeEntry(entry);
+        }
+        if (forced > 0) {
+            logger.warn("关闭连接池时仍有 {} 个连接未归还，已强制关闭。", forced);
+        }
+        logger.info("无锁连接池已关闭，耗时 {} ms", System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 关闭所有空闲连接
+     */
+    private void closeIdle() {
+        for (PoolEntry entry : entries) {
+            if (entry.compareAndSetState(PoolEntry.STATE_IDLE, PoolEntry.STATE_REMOVED)) {
+                idleCount.decrementAndGet();
+                closeEntry(entry);
+            }
+        }
+        idlePool.clear();
+    }
+
+    /**
+     * 调整最大连接数，扩容时立即为等待者补充连接，缩容时多余的连接在空闲或归还时关闭
+     * @param newMaxSize 新的最大连接数
+     * @return 实际生效的最大连接数（不小于1，也不小于分道保留名额之和）
+     */
+    public int resize(int newMaxSize) {
+        int applied = Math.max(1, newMaxSize);
+        if (lanes != null) {
+            applied = Math.max(applied, lanes.getReservedTotal());
+            lanes.resize(applied);
+        }
+        maxSize = applied;
+        fillPool();
+        return applied;
+    }
+
+    @Override
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    @Override
+    public int getTotalCount() {
+        return totalCount.get();
+    }
+
+    @Override
+    public int getIdleCount() {
+        return idleCount.get();
+    }
+
+    @Override
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+    @Override
+    public int getWaiterCount() {
+        return waiters.get();
+    }
+
+    /**
+     * 获取上次调用以来借出连接数的峰值，并重新开始统计
+     * @return 峰值借出数
+     */
+    public int resetPeakActive() {
+        return peakActive.getAndSet(activeCount.get());
+    }
+
+    /**
+     * 获取累计成功借用次数
+     * @return 借用次数
+     */
+    public long getBorrowCount() {
+        return metrics.getBorrowCount();
+    }
+
+    /**
+     * 获取累计借用等待时间
+     * @return 等待时间（毫秒）
+     */
+    public long getTotalWaitMillis() {
+        return metrics.getTotalWaitMillis();
+    }
+
+    /**
+     * 获取累计连接持有时间
+     * @return 持有时间（毫秒）
+     */
+    public long getTotalHoldMillis() {
+        return metrics.getTotalHoldMillis();
+    }
+
+    /**
+     * 获取累计获取连接超时次数
+     * @return 超时次数
+     */
+    public long getTimeoutCount() {
+        return metrics.getTimeoutCount();
+    }
+
+    /**
+     * 获取所有正在使用的连接的借用记录
+     * @return 借用记录列表
+     */
+    private List<ConnectionEntity> inUseRecords() {
+        return entries.stream()
+                .map(PoolEntry::getBorrowRecord)
+                .filter(record -> record != null)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 检查连接是否可用
+     * @param connection 连接
+     * @return 是否可用
+     */
+    private boolean isAvailable(Connection connection) {
+        try {
+            return connection != null && !connection.isClosed();
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.debug("关闭数据库连接时发生异常。", e);
+        }
+    }
+}
@@ -1,21 +1,52 @@
 package io.github.gongding.pool;
 
 import io.github.gongding.entity.ConnectionEntity;
-import io.github.gongding.pool.config.DataSourceConfig;
+import io.github.gongding.pool.config.PoolSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * 基于锁的连接池实现
+ * 借用、归还和关闭都在同一把ReentrantLock下进行，连接耗尽时借用者在Condition上等待，归还连接或调整配置时唤醒。
+ * 使用ReentrantLock而不是synchronized和Object.wait，在虚拟线程上等待连接时只挂起虚拟线程，不会占住（pin）载体线程
+ */
 public class ConnectionPool implements IConnectionPool {
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionPool.class);
+
     //记录当前连接总数，使用AtomicInteger保证原子性
     AtomicInteger connectionCount = new AtomicInteger(0);
 
-    private DataSourceConfig dataSourceConfig;
+    //当前配置，热加载时整体替换
+    private volatile PoolSettings settings;
+    private LeakDetector leakDetector;
+    //运行健康检查的共享调度线程池
+    private final ScheduledExecutorService scheduler;
+    //健康检查任务，未开启健康检查时为null
+    private ScheduledFuture<?> healthTask;
+    //连接池是否已关闭
+    private volatile boolean closed;
+    private PoolMetrics metrics;
+    //正在等待连接的线程数
+    private final AtomicInteger waiters = new AtomicInteger(0);
+    //保护空闲和使用中连接的锁
+    private final ReentrantLock lock = new ReentrantLock();
+    //连接归还、配置变更或连接池关闭时发出信号
+    private final Condition changed = lock.newCondition();
 
     //空闲连接池
     Vector<Connection> freePools = new Vector<Connection>();
@@ -24,10 +55,14 @@ public class ConnectionPool implements IConnectionPool {
 
     /**
      * 构造方法
-     * @param dataSourceConfig 数据源配置
+     * @param settings 连接池配置
+     * @param scheduler 运行健康检查的共享调度线程池
      */
-    public ConnectionPool(DataSourceConfig dataSourceConfig) {
-        this.dataSourceConfig = dataSourceConfig;
+    public ConnectionPool(PoolSettings settings, ScheduledExecutorService scheduler) {
+        this.settings = settings;
+        this.scheduler = scheduler;
+        this.leakDetector = new LeakDetector(settings.getLeakThreshold(), settings.getLeakStackSampling());
+        this.metrics = new PoolMetrics(this, leakDetector);
         init();
     }
 
@@ -35,12 +70,12 @@ public class ConnectionPool implements IConnectionPool {
      * 初始化连接池
      */
     private void init() {
-        for (int i = 0; i < Integer.valueOf(dataSourceConfig.getInitSize()); i++) {
+        for (int i = 0; i < settings.getInitSize(); i++) {
             Connection connection = createConnection();
             freePools.add(connection);
         }
         // 如果配置开启健康检查，则启动健康检查任务
-        if (Boolean.valueOf(dataSourceConfig.getHealth()) == true) {
+        if (settings.isHealth()) {
             checkConnectionTimeOut();
         }
     }
@@ -49,50 +84,74 @@ public class ConnectionPool implements IConnectionPool {
      * 启动连接超时检查任务
      */
     private void checkConnectionTimeOut() {
-        Worker worker = new Worker();
-        new Timer().schedule(worker, Integer.valueOf(dataSourceConfig.getDelay()), Integer.valueOf(dataSourceConfig.getPeriod()));
+        lock.lock();
+        try {
+            if (healthTask != null || closed) {
+                return;
+            }
+            healthTask = scheduler.scheduleAtFixedRate(new Worker(), settings.getDelay(), settings.getPeriod(), TimeUnit.MILLISECONDS);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 应用新的配置，正在使用的连接不受影响
+     * 关闭健康检查后定时任务仍在运行，但泄漏阈值为0时不做任何检查
+     * @param newSettings 新的连接池配置
+     */
+    @Override
+    public void reconfigure(PoolSettings newSettings) {
+        leakDetector.reconfigure(newSettings.getLeakThreshold(), newSettings.getLeakStackSampling());
+        this.settings = newSettings;
+        if (newSettings.isHealth()) {
+            checkConnectionTimeOut();
+        }
+        //最大连接数变大时唤醒等待的线程
+        lock.lock();
+        try {
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
      * 健康检查的定时任务
+     * 只报告持有时间超过timeout的连接及其借用位置，不再强制关闭正在使用的连接
      */
-    class Worker extends TimerTask {
+    class Worker implements Runnable {
+        @Override
         public void run() {
-            try {
-                for (int i = 0; i < usePools.size(); i++) {
-                    ConnectionEntity connectionEntity = usePools.get(i);
-                    //检查连接是否超时（当前时间-使用开始时间>超时时间）
-                    if ((System.currentTimeMillis() - connectionEntity.getUseStartTime()) > Long.valueOf(dataSourceConfig.getTimeout())) {
-                        Connection connection = connectionEntity.getConnection();
-                        if (isAvailable(connection)) {
-                            //关闭超时且可用的连接
-                            connection.close();
-                            usePools.remove(i);
-                            connectionCount.decrementAndGet();
-                        }
-                    }
-                }
-            } catch (SQLException e) {
-                e.printStackTrace();
-            } finally {
-            }
+            //在快照上扫描，避免遍历时其他线程修改usePools
+            leakDetector.scan(new ArrayList<>(usePools));
         }
     }
 
     /**
-     * 创建新的数据库连接
+     * 导出当前所有借用者及其持有时长
+     * @return 借用者信息列表
+     */
+    public List<Map<String, Object>> dumpBorrowers() {
+        return leakDetector.dump(new ArrayList<>(usePools));
+    }
+
+    /**
+     * 创建新的数据库连接，只在初始化时或持有lock时调用
      * @return 创建的连接
      */
-    private synchronized Connection createConnection() {
+    private Connection createConnection() {
         Connection connection = null;
         try {
-            Class.forName(dataSourceConfig.getDriver());
-            connection = DriverManager.getConnection(dataSourceConfig.getUrl(), dataSourceConfig.getUsername(), dataSourceConfig.getPassword());
+            PoolSettings settings = this.settings;
+            Class.forName(settings.getDriver());
+            connection = DriverManager.getConnection(settings.getUrl(), settings.getUsername(), settings.getPassword());
             //连接总数加一
             connectionCount.incrementAndGet();
         } catch (ClassNotFoundException e) {
             throw new RuntimeException(e);
         } catch (SQLException e) {
+            metrics.recordCreationFailure();
             throw new RuntimeException(e);
         }
         return connection;
@@ -117,13 +176,34 @@ public class ConnectionPool implements IConnectionPool {
 
     /**
      * 获取数据库连接
+     * 最多等待connectionTimeout和当前请求剩余预算中较短的时间
      * @return 获取到的连接
+     * @throws PoolExhaustedException 截止时间内没有获取到连接
      */
-    public synchronized Connection getConn() {
+    public Connection getConn() {
+        if (closed) {
+            throw new IllegalStateException("连接池已关闭");
+        }
         Connection connection = null;
+        long start = System.currentTimeMillis();
+        PoolSettings settings = this.settings;
+        long connectionTimeout = settings.getConnectionTimeout();
+        long poolTimeout = connectionTimeout > 0 ? connectionTimeout : Long.MAX_VALUE;
+        long budget = RequestDeadline.remainingMillis();
+        long deadline = RequestDeadline.deadlineAfter(Math.min(poolTimeout, budget));
+        //可中断地获取锁，请求线程被中断时不会一直排在锁上
+        try {
+            lock.lockInterruptibly();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("等待数据库连接时线程被中断", e);
+        }
         try {
-            //循环直到获取到可用连接
+            //循环直到获取到可用连接或超过截止时间
             while (connection == null) {
+                if (closed) {
+                    throw new IllegalStateException("连接池已关闭");
+                }
                 if (!freePools.isEmpty()) {
                     //从空闲连接池中移除第一个连接
                     connection = freePools.remove(0);
@@ -132,24 +212,40 @@ public class ConnectionPool implements IConnectionPool {
                         connectionCount.decrementAndGet();
                         connection = null;
                     } else {
-                        //如果可用，添加到正在使用的连接池，并记录使用开始时间
-                        usePools.add(new ConnectionEntity(connection, System.currentTimeMillis()));
+                        //如果可用，添加到正在使用的连接池，并记录使用开始时间和借用位置
+                        usePools.add(leakDetector.track(connection));
                     }
                 } else {
                     //检查当前连接总数是否小于最大连接数
-                    if (connectionCount.get() < Integer.valueOf(dataSourceConfig.getMaxSize())) {
+                    if (connectionCount.get() < this.settings.getMaxSize()) {
                         connection = createConnection();
-                        usePools.add(new ConnectionEntity(connection, System.currentTimeMillis()));
+                        usePools.add(leakDetector.track(connection));
                     } else {
-                        //如果达到最大连接数，等待一段时间（由waittime配置）
-                        this.wait(Integer.valueOf(dataSourceConfig.getWaittime()));
-                        //等待后继续尝试，避免无限循环
+                        long remaining = RequestDeadline.remainingUntil(deadline);
+                        if (remaining <= 0) {
+                            long waited = System.currentTimeMillis() - start;
+                            metrics.recordTimeout();
+                            throw new PoolExhaustedException(String.format("等待 %d ms 仍未获取到数据库连接，连接总数: %d",
+                                    waited, connectionCount.get()), waited, budget < poolTimeout
+                                    ? PoolExhaustedException.Reason.BUDGET : PoolExhaustedException.Reason.POOL);
+                        }
+                        //如果达到最大连接数，等待一段时间（由waittime配置，不超过剩余时间）
+                        waiters.incrementAndGet();
+                        try {
+                            changed.await(Math.min(settings.getWaittime(), remaining), TimeUnit.MILLISECONDS);
+                        } finally {
+                            waiters.decrementAndGet();
+                        }
                     }
                 }
             }
-        } catch (Exception e) {
-            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("等待数据库连接时线程被中断", e);
+        } finally {
+            lock.unlock();
         }
+        metrics.recordBorrow(System.currentTimeMillis() - start);
         return connection;
     }
 
@@ -157,16 +253,122 @@ public class ConnectionPool implements IConnectionPool {
      * 释放数据库连接
      * @param connection 待释放连接
      */
-    public synchronized void releaseConn(Connection connection) {
-        if (isAvailable(connection)) {
-            //如果可用，添加到空闲连接池
-            freePools.add(connection);
-        } else {
-            connectionCount.decrementAndGet();
+    public void releaseConn(Connection connection) {
+        lock.lock();
+        try {
+            if (closed) {
+                //连接池已关闭，归还的连接直接关闭
+                closeQuietly(connection);
+                connectionCount.decrementAndGet();
+            } else if (isAvailable(connection)) {
+                //如果可用，添加到空闲连接池
+                freePools.add(connection);
+            } else {
+                connectionCount.decrementAndGet();
+            }
+            //从正在使用的连接池中移除对应的连接
+            usePools.removeIf(entity -> {
+                if (entity.getConnection() == connection) {
+                    leakDetector.returned(entity);
+                    metrics.recordRelease(System.currentTimeMillis() - entity.getUseStartTime());
+                    return true;
+                }
+                return false;
+            });
+            //唤醒所有等待获取连接的线程
+            changed.signalAll();
+        } finally {
+            lock.unlock();
         }
-        //从正在使用的连接池中移除对应的连接
-        usePools.removeIf(entity -> entity.getConnection() == connection);
-        //唤醒所有等待获取连接的线程
-        this.notifyAll();
+    }
+
+    /**
+     * 关闭连接池
+     * 先取消健康检查并关闭空闲连接，再等待借出的连接归还（归还时直接关闭），超时后强制关闭仍在使用的连接
+     * @param timeoutMillis 等待借出的连接归还的最长时间（毫秒）
+     */
+    @Override
+    public void close(long timeoutMillis) {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            long start = System.currentTimeMillis();
+            if (healthTask != null) {
+                healthTask.cancel(false);
+            }
+            for (Connection connection : freePools) {
+                closeQuietly(connection);
+                connectionCount.decrementAndGet();
+            }
+            freePools.clear();
+            try {
+                long remaining;
+                while (!usePools.isEmpty() && (remaining = timeoutMillis - (System.currentTimeMillis() - start)) > 0) {
+                    //releaseConn会发出信号
+                    changed.await(remaining, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (!usePools.isEmpty()) {
+                logger.warn("关闭连接池时仍有 {} 个连接未归还，已强制关闭。", usePools.size());
+                for (ConnectionEntity entity : usePools) {
+                    closeQuietly(entity.getConnection());
+                    connectionCount.decrementAndGet();
+                }
+                usePools.clear();
+            }
+            //唤醒仍在等待连接的线程，使其尽快结束
+            changed.signalAll();
+            logger.info("连接池已关闭，耗时 {} ms", System.currentTimeMillis() - start);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.debug("关闭数据库连接时发生异常。", e);
+        }
+    }
+
+    @Override
+    public PoolMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public int getMaxSize() {
+        return settings.getMaxSize();
+    }
+
+    @Override
+    public int getTotalCount() {
+        return connectionCount.get();
+    }
+
+    @Override
+    public int getIdleCount() {
+        return freePools.size();
+    }
+
+    @Override
+    public int getActiveCount() {
+        return usePools.size();
+    }
+
+    @Override
+    public int getWaiterCount() {
+        return waiters.get();
+    }
+
+    @Override
+    public Map<String, Integer> getLaneUsage() {
+        return Collections.emptyMap();
     }
 }
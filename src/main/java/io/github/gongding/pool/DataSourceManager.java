@@ -1,18 +1,430 @@
 package io.github.gongding.pool;
 
 import io.github.gongding.pool.config.DataSourceConfig;
+import io.github.gongding.pool.config.PoolSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * 数据源管理
+ * 主库连接池由jdbc.xxx配置；jdbc.pools中列出的具名连接池（如replica、analytics）使用 名称.xxx 配置，
+ * 未单独配置的项沿用主库的值。只读查询可以通过getReadConn()路由到jdbc.readPools中的连接池，
+ * 同一会话写入主库后的readYourWritesWindow内读请求仍走主库。
+ * 所有连接池的监控指标以MBean形式注册，名称为 io.github.gongding.pool:type=ConnectionPool,name=连接池名称。
+ * 配置了reloadInterval时定期检查配置文件，修改后重新加载并应用到各个连接池，无需重启应用。
+ * 每个连接池前有一个CircuitBreaker，数据库连续不可用时快速失败，不让请求线程堆积在获取连接上。
+ * 所有连接池的定时任务运行在同一个调度线程池上，应用关闭时由shutdown()统一停止
+ */
 public class DataSourceManager {
-    static DataSourceConfig dataSourceConfig = new DataSourceConfig();
-    static ConnectionPool connectionPool = new ConnectionPool(dataSourceConfig);
+    private static final Logger logger = LoggerFactory.getLogger(DataSourceManager.class);
+    //主库连接池名称
+    public static final String PRIMARY = "primary";
 
+    //各连接池当前使用的配置，按名称索引
+    private static final Map<String, PoolSettings> poolSettings = new ConcurrentHashMap<>();
+    //所有连接池共享的调度线程池，运行健康检查、空闲回收、自适应调整和配置检查
+    private static final ScheduledExecutorService scheduler =
+            Executors.newScheduledThreadPool(2, new PoolThreadFactory("pool-scheduler"));
+    //主库配置，热加载时整体替换
+    static volatile PoolSettings settings = loadSettings(PRIMARY);
+    static IConnectionPool connectionPool = createConnectionPool(settings);
+    //所有连接池，按名称索引
+    static Map<String, IConnectionPool> pools = createPools();
+    //承担只读查询的连接池
+    static List<IConnectionPool> readPools = resolveReadPools();
+    //各连接池的熔断器
+    private static final Map<IConnectionPool, CircuitBreaker> breakers = createBreakers();
+    //只读连接池的轮询位置
+    private static final AtomicInteger readCursor = new AtomicInteger(0);
+    //配置文件检查任务，未开启热加载时为null
+    private static ScheduledFuture<?> configWatcher;
+    private static long configLastModified;
+
+    static {
+        //每个连接池的监控指标注册为MBean，可通过JConsole等工具查看
+        pools.forEach((name, pool) -> pool.getMetrics().register(name));
+        startConfigWatcher(settings.getReloadInterval());
+    }
+
+    /**
+     * 加载并校验连接池的配置
+     * @param name 连接池名称
+     * @return 连接池配置
+     * @throws IllegalArgumentException 配置不合法
+     */
+    private static PoolSettings loadSettings(String name) {
+        DataSourceConfig config = PRIMARY.equals(name) ? new DataSourceConfig() : new DataSourceConfig(name);
+        PoolSettings loaded = PoolSettings.from(config);
+        poolSettings.put(name, loaded);
+        return loaded;
+    }
+
+    /**
+     * 根据配置中的poolType选择连接池实现
+     * @param settings 主库配置
+     * @return 连接池实例
+     */
+    private static IConnectionPool createConnectionPool(PoolSettings settings) {
+        if ("concurrent".equals(settings.getPoolType())) {
+            return new ConcurrentConnectionPool(settings, scheduler);
+        }
+        if (!settings.getLanes().isEmpty()) {
+            logger.warn("legacy连接池不支持分道，lanes配置将被忽略。");
+        }
+        return new ConnectionPool(settings, scheduler);
+    }
+
+    /**
+     * 创建jdbc.pools中列出的具名连接池
+     * 具名连接池总是使用无锁连接池，归还连接时可以通过连接代理找到所属连接池
+     * @return 名称到连接池的映射，包含主库
+     */
+    private static Map<String, IConnectionPool> createPools() {
+        Map<String, IConnectionPool> pools = new LinkedHashMap<>();
+        pools.put(PRIMARY, connectionPool);
+        for (String name : settings.getPools()) {
+            if (pools.containsKey(name)) {
+                continue;
+            }
+            try {
+                pools.put(name, new ConcurrentConnectionPool(loadSettings(name), scheduler));
+                logger.info("具名连接池 {} 创建成功。", name);
+            } catch (RuntimeException e) {
+                logger.error("创建具名连接池 {} 失败，使用该连接池的请求将改走主库。", name, e);
+            }
+        }
+        return Collections.unmodifiableMap(pools);
+    }
+
+    /**
+     * 为每个连接池创建熔断器
+     * @return 连接池到熔断器的映射
+     */
+    private static Map<IConnectionPool, CircuitBreaker> createBreakers() {
+        Map<IConnectionPool, CircuitBreaker> breakers = new IdentityHashMap<>();
+        pools.forEach((name, pool) -> breakers.put(pool, new CircuitBreaker(name, poolSettings.get(name))));
+        return Collections.unmodifiableMap(breakers);
+    }
+
+    /**
+     * 解析jdbc.readPools中的只读连接池
+     * @return 只读连接池列表，为空时读请求走主库
+     */
+    private static List<IConnectionPool> resolveReadPools() {
+        List<IConnectionPool> readPools = new ArrayList<>();
+        for (String name : settings.getReadPools()) {
+            IConnectionPool pool = pools.get(name);
+            if (pool == null) {
+                logger.warn("只读连接池 {} 未在jdbc.pools中配置或创建失败，已忽略。", name);
+            } else {
+                readPools.add(pool);
+            }
+        }
+        return Collections.unmodifiableList(readPools);
+    }
+
+    /**
+     * 获取主库当前的配置
+     * @return 主库配置
+     */
+    public static PoolSettings getSettings() {
+        return settings;
+    }
+
+    /**
+     * 定期检查配置文件的修改时间，修改后重新加载
+     * @param interval 检查间隔（毫秒），0表示不检查
+     */
+    private static void startConfigWatcher(long interval) {
+        configLastModified = DataSourceConfig.lastModified();
+        if (interval <= 0) {
+            return;
+        }
+        if (configLastModified == 0) {
+            logger.warn("配置文件不在文件系统上，无法检查修改，配置热加载未开启。");
+            return;
+        }
+        configWatcher = scheduler.scheduleWithFixedDelay(() -> {
+            long lastModified = DataSourceConfig.lastModified();
+            if (lastModified != configLastModified) {
+                configLastModified = lastModified;
+                logger.info("检测到配置文件被修改，重新加载连接池配置。");
+                reload();
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+        logger.info("已开启连接池配置热加载，检查间隔: {} ms", interval);
+    }
+
+    /**
+     * 重新加载所有连接池的配置，并应用到正在运行的连接池
+     * 新配置存在不合法的项时保留原配置；只能在重启后生效的配置项会输出告警
+     * @return 是否应用了新配置
+     */
+    public static synchronized boolean reload() {
+        Map<String, PoolSettings> loaded = new LinkedHashMap<>();
+        try {
+            for (String name : pools.keySet()) {
+                DataSourceConfig config = PRIMARY.equals(name) ? new DataSourceConfig() : new DataSourceConfig(name);
+                loaded.put(name, PoolSettings.from(config));
+            }
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            logger.error("重新加载连接池配置失败，继续使用原配置。", e);
+            return false;
+        }
+        loaded.forEach((name, next) -> {
+            Set<String> changed = poolSettings.get(name).changedKeys(next);
+            if (changed.isEmpty()) {
+                return;
+            }
+            Set<String> needRestart = new LinkedHashSet<>(changed);
+            needRestart.removeAll(PoolSettings.RELOADABLE);
+            if (!needRestart.isEmpty()) {
+                logger.warn("连接池 {} 的配置项 {} 需要重启应用才能生效。", name, needRestart);
+            }
+            IConnectionPool pool = pools.get(name);
+            pool.reconfigure(next);
+            breakers.get(pool).reconfigure(next);
+            poolSettings.put(name, next);
+            logger.info("连接池 {} 已应用新配置，修改的配置项: {}", name, changed);
+        });
+        settings = loaded.get(PRIMARY);
+        return true;
+    }
+
+    /**
+     * 启动数据源，由应用启动时的监听器调用
+     * 连接池在类加载时创建，这里从每个连接池借用一次连接，确认数据库可用并让第一个请求不必等待建连
+     */
+    public static void start() {
+        pools.forEach((name, pool) -> {
+            long start = System.currentTimeMillis();
+            try {
+                pool.releaseConn(pool.getConn());
+                logger.info("连接池 {} 预热完成，耗时 {} ms，连接总数: {}", name, System.currentTimeMillis() - start, pool.getTotalCount());
+            } catch (RuntimeException e) {
+                logger.error("连接池 {} 预热失败，请检查数据库是否可用。", name, e);
+            }
+        });
+    }
+
+    /**
+     * 关闭数据源，由应用关闭时的监听器调用
+     * 停止配置检查，按shutdownTimeout等待借出的连接归还后关闭所有连接池，注销MBean，
+     * 最后停止调度线程池并注销本应用加载的JDBC驱动，避免重新部署时线程和连接泄漏
+     */
+    public static synchronized void shutdown() {
+        if (scheduler.isShutdown()) {
+            return;
+        }
+        if (configWatcher != null) {
+            configWatcher.cancel(false);
+        }
+        long timeout = settings.getShutdownTimeout();
+        pools.forEach((name, pool) -> {
+            long start = System.currentTimeMillis();
+            pool.close(timeout);
+            pool.getMetrics().unregister();
+            logger.info("连接池 {} 已关闭，耗时 {} ms", name, System.currentTimeMillis() - start);
+        });
+        scheduler.shutdownNow();
+        deregisterDrivers();
+    }
+
+    /**
+     * 注销由本应用类加载器加载的JDBC驱动，并停止MySQL驱动的连接清理线程
+     */
+    private static void deregisterDrivers() {
+        ClassLoader classLoader = DataSourceManager.class.getClassLoader();
+        Enumeration<Driver> drivers = DriverManager.getDrivers();
+        while (drivers.hasMoreElements()) {
+            Driver driver = drivers.nextElement();
+            if (driver.getClass().getClassLoader() != classLoader) {
+                continue;
+            }
+            try {
+                DriverManager.deregisterDriver(driver);
+                logger.debug("已注销JDBC驱动 {}。", driver.getClass().getName());
+            } catch (SQLException e) {
+                logger.warn("注销JDBC驱动 {} 失败。", driver.getClass().getName(), e);
+            }
+        }
+        try {
+            //MySQL驱动启动的后台清理线程不会随应用停止，需要手动关闭
+            Class.forName("com.mysql.cj.jdbc.AbandonedConnectionCleanupThread", false, classLoader)
+                    .getMethod("checkedShutdown").invoke(null);
+        } catch (ClassNotFoundException e) {
+            logger.debug("未使用MySQL驱动，无需停止连接清理线程。");
+        } catch (ReflectiveOperationException e) {
+            logger.warn("停止MySQL连接清理线程失败。", e);
+        }
+    }
+
+    /**
+     * 获取主库连接
+     * @return 数据库连接
+     * @throws PoolExhaustedException 截止时间内没有获取到连接，同时记录到当前请求中
+     */
     public static Connection getConn() {
-        return connectionPool.getConn();
+        return acquire(connectionPool);
+    }
+
+    /**
+     * 获取具名连接池的连接，连接池不存在时使用主库
+     * @param name 连接池名称
+     * @return 数据库连接
+     */
+    public static Connection getConn(String name) {
+        IConnectionPool pool = pools.get(name);
+        if (pool == null) {
+            logger.debug("连接池 {} 不存在，使用主库。", name);
+            pool = connectionPool;
+        }
+        return acquire(pool);
+    }
+
+    /**
+     * 获取只读查询使用的连接
+     * 没有配置只读连接池，或当前会话刚写入过主库时返回主库连接；只读连接池不可用时退回主库
+     * @return 数据库连接
+     */
+    public static Connection getReadConn() {
+        if (readPools.isEmpty() || ReadYourWrites.requiresPrimary(settings.getReadYourWritesWindow())) {
+            return getConn();
+        }
+        IConnectionPool pool = readPools.get(Math.floorMod(readCursor.getAndIncrement(), readPools.size()));
+        try {
+            return borrow(pool);
+        } catch (RuntimeException e) {
+            logger.warn("从只读连接池获取连接失败，改走主库。", e);
+            return getConn();
+        }
+    }
+
+    /**
+     * 记录当前请求写入了主库，之后的读请求在readYourWritesWindow内走主库
+     */
+    public static void recordWrite() {
+        ReadYourWrites.recordWrite();
     }
 
+    /**
+     * 从指定连接池获取连接，连接池耗尽或熔断时记录到当前请求中
+     * @param pool 连接池
+     * @return 数据库连接
+     */
+    private static Connection acquire(IConnectionPool pool) {
+        try {
+            return borrow(pool);
+        } catch (PoolExhaustedException e) {
+            RequestDeadline.markExhausted(e);
+            throw e;
+        }
+    }
+
+    /**
+     * 经过熔断器从指定连接池获取连接，并把结果记录到熔断器
+     * 只有整个连接池等满connectionTimeout仍没有连接、或建连时数据库返回错误才算失败；
+     * 分道上限已满、请求预算用完、连接池已关闭和线程中断与数据库是否可用无关，既不算失败也不算成功，
+     * 此时归还半开状态的探测许可，熔断器不会一直停在半开状态
+     * @param pool 连接池
+     * @return 数据库连接
+     * @throws CircuitOpenException 熔断打开
+     */
+    private static Connection borrow(IConnectionPool pool) {
+        CircuitBreaker breaker = breakers.get(pool);
+        boolean probe = breaker.acquirePermission();
+        boolean recorded = false;
+        try {
+            Connection connection;
+            try {
+                connection = pool.getConn();
+            } catch (PoolExhaustedException e) {
+                if (e.isPoolWide()) {
+                    recorded = true;
+                    breaker.recordFailure();
+                }
+                throw e;
+            } catch (RuntimeException e) {
+                //建连失败时连接池把SQLException包装为RuntimeException抛出
+                if (e.getCause() instanceof SQLException) {
+                    recorded = true;
+                    breaker.recordFailure();
+                }
+                throw e;
+            }
+            recorded = true;
+            breaker.recordSuccess();
+            return connection;
+        } finally {
+            if (probe && !recorded) {
+                breaker.releaseProbe();
+            }
+        }
+    }
+
+    /**
+     * 归还连接到其所属的连接池
+     * @param connection 待归还的连接
+     */
     public static void close(Connection connection) {
+        ProxyConnection proxyConnection = ProxyConnection.unwrap(connection);
+        if (proxyConnection != null) {
+            //借用期间连接断开，说明数据库可能不可用
+            if (proxyConnection.isBroken()) {
+                CircuitBreaker breaker = breakers.get(proxyConnection.getPool());
+                if (breaker != null) {
+                    breaker.recordFailure();
+                }
+            }
+            proxyConnection.getPool().releaseConn(connection);
+            return;
+        }
         connectionPool.releaseConn(connection);
     }
+
+    /**
+     * 获取所有连接池
+     * @return 名称到连接池的映射
+     */
+    public static Map<String, IConnectionPool> getPools() {
+        return pools;
+    }
+
+    /**
+     * 获取连接池的熔断器
+     * @param name 连接池名称
+     * @return 熔断器，连接池不存在时返回null
+     */
+    public static CircuitBreaker getCircuitBreaker(String name) {
+        IConnectionPool pool = pools.get(name);
+        return pool == null ? null : breakers.get(pool);
+    }
+
+    /**
+     * 导出当前所有借用者及其持有时长，用于排查连接泄漏
+     * @return 借用者信息列表
+     */
+    public static List<Map<String, Object>> dumpBorrowers() {
+        return connectionPool.dumpBorrowers();
+    }
 }
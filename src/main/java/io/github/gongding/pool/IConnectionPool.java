@@ -1,9 +1,61 @@
 package io.github.gongding.pool;
 
+import io.github.gongding.pool.config.PoolSettings;
+
 import java.sql.Connection;
+import java.util.List;
+import java.util.Map;
 
 public interface IConnectionPool {
     Connection getConn();
 
     void releaseConn(Connection conn);
+
+    /**
+     * 导出当前所有借用者及其持有时长
+     * @return 借用者信息列表
+     */
+    List<Map<String, Object>> dumpBorrowers();
+
+    /**
+     * 应用热加载后的新配置，不影响正在使用的连接
+     * @param settings 新的连接池配置
+     */
+    void reconfigure(PoolSettings settings);
+
+    /**
+     * 关闭连接池：停止借出连接和定时任务，等待借出的连接归还后关闭所有物理连接
+     * @param timeoutMillis 等待借出的连接归还的最长时间（毫秒），超时后强制关闭
+     */
+    void close(long timeoutMillis);
+
+    /**
+     * 获取连接池的监控指标
+     * @return 监控指标
+     */
+    PoolMetrics getMetrics();
+
+    int getMaxSize();
+
+    /**
+     * 获取连接总数，包括正在创建的连接
+     * @return 连接总数
+     */
+    int getTotalCount();
+
+    int getIdleCount();
+
+    int getActiveCount();
+
+    /**
+     * 获取正在等待连接的线程数
+     * @return 等待线程数
+     */
+    int getWaiterCount();
+
+    /**
+     * 获取各分道当前占用的名额数
+     * @return 分道名称到占用数的映射，未配置分道时为空
+     */
+    Map<String, Integer> getLaneUsage();
 }
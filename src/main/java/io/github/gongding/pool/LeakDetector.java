@@ -0,0 +1,135 @@
+package io.github.gongding.pool;
+
+import io.github.gongding.entity.ConnectionEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 连接泄漏检测
+ * 借出连接时记录借用线程，并按采样间隔记录借用位置的调用栈；
+ * 定时扫描持有时间超过阈值的连接并输出告警，但不会强制关闭连接
+ */
+public class LeakDetector {
+    private static final Logger logger = LoggerFactory.getLogger(LeakDetector.class);
+
+    //持有时间超过该阈值（毫秒）视为疑似泄漏，0表示关闭泄漏检测
+    private volatile long threshold;
+    //每隔多少次借用记录一次调用栈，0表示不记录
+    private volatile int stackSampling;
+    private final AtomicLong borrowSequence = new AtomicLong();
+    //累计报告的疑似泄漏次数
+    private final AtomicLong leakCount = new AtomicLong();
+
+    /**
+     * 构造方法
+     * @param threshold 泄漏阈值（毫秒），0表示关闭
+     * @param stackSampling 调用栈采样间隔
+     */
+    public LeakDetector(long threshold, int stackSampling) {
+        this.threshold = threshold;
+        this.stackSampling = stackSampling;
+    }
+
+    /**
+     * 修改泄漏阈值和调用栈采样间隔，配置热加载时调用
+     * @param threshold 泄漏阈值（毫秒），0表示关闭
+     * @param stackSampling 调用栈采样间隔
+     */
+    public void reconfigure(long threshold, int stackSampling) {
+        this.threshold = threshold;
+        this.stackSampling = stackSampling;
+    }
+
+    public boolean isEnabled() {
+        return threshold > 0;
+    }
+
+    /**
+     * 记录一次借用
+     * @param connection 借出的物理连接
+     * @return 借用记录
+     */
+    public ConnectionEntity track(Connection connection) {
+        ConnectionEntity record = new ConnectionEntity(connection, System.currentTimeMillis());
+        record.setBorrowThread(Thread.currentThread().getName());
+        int stackSampling = this.stackSampling;
+        if (isEnabled() && stackSampling > 0 && borrowSequence.getAndIncrement() % stackSampling == 0) {
+            record.setBorrowStack(new Throwable("连接借用位置"));
+        }
+        return record;
+    }
+
+    /**
+     * 连接归还时调用，之前报告过泄漏的连接在归还时补充一条日志
+     * @param record 借用记录
+     */
+    public void returned(ConnectionEntity record) {
+        if (record != null && record.isLeakReported()) {
+            logger.info("之前报告的疑似泄漏连接已归还，借用线程: {}，持有时间: {} ms",
+                    record.getBorrowThread(), System.currentTimeMillis() - record.getUseStartTime());
+        }
+    }
+
+    /**
+     * 扫描正在使用的连接，对超过阈值且尚未报告的连接输出告警
+     * @param inUse 正在使用的连接借用记录
+     */
+    public void scan(Iterable<ConnectionEntity> inUse) {
+        long threshold = this.threshold;
+        if (threshold <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (ConnectionEntity record : inUse) {
+            long held = now - record.getUseStartTime();
+            if (held > threshold && !record.isLeakReported()) {
+                record.setLeakReported(true);
+                leakCount.incrementAndGet();
+                if (record.getBorrowStack() != null) {
+                    logger.warn("检测到疑似连接泄漏，借用线程: {}，已持有 {} ms，借用位置如下：",
+                            record.getBorrowThread(), held, record.getBorrowStack());
+                } else {
+                    logger.warn("检测到疑似连接泄漏，借用线程: {}，已持有 {} ms（本次借用未采样调用栈）",
+                            record.getBorrowThread(), held);
+                }
+            }
+        }
+    }
+
+    /**
+     * 导出当前所有借用者及其持有时长，按持有时长降序排列
+     * @param inUse 正在使用的连接借用记录
+     * @return 借用者信息列表
+     */
+    public List<Map<String, Object>> dump(Iterable<ConnectionEntity> inUse) {
+        long now = System.currentTimeMillis();
+        List<Map<String, Object>> borrowers = new ArrayList<>();
+        for (ConnectionEntity record : inUse) {
+            Map<String, Object> borrower = new LinkedHashMap<>();
+            borrower.put("thread", record.getBorrowThread());
+            borrower.put("heldMillis", now - record.getUseStartTime());
+            borrower.put("leakReported", record.isLeakReported());
+            if (record.getBorrowStack() != null) {
+                borrower.put("stack", Arrays.stream(record.getBorrowStack().getStackTrace())
+                        .map(StackTraceElement::toString)
+                        .collect(Collectors.toList()));
+            }
+            borrowers.add(borrower);
+        }
+        borrowers.sort((a, b) -> Long.compare((Long) b.get("heldMillis"), (Long) a.get("heldMillis")));
+        return borrowers;
+    }
+
+    public long getLeakCount() {
+        return leakCount.get();
+    }
+}
@@ -0,0 +1,90 @@
+package io.github.gongding.pool;
+
+import io.github.gongding.entity.ConnectionEntity;
+
+import java.sql.Connection;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 连接池中的一个物理连接条目，通过CAS状态位保证同一时刻只有一个借用者
+ */
+final class PoolEntry {
+    //空闲状态，可被借出
+    static final int STATE_IDLE = 0;
+    //已被借出
+    static final int STATE_IN_USE = 1;
+    //已从连接池中移除
+    static final int STATE_REMOVED = -1;
+
+    private final Connection connection;
+    private final AtomicInteger state = new AtomicInteger(STATE_IN_USE);
+    private final long createTime;
+    //到达该时间后连接不再复用，0表示不限制
+    private final long expireTime;
+    //最近一次借出或归还的时间
+    private volatile long lastAccessTime;
+    //当前借用记录，空闲时为null
+    private volatile ConnectionEntity borrowRecord;
+    //该连接上的PreparedStatement缓存，未开启时为null
+    private StatementCache statementCache;
+
+    /**
+     * 构造方法
+     * @param connection 物理连接
+     * @param lifetime 连接存活时间（毫秒，已加入随机抖动），0表示不限制
+     */
+    PoolEntry(Connection connection, long lifetime) {
+        this.connection = connection;
+        this.createTime = System.currentTimeMillis();
+        this.expireTime = lifetime > 0 ? createTime + lifetime : 0;
+        this.lastAccessTime = createTime;
+    }
+
+    Connection getConnection() {
+        return connection;
+    }
+
+    int getState() {
+        return state.get();
+    }
+
+    boolean compareAndSetState(int expect, int update) {
+        return state.compareAndSet(expect, update);
+    }
+
+    void setState(int update) {
+        state.set(update);
+    }
+
+    long getCreateTime() {
+        return createTime;
+    }
+
+    boolean isExpired(long now) {
+        return expireTime > 0 && now >= expireTime;
+    }
+
+    long getLastAccessTime() {
+        return lastAccessTime;
+    }
+
+    void touch() {
+        lastAccessTime = System.currentTimeMillis();
+    }
+
+    ConnectionEntity getBorrowRecord() {
+        return borrowRecord;
+    }
+
+    void setBorrowRecord(ConnectionEntity borrowRecord) {
+        this.borrowRecord = borrowRecord;
+    }
+
+    StatementCache getStatementCache() {
+        return statementCache;
+    }
+
+    void setStatementCache(StatementCache statementCache) {
+        this.statementCache = statementCache;
+    }
+}
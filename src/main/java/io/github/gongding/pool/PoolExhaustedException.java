@@ -0,0 +1,55 @@
+package io.github.gongding.pool;
+
+/**
+ * 在截止时间内没有获取到数据库连接时抛出
+ * 由过滤器统一转换为503响应，让客户端稍后重试，而不是让请求线程一直挂起
+ */
+public class PoolExhaustedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 没有获取到连接的原因
+     */
+    public enum Reason {
+        //等满connectionTimeout整个连接池仍没有可用连接
+        POOL,
+        //当前分道的借用数已达上限，其他分道可能仍有空闲连接
+        LANE,
+        //请求剩余预算短于connectionTimeout，预算先用完
+        BUDGET,
+        //熔断打开，没有尝试获取连接
+        CIRCUIT_OPEN
+    }
+
+    //本次获取连接实际等待的时间（毫秒）
+    private final long waitedMillis;
+    private final Reason reason;
+
+    /**
+     * 构造方法
+     * @param message 异常信息
+     * @param waitedMillis 实际等待时间（毫秒）
+     * @param reason 没有获取到连接的原因
+     */
+    public PoolExhaustedException(String message, long waitedMillis, Reason reason) {
+        super(message);
+        this.waitedMillis = waitedMillis;
+        this.reason = reason;
+    }
+
+    public long getWaitedMillis() {
+        return waitedMillis;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+
+    /**
+     * 是否整个连接池都没有可用连接，只有这种情况说明数据库可能出了问题，计入熔断器的失败次数
+     * @return 原因为POOL时返回true
+     */
+    public boolean isPoolWide() {
+        return reason == Reason.POOL;
+    }
+}
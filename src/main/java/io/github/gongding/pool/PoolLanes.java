@@ -0,0 +1,292 @@
+package io.github.gongding.pool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 连接池分道（舱壁隔离）
+ * 每个分道有保留名额和上限：保留名额只给该分道使用，其余名额由所有分道共享，
+ * 保留名额与共享名额之和等于连接池最大连接数，因此持有保留名额的请求一定能拿到连接。
+ * 分道按请求选择，由过滤器调用enter/exit绑定到当前线程，未绑定或未配置的分道使用默认分道（无保留、上限为最大连接数）。
+ * 配置格式：名称:保留数:上限，多个分道用逗号分隔，例如 student-submit:4:10,teacher:0:4,admin:0:2。
+ * 连接池最大连接数调整时，共享名额和上限不低于最大连接数的分道随之调整
+ */
+public class PoolLanes {
+    private static final Logger logger = LoggerFactory.getLogger(PoolLanes.class);
+
+    //默认分道名称
+    public static final String DEFAULT_LANE = "default";
+    //等待共享名额时每次等待的最长时间（毫秒），超时后重新检查保留名额
+    private static final long SHARED_POLL_MILLIS = 20;
+
+    //当前线程所属的分道
+    private static final ThreadLocal<String> CURRENT_LANE = new ThreadLocal<>();
+
+    private final Map<String, Lane> lanes = new LinkedHashMap<>();
+    //所有分道共享的名额
+    private final ResizableSemaphore shared;
+    //所有分道保留名额之和
+    private final int reservedTotal;
+    //当前的连接池最大连接数
+    private int maxSize;
+
+    /**
+     * 构造方法
+     * @param spec 分道配置
+     * @param maxSize 连接池最大连接数
+     */
+    public PoolLanes(String spec, int maxSize) {
+        int reservedTotal = 0;
+        if (spec != null) {
+            for (String item : spec.split(",")) {
+                if (item.trim().isEmpty()) {
+                    continue;
+                }
+                String[] parts = item.trim().split(":");
+                if (parts.length != 3) {
+                    throw new IllegalArgumentException("分道配置格式错误，应为 名称:保留数:上限，实际为: " + item);
+                }
+                String name = parts[0].trim();
+                int reserved = Integer.parseInt(parts[1].trim());
+                int configuredCap = Integer.parseInt(parts[2].trim());
+                int cap = Math.min(configuredCap, maxSize);
+                if (reserved < 0 || cap <= 0 || reserved > cap) {
+                    throw new IllegalArgumentException("分道 " + name + " 的保留数或上限不合法: " + item);
+                }
+                lanes.put(name, new Lane(name, reserved, cap, configuredCap >= maxSize));
+                reservedTotal += reserved;
+            }
+        }
+        if (reservedTotal > maxSize) {
+            throw new IllegalArgumentException("分道保留数之和 " + reservedTotal + " 超过最大连接数 " + maxSize);
+        }
+        lanes.putIfAbsent(DEFAULT_LANE, new Lane(DEFAULT_LANE, 0, maxSize, true));
+        this.reservedTotal = reservedTotal;
+        this.maxSize = maxSize;
+        this.shared = new ResizableSemaphore(maxSize - reservedTotal);
+        logger.info("连接池分道配置: {}，共享名额: {}", lanes.values(), shared.availablePermits());
+    }
+
+    /**
+     * 把当前线程绑定到指定分道，请求结束时必须调用exit
+     * @param lane 分道名称
+     */
+    public static void enter(String lane) {
+        CURRENT_LANE.set(lane);
+    }
+
+    /**
+     * 解除当前线程的分道绑定
+     */
+    public static void exit() {
+        CURRENT_LANE.remove();
+    }
+
+    /**
+     * 获取当前线程所属的分道
+     * @return 分道名称，未绑定时返回默认分道
+     */
+    public static String current() {
+        String lane = CURRENT_LANE.get();
+        return lane != null ? lane : DEFAULT_LANE;
+    }
+
+    /**
+     * 为当前线程所属分道获取一个名额，先占分道上限，再优先使用保留名额，最后使用共享名额
+     * @param deadline 截止时刻，见RequestDeadline.deadlineAfter
+     * @return 名额凭证，归还连接时释放；截止时刻前没有获取到名额时返回未获准的凭证，见Ticket.isGranted
+     * @throws InterruptedException 等待时线程被中断
+     */
+    Ticket acquire(long deadline) throws InterruptedException {
+        Lane lane = lanes.get(current());
+        if (lane == null) {
+            lane = lanes.get(DEFAULT_LANE);
+        }
+        if (!lane.cap.tryAcquire(RequestDeadline.remainingUntil(deadline), TimeUnit.MILLISECONDS)) {
+            return refused(lane, true);
+        }
+        try {
+            while (true) {
+                if (lane.reserved.tryAcquire()) {
+                    lane.active.incrementAndGet();
+                    return new Ticket(lane, true, true, false);
+                }
+                long remaining = RequestDeadline.remainingUntil(deadline);
+                if (remaining <= 0) {
+                    lane.cap.release();
+                    return refused(lane, false);
+                }
+                if (shared.tryAcquire(Math.min(SHARED_POLL_MILLIS, remaining), TimeUnit.MILLISECONDS)) {
+                    lane.active.incrementAndGet();
+                    return new Ticket(lane, true, false, false);
+                }
+            }
+        } catch (InterruptedException | RuntimeException e) {
+            lane.cap.release();
+            throw e;
+        }
+    }
+
+    /**
+     * 生成未获准的名额凭证
+     * @param lane 分道
+     * @param capReached 是否因为分道上限已满，否则是共享名额用完
+     * @return 未获准的凭证
+     */
+    private Ticket refused(Lane lane, boolean capReached) {
+        return new Ticket(lane, false, false, capReached);
+    }
+
+    /**
+     * 连接池最大连接数调整时同步调整共享名额和跟随最大连接数的分道上限
+     * 缩小时已发出的名额不会收回，归还后不再补回，直到总量回到新的上限以内
+     * @param newMaxSize 新的最大连接数，不能小于保留名额之和
+     */
+    synchronized void resize(int newMaxSize) {
+        if (newMaxSize < reservedTotal) {
+            throw new IllegalArgumentException("最大连接数 " + newMaxSize + " 小于分道保留数之和 " + reservedTotal);
+        }
+        int delta = newMaxSize - maxSize;
+        if (delta == 0) {
+            return;
+        }
+        shared.adjust(delta);
+        for (Lane lane : lanes.values()) {
+            if (lane.tracksMaxSize) {
+                lane.cap.adjust(delta);
+                lane.capacity += delta;
+            }
+        }
+        maxSize = newMaxSize;
+    }
+
+    /**
+     * 获取所有分道保留名额之和
+     * @return 保留名额之和
+     */
+    int getReservedTotal() {
+        return reservedTotal;
+    }
+
+    /**
+     * 导出各分道当前持有的名额数（不含仍在等待的请求）
+     * @return 分道名称到持有名额数的映射
+     */
+    public Map<String, Integer> usage() {
+        Map<String, Integer> usage = new LinkedHashMap<>();
+        for (Lane lane : lanes.values()) {
+            usage.put(lane.name, lane.active.get());
+        }
+        return usage;
+    }
+
+    /**
+     * 单个分道
+     */
+    private static final class Lane {
+        final String name;
+        volatile int capacity;
+        final int reservedCount;
+        //上限是否跟随连接池最大连接数调整
+        final boolean tracksMaxSize;
+        //分道上限
+        final ResizableSemaphore cap;
+        //分道保留名额
+        final Semaphore reserved;
+        //当前持有名额的借用数
+        final AtomicInteger active = new AtomicInteger();
+
+        Lane(String name, int reservedCount, int capacity, boolean tracksMaxSize) {
+            this.name = name;
+            this.capacity = capacity;
+            this.reservedCount = reservedCount;
+            this.tracksMaxSize = tracksMaxSize;
+            this.cap = new ResizableSemaphore(capacity);
+            this.reserved = new Semaphore(reservedCount);
+        }
+
+        @Override
+        public String toString() {
+            return name + "(保留=" + reservedCount + ", 上限=" + capacity + ")";
+        }
+    }
+
+    /**
+     * 可以增减名额的公平信号量，名额可以暂时为负数
+     */
+    private static final class ResizableSemaphore extends Semaphore {
+        private static final long serialVersionUID = 1L;
+
+        ResizableSemaphore(int permits) {
+            super(permits, true);
+        }
+
+        void adjust(int delta) {
+            if (delta > 0) {
+                release(delta);
+            } else if (delta < 0) {
+                reducePermits(-delta);
+            }
+        }
+    }
+
+    /**
+     * 一次借用占用的分道名额
+     */
+    final class Ticket {
+        private final Lane lane;
+        private final boolean fromReserved;
+        private final boolean granted;
+        //未获准时是否因为分道上限已满，否则是共享名额用完
+        private final boolean capReached;
+        private boolean released;
+
+        private Ticket(Lane lane, boolean granted, boolean fromReserved, boolean capReached) {
+            this.lane = lane;
+            this.granted = granted;
+            this.fromReserved = fromReserved;
+            this.capReached = capReached;
+            //未获准的凭证不占用名额，无需释放
+            this.released = !granted;
+        }
+
+        /**
+         * 是否获得了名额
+         * @return 获得名额时返回true
+         */
+        boolean isGranted() {
+            return granted;
+        }
+
+        /**
+         * 未获得名额时是否因为当前分道的上限已满，此时其他分道仍可能有空闲连接
+         * @return 分道上限已满时返回true，共享名额用完时返回false
+         */
+        boolean isCapReached() {
+            return capReached;
+        }
+
+        /**
+         * 释放名额，重复调用无副作用
+         */
+        void release() {
+            if (released) {
+                return;
+            }
+            released = true;
+            lane.active.decrementAndGet();
+            if (fromReserved) {
+                lane.reserved.release();
+            } else {
+                shared.release();
+            }
+            lane.cap.release();
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package io.github.gongding.pool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 连接池监控指标
+ * 由连接池在借用、归还、超时和建连失败时记录事件计数，连接数等瞬时值直接读取连接池的当前状态。
+ * 可以注册为MBean，也由管理员接口以JSON或Prometheus格式输出
+ */
+public class PoolMetrics implements PoolMetricsMXBean {
+    private static final Logger logger = LoggerFactory.getLogger(PoolMetrics.class);
+    private static final String DOMAIN = "io.github.gongding.pool";
+
+    private final IConnectionPool pool;
+    private final LeakDetector leakDetector;
+    private final WaitTimeHistogram waitTime = new WaitTimeHistogram();
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder totalHoldMillis = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder creationFailureCount = new LongAdder();
+    //语句缓存命中与未命中次数，由连接池的所有语句缓存共享
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+    //注册后的MBean名称，未注册时为null
+    private ObjectName objectName;
+
+    /**
+     * 构造方法
+     * @param pool 被监控的连接池
+     * @param leakDetector 连接池的泄漏检测器
+     */
+    public PoolMetrics(IConnectionPool pool, LeakDetector leakDetector) {
+        this.pool = pool;
+        this.leakDetector = leakDetector;
+    }
+
+    /**
+     * 记录一次成功借用
+     * @param waitMillis 获取连接花费的时间（毫秒）
+     */
+    void recordBorrow(long waitMillis) {
+        borrowCount.increment();
+        waitTime.record(waitMillis);
+    }
+
+    /**
+     * 记录一次连接归还
+     * @param holdMillis 连接被持有的时间（毫秒）
+     */
+    void recordRelease(long holdMillis) {
+        totalHoldMillis.add(holdMillis);
+    }
+
+    /**
+     * 记录一次获取连接超时
+     */
+    void recordTimeout() {
+        timeoutCount.increment();
+    }
+
+    /**
+     * 记录一次创建物理连接失败
+     */
+    void recordCreationFailure() {
+        creationFailureCount.increment();
+    }
+
+    LongAdder statementCacheHitCounter() {
+        return statementCacheHits;
+    }
+
+    LongAdder statementCacheMissCounter() {
+        return statementCacheMisses;
+    }
+
+    /**
+     * 注册为MBean，同名MBean已存在时（如应用重新部署）先注销旧的
+     * @param poolName 连接池名称
+     */
+    public synchronized void register(String poolName) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(DOMAIN + ":type=ConnectionPool,name=" + ObjectName.quote(poolName));
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+            objectName = name;
+            logger.info("连接池 {} 的监控指标已注册为MBean: {}", poolName, name);
+        } catch (JMException e) {
+            logger.warn("注册连接池 {} 的监控指标MBean失败。", poolName, e);
+        }
+    }
+
+    /**
+     * 注销MBean
+     */
+    public synchronized void unregister() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            logger.debug("注销MBean {} 失败。", objectName, e);
+        }
+        objectName = null;
+    }
+
+    /**
+     * 获取借用等待时间直方图
+     * @return 直方图
+     */
+    public WaitTimeHistogram getWaitTime() {
+        return waitTime;
+    }
+
+    @Override
+    public int getMaxSize() {
+        return pool.getMaxSize();
+    }
+
+    @Override
+    public int getTotalConnections() {
+        return pool.getTotalCount();
+    }
+
+    @Override
+    public int getActiveConnections() {
+        return pool.getActiveCount();
+    }
+
+    @Override
+    public int getIdleConnections() {
+        return pool.getIdleCount();
+    }
+
+    @Override
+    public int getPendingThreads() {
+        return pool.getWaiterCount();
+    }
+
+    @Override
+    public long getBorrowCount() {
+        return borrowCount.sum();
+    }
+
+    @Override
+    public long getTimeoutCount() {
+        return timeoutCount.sum();
+    }
+
+    @Override
+    public long getCreationFailureCount() {
+        return creationFailureCount.sum();
+    }
+
+    @Override
+    public long getLeakWarningCount() {
+        return leakDetector.getLeakCount();
+    }
+
+    @Override
+    public long getTotalWaitMillis() {
+        return waitTime.getSum();
+    }
+
+    @Override
+    public long getTotalHoldMillis() {
+        return totalHoldMillis.sum();
+    }
+
+    @Override
+    public long getWaitMillisP99() {
+        return waitTime.estimate(0.99);
+    }
+
+    @Override
+    public Map<String, Long> getWaitTimeHistogram() {
+        long[] bounds = waitTime.getBounds();
+        long[] counts = waitTime.getCumulativeCounts();
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        for (int i = 0; i < bounds.length; i++) {
+            histogram.put(String.valueOf(bounds[i]), counts[i]);
+        }
+        histogram.put("+Inf", counts[counts.length - 1]);
+        return histogram;
+    }
+
+    @Override
+    public long getStatementCacheHits() {
+        return statementCacheHits.sum();
+    }
+
+    @Override
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.sum();
+    }
+
+    @Override
+    public Map<String, Integer> getLaneUsage() {
+        return pool.getLaneUsage();
+    }
+
+    /**
+     * 导出所有指标的快照
+     * @return 指标名称到值的映射
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("maxSize", getMaxSize());
+        snapshot.put("total", getTotalConnections());
+        snapshot.put("active", getActiveConnections());
+        snapshot.put("idle", getIdleConnections());
+        snapshot.put("pending", getPendingThreads());
+        snapshot.put("borrowCount", getBorrowCount());
+        snapshot.put("timeoutCount", getTimeoutCount());
+        snapshot.put("creationFailureCount", getCreationFailureCount());
+        snapshot.put("leakWarningCount", getLeakWarningCount());
+        snapshot.put("totalWaitMillis", getTotalWaitMillis());
+        snapshot.put("totalHoldMillis", getTotalHoldMillis());
+        snapshot.put("waitMillisP99", getWaitMillisP99());
+        snapshot.put("waitTimeHistogram", getWaitTimeHistogram());
+        snapshot.put("statementCacheHits", getStatementCacheHits());
+        snapshot.put("statementCacheMisses", getStatementCacheMisses());
+        snapshot.put("laneUsage", getLaneUsage());
+        return snapshot;
+    }
+}
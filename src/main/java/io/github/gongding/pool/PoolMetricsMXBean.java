@@ -0,0 +1,53 @@
+package io.github.gongding.pool;
+
+import java.util.Map;
+
+/**
+ * 连接池监控指标的JMX接口
+ * 注册在 io.github.gongding.pool:type=ConnectionPool,name=连接池名称 下
+ */
+public interface PoolMetricsMXBean {
+    int getMaxSize();
+
+    int getTotalConnections();
+
+    int getActiveConnections();
+
+    int getIdleConnections();
+
+    int getPendingThreads();
+
+    long getBorrowCount();
+
+    long getTimeoutCount();
+
+    long getCreationFailureCount();
+
+    long getLeakWarningCount();
+
+    long getTotalWaitMillis();
+
+    long getTotalHoldMillis();
+
+    /**
+     * 按直方图估算的借用等待时间99分位
+     * @return 等待时间上界（毫秒）
+     */
+    long getWaitMillisP99();
+
+    /**
+     * 借用等待时间直方图，键为桶的上界（毫秒），值为不超过该上界的累计次数
+     * @return 直方图
+     */
+    Map<String, Long> getWaitTimeHistogram();
+
+    long getStatementCacheHits();
+
+    long getStatementCacheMisses();
+
+    /**
+     * 各分道当前占用的名额数
+     * @return 分道名称到占用数的映射
+     */
+    Map<String, Integer> getLaneUsage();
+}
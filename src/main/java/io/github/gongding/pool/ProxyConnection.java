@@ -0,0 +1,211 @@
+package io.github.gongding.pool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * 连接池借出的连接包装
+ * 每次借出都会生成一个新的代理，代理直接持有所属的连接池条目，
+ * close()时把物理连接O(1)归还给连接池，并关闭本次借用期间打开的Statement。
+ * 归还后继续使用该代理会抛出SQLException，避免多个借用者共享同一物理连接。
+ * 开启语句缓存时，prepareStatement优先从该连接的StatementCache中取已预编译的语句。
+ * 配置分道时代理还持有本次借用的分道名额，归还连接后释放。
+ * 借出的语句都经过ProxyStatement包装，借用期间出现连接类异常（SQLState以08开头）时连接被标记为已断开，归还时直接关闭，不再借给下一个请求
+ */
+final class ProxyConnection implements InvocationHandler {
+    private static final Logger logger = LoggerFactory.getLogger(ProxyConnection.class);
+
+    private final ConcurrentConnectionPool pool;
+    private final PoolEntry entry;
+    private final Connection delegate;
+    //本次借用占用的分道名额，未配置分道时为null
+    private final PoolLanes.Ticket ticket;
+    //本次借用期间打开且尚未关闭的Statement，语句关闭时自行移除，工作单元长时间持有连接时不会累积
+    private final Set<ProxyStatement> openStatements = Collections.newSetFromMap(new IdentityHashMap<>());
+    private volatile boolean closed;
+    //借用者是否修改过自动提交，归还时需要复位
+    private boolean autoCommitChanged;
+    //借用期间是否出现过连接类异常
+    private volatile boolean broken;
+
+    private ProxyConnection(ConcurrentConnectionPool pool, PoolEntry entry, PoolLanes.Ticket ticket) {
+        this.pool = pool;
+        this.entry = entry;
+        this.delegate = entry.getConnection();
+        this.ticket = ticket;
+    }
+
+    /**
+     * 为借出的条目创建连接代理
+     * @param pool 所属连接池
+     * @param entry 借出的条目
+     * @param ticket 本次借用占用的分道名额，可以为null
+     * @return 连接代理
+     */
+    static Connection create(ConcurrentConnectionPool pool, PoolEntry entry, PoolLanes.Ticket ticket) {
+        return (Connection) Proxy.newProxyInstance(ProxyConnection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ProxyConnection(pool, entry, ticket));
+    }
+
+    /**
+     * 获取连接代理对应的处理器
+     * @param connection 连接
+     * @return 连接池代理的处理器，不是连接池代理时返回null
+     */
+    static ProxyConnection unwrap(Connection connection) {
+        if (connection != null && Proxy.isProxyClass(connection.getClass())) {
+            InvocationHandler handler = Proxy.getInvocationHandler(connection);
+            if (handler instanceof ProxyConnection) {
+                return (ProxyConnection) handler;
+            }
+        }
+        return null;
+    }
+
+    PoolEntry getEntry() {
+        return entry;
+    }
+
+    ConcurrentConnectionPool getPool() {
+        return pool;
+    }
+
+    boolean isBroken() {
+        return broken;
+    }
+
+    int getOpenStatementCount() {
+        return openStatements.size();
+    }
+
+    /**
+     * 记录一次数据库错误，异常说明物理连接已断开（SQLState以08开头）时标记连接为已断开
+     * @param e 执行时抛出的异常
+     */
+    void checkBroken(SQLException e) {
+        RequestDeadline.recordDatabaseError();
+        String sqlState = e.getSQLState();
+        if (!broken && sqlState != null && sqlState.startsWith("08")) {
+            broken = true;
+            logger.warn("数据库连接已断开（SQLState: {}），归还时将丢弃该连接。", sqlState);
+        }
+    }
+
+    /**
+     * 登记本次借用打开的语句，连接归还时关闭仍未关闭的语句
+     * @param statement 语句代理的处理器
+     */
+    void statementOpened(ProxyStatement statement) {
+        openStatements.add(statement);
+    }
+
+    /**
+     * 语句关闭后取消登记
+     * @param statement 语句代理的处理器
+     */
+    void statementClosed(ProxyStatement statement) {
+        openStatements.remove(statement);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "close":
+                close();
+                return null;
+            case "isClosed":
+                return closed || delegate.isClosed();
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "ProxyConnection[" + delegate + "]";
+            default:
+                break;
+        }
+        if (closed) {
+            throw new SQLException("连接已归还连接池，不能继续使用");
+        }
+        if ("setAutoCommit".equals(method.getName())) {
+            autoCommitChanged = true;
+        }
+        Object result;
+        try {
+            StatementCache statementCache = entry.getStatementCache();
+            if (statementCache != null && "prepareStatement".equals(method.getName())) {
+                StatementCache.CachedStatement cached = statementCache.prepare(delegate, args);
+                if (cached != null) {
+                    return ProxyStatement.create(method.getReturnType(), cached.statement, this, statementCache, cached);
+                }
+            }
+            result = method.invoke(delegate, args);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                checkBroken((SQLException) cause);
+            }
+            throw cause;
+        } catch (SQLException e) {
+            checkBroken(e);
+            throw e;
+        }
+        if (result instanceof Statement) {
+            return ProxyStatement.create(method.getReturnType(), (Statement) result, this);
+        }
+        return result;
+    }
+
+    /**
+     * 关闭本次借用打开的Statement，复位连接状态后归还连接池，并释放分道名额
+     */
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        //语句关闭时会从集合中移除自身，遍历副本
+        for (ProxyStatement statement : new ArrayList<>(openStatements)) {
+            statement.close();
+        }
+        openStatements.clear();
+        if (broken) {
+            //已断开的连接直接关闭，回收时不会再放回空闲栈
+            closeQuietly();
+        } else if (autoCommitChanged) {
+            try {
+                if (!delegate.getAutoCommit()) {
+                    delegate.rollback();
+                    delegate.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                logger.warn("复位连接自动提交状态失败，丢弃该连接。", e);
+                closeQuietly();
+            }
+        }
+        pool.recycle(entry);
+        if (ticket != null) {
+            ticket.release();
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            delegate.close();
+        } catch (SQLException e) {
+            logger.debug("关闭数据库连接时发生异常。", e);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package io.github.gongding.pool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 借出连接上的语句包装
+ * 执行语句抛出连接类异常（SQLState以08开头）时通知所属的连接代理，连接归还时不再放回连接池。
+ * 当前请求设置了截止时间时，每次执行前把剩余预算设为查询超时（向上取整到秒，不超过DAO自己设置的超时），
+ * 预算已用完时不再执行，慢查询到期后由驱动取消，不会一直占用连接。
+ * close()时关闭本次使用打开的结果集；缓存的语句还回所属连接的语句缓存，其余语句真正关闭
+ */
+final class ProxyStatement implements InvocationHandler {
+    private static final Logger logger = LoggerFactory.getLogger(ProxyStatement.class);
+
+    private final Statement delegate;
+    private final ProxyConnection owner;
+    //所属语句缓存，未缓存的语句为null
+    private final StatementCache cache;
+    private final StatementCache.CachedStatement cached;
+    //本次使用期间打开的结果集
+    private final List<ResultSet> openResultSets = new ArrayList<>();
+    private boolean closed;
+    //DAO通过setQueryTimeout设置的查询超时（秒），0表示未设置
+    private int explicitTimeout;
+    //当前设置在物理语句上的查询超时（秒）
+    private int appliedTimeout;
+
+    private ProxyStatement(Statement delegate, ProxyConnection owner, StatementCache cache, StatementCache.CachedStatement cached) {
+        this.delegate = delegate;
+        this.owner = owner;
+        this.cache = cache;
+        this.cached = cached;
+    }
+
+    /**
+     * 为未缓存的语句创建代理
+     * @param type 语句接口（Statement、PreparedStatement或CallableStatement）
+     * @param delegate 物理语句
+     * @param owner 所属连接代理
+     * @return 语句代理
+     */
+    static Statement create(Class<?> type, Statement delegate, ProxyConnection owner) {
+        return create(type, delegate, owner, null, null);
+    }
+
+    /**
+     * 为缓存语句创建代理
+     * @param type 语句接口
+     * @param delegate 物理语句
+     * @param owner 所属连接代理
+     * @param cache 所属语句缓存
+     * @param cached 缓存条目
+     * @return 语句代理
+     */
+    static Statement create(Class<?> type, Statement delegate, ProxyConnection owner,
+                            StatementCache cache, StatementCache.CachedStatement cached) {
+        ProxyStatement handler = new ProxyStatement(delegate, owner, cache, cached);
+        owner.statementOpened(handler);
+        return (Statement) Proxy.newProxyInstance(ProxyStatement.class.getClassLoader(),
+                new Class<?>[]{type}, handler);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "close":
+                close();
+                return null;
+            case "isClosed":
+                return closed || delegate.isClosed();
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "ProxyStatement[" + delegate + "]";
+            default:
+                break;
+        }
+        if (closed) {
+            throw new SQLException("语句已关闭，不能继续使用");
+        }
+        Object result;
+        try {
+            if ("setQueryTimeout".equals(method.getName())) {
+                explicitTimeout = (Integer) args[0];
+                appliedTimeout = explicitTimeout;
+            } else if (method.getName().startsWith("execute")) {
+                applyDeadline();
+            }
+            result = method.invoke(delegate, args);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                owner.checkBroken((SQLException) cause);
+            }
+            throw cause;
+        } catch (SQLException e) {
+            owner.checkBroken(e);
+            throw e;
+        }
+        if (result instanceof ResultSet) {
+            openResultSets.add((ResultSet) result);
+        }
+        return result;
+    }
+
+    /**
+     * 按当前请求的剩余预算设置查询超时
+     * @throws SQLTimeoutException 请求的预算已经用完
+     * @throws SQLException 设置查询超时失败
+     */
+    private void applyDeadline() throws SQLException {
+        long remaining = RequestDeadline.remainingMillis();
+        int timeout = explicitTimeout;
+        if (remaining != Long.MAX_VALUE) {
+            if (remaining <= 0) {
+                throw new SQLTimeoutException("请求已超过处理时限，不再执行SQL", "HY008");
+            }
+            int seconds = (int) Math.min(Integer.MAX_VALUE, (remaining + 999) / 1000);
+            timeout = timeout > 0 ? Math.min(timeout, seconds) : seconds;
+        }
+        if (timeout != appliedTimeout) {
+            delegate.setQueryTimeout(timeout);
+            appliedTimeout = timeout;
+        }
+    }
+
+    /**
+     * 关闭本次使用打开的结果集，缓存的语句还回缓存，其余语句直接关闭，并从所属连接代理中取消登记
+     */
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        owner.statementClosed(this);
+        for (ResultSet resultSet : openResultSets) {
+            try {
+                resultSet.close();
+            } catch (SQLException e) {
+                logger.debug("关闭未释放的ResultSet时发生异常。", e);
+            }
+        }
+        openResultSets.clear();
+        if (cache != null) {
+            if (appliedTimeout != 0) {
+                //缓存的语句会被之后的借用复用，复位查询超时
+                try {
+                    delegate.setQueryTimeout(0);
+                } catch (SQLException e) {
+                    logger.debug("复位缓存语句的查询超时失败。", e);
+                }
+            }
+            cache.release(cached);
+            return;
+        }
+        try {
+            delegate.close();
+        } catch (SQLException e) {
+            logger.debug("关闭Statement时发生异常。", e);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package io.github.gongding.pool;
+
+/**
+ * 读己之写保护
+ * 记录当前请求所属会话最近一次写入主库的时间，写入后的一段时间内读请求仍走主库，
+ * 避免从库复制延迟导致用户看不到自己刚提交的数据。会话与线程之间的传递由过滤器负责
+ */
+public final class ReadYourWrites {
+    private static final ThreadLocal<Long> LAST_WRITE = new ThreadLocal<>();
+
+    private ReadYourWrites() {
+    }
+
+    /**
+     * 开始一个请求
+     * @param lastWriteMillis 会话中记录的最近写入时间，没有时为null
+     */
+    public static void begin(Long lastWriteMillis) {
+        if (lastWriteMillis != null) {
+            LAST_WRITE.set(lastWriteMillis);
+        } else {
+            LAST_WRITE.remove();
+        }
+    }
+
+    /**
+     * 结束当前请求，清理线程绑定的状态
+     */
+    public static void end() {
+        LAST_WRITE.remove();
+    }
+
+    /**
+     * 记录当前请求写入了主库
+     */
+    public static void recordWrite() {
+        LAST_WRITE.set(System.currentTimeMillis());
+    }
+
+    /**
+     * 获取当前请求可见的最近写入时间
+     * @return 最近写入时间，没有时为null
+     */
+    public static Long lastWrite() {
+        return LAST_WRITE.get();
+    }
+
+    /**
+     * 判断当前请求的读操作是否必须走主库
+     * @param windowMillis 写入后读请求走主库的时长（毫秒）
+     * @return 是否必须走主库
+     */
+    static boolean requiresPrimary(long windowMillis) {
+        Long lastWrite = LAST_WRITE.get();
+        return lastWrite != null && System.currentTimeMillis() - lastWrite < windowMillis;
+    }
+}
@@ -0,0 +1,120 @@
+package io.github.gongding.pool;
+
+/**
+ * 当前请求的处理截止时间
+ * 过滤器在请求开始时按配置的请求预算设置截止时间，连接池获取连接时不会等待超过剩余预算，
+ * 借出连接上执行的每条SQL也以剩余预算作为查询超时；
+ * 同时记录本次请求是否因连接池耗尽而失败，即使异常被下层捕获也能返回503；
+ * 另外按线程累计数据库错误次数，调用方比较前后的值即可知道某次查询期间是否出过错
+ */
+public final class RequestDeadline {
+    private static final ThreadLocal<Long> DEADLINE = new ThreadLocal<>();
+    private static final ThreadLocal<PoolExhaustedException> EXHAUSTED = new ThreadLocal<>();
+    //当前线程累计的数据库错误次数，只增不减
+    private static final ThreadLocal<int[]> DATABASE_ERRORS = ThreadLocal.withInitial(() -> new int[1]);
+    //超过该值的超时时间按不限制处理，换算成纳秒后与nanoTime相加的差值不会溢出
+    private static final long MAX_TIMEOUT_MILLIS = Long.MAX_VALUE / 2 / 1_000_000L;
+
+    private RequestDeadline() {
+    }
+
+    /**
+     * 开始一个请求
+     * @param budgetMillis 请求预算（毫秒），0表示不限制
+     */
+    public static void begin(long budgetMillis) {
+        EXHAUSTED.remove();
+        if (budgetMillis > 0) {
+            DEADLINE.set(System.nanoTime() + budgetMillis * 1_000_000L);
+        } else {
+            DEADLINE.remove();
+        }
+    }
+
+    /**
+     * 结束当前请求，清理线程绑定的状态
+     */
+    public static void end() {
+        DEADLINE.remove();
+        EXHAUSTED.remove();
+    }
+
+    /**
+     * 获取当前请求剩余的预算
+     * @return 剩余时间（毫秒），未设置截止时间时返回Long.MAX_VALUE
+     */
+    public static long remainingMillis() {
+        Long deadline = DEADLINE.get();
+        if (deadline == null) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, (deadline - System.nanoTime()) / 1_000_000L);
+    }
+
+    /**
+     * 计算从现在起经过指定时间后的截止时刻
+     * 与begin相同使用System.nanoTime()，调整系统时钟不会让等待提前结束或无限延长
+     * @param timeoutMillis 超时时间（毫秒），Long.MAX_VALUE表示不限制
+     * @return 截止时刻（System.nanoTime()时间基准），不限制时返回Long.MAX_VALUE
+     */
+    static long deadlineAfter(long timeoutMillis) {
+        if (timeoutMillis >= MAX_TIMEOUT_MILLIS) {
+            return Long.MAX_VALUE;
+        }
+        return System.nanoTime() + timeoutMillis * 1_000_000L;
+    }
+
+    /**
+     * 计算距离截止时刻的剩余时间
+     * @param deadline deadlineAfter返回的截止时刻
+     * @return 剩余时间（毫秒），已过期时返回0
+     */
+    static long remainingUntil(long deadline) {
+        if (deadline == Long.MAX_VALUE) {
+            return Long.MAX_VALUE;
+        }
+        //nanoTime可能为负数，只能比较差值
+        return Math.max(0, (deadline - System.nanoTime()) / 1_000_000L);
+    }
+
+    /**
+     * 记录当前请求因连接池耗尽而失败
+     * @param e 连接池耗尽异常
+     */
+    static void markExhausted(PoolExhaustedException e) {
+        EXHAUSTED.set(e);
+    }
+
+    /**
+     * 清除当前请求的连接池耗尽记录，用于失败的查询已经由缓存数据兜底的情况
+     * @param e 要清除的异常，当前记录的不是该异常时不做处理
+     */
+    public static void clearExhausted(PoolExhaustedException e) {
+        if (EXHAUSTED.get() == e) {
+            EXHAUSTED.remove();
+        }
+    }
+
+    /**
+     * 获取当前请求中发生的连接池耗尽异常
+     * @return 异常，没有发生时返回null
+     */
+    public static PoolExhaustedException exhausted() {
+        return EXHAUSTED.get();
+    }
+
+    /**
+     * 记录当前线程发生了一次数据库错误（获取连接失败、SQL执行异常或超时）
+     */
+    static void recordDatabaseError() {
+        DATABASE_ERRORS.get()[0]++;
+    }
+
+    /**
+     * 获取当前线程累计的数据库错误次数
+     * @return 错误次数
+     */
+    public static int databaseErrors() {
+        return DATABASE_ERRORS.get()[0];
+    }
+}
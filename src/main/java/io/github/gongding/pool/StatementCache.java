@@ -0,0 +1,159 @@
+package io.github.gongding.pool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个物理连接上的PreparedStatement缓存（LRU）
+ * 以SQL文本（及生成键、结果集类型等参数）为键，跨借用复用已预编译的语句；
+ * DAO关闭语句时只是把语句还回缓存。缓存只会被当前持有连接的线程访问，因此不需要加锁
+ */
+final class StatementCache {
+    private static final Logger logger = LoggerFactory.getLogger(StatementCache.class);
+
+    private final int maxSize;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    //按访问顺序排列，最久未使用的语句在最前面
+    private final LinkedHashMap<String, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+
+    StatementCache(int maxSize, LongAdder hits, LongAdder misses) {
+        this.maxSize = maxSize;
+        this.hits = hits;
+        this.misses = misses;
+    }
+
+    /**
+     * 从缓存中取出语句，未命中时在物理连接上预编译并放入缓存
+     * @param connection 物理连接
+     * @param args prepareStatement的调用参数
+     * @return 已标记为借出的缓存条目；该重载不支持缓存或该语句正被使用时返回null，由调用方直接预编译
+     * @throws SQLException 预编译失败
+     */
+    CachedStatement prepare(Connection connection, Object[] args) throws SQLException {
+        String key = cacheKey(args);
+        if (key == null) {
+            return null;
+        }
+        CachedStatement cached = statements.get(key);
+        if (cached != null && !cached.inUse) {
+            hits.increment();
+            cached.inUse = true;
+            return cached;
+        }
+        misses.increment();
+        if (cached != null) {
+            //同一次借用中同一条SQL被并行使用，第二个语句不进入缓存，由调用方直接预编译
+            return null;
+        }
+        PreparedStatement statement = prepareStatement(connection, args);
+        cached = new CachedStatement(key, statement);
+        cached.inUse = true;
+        statements.put(key, cached);
+        evictIfNecessary();
+        return cached;
+    }
+
+    /**
+     * DAO关闭语句时调用，清空参数后把语句还回缓存；清理失败则从缓存中移除并真正关闭
+     * @param cached 被关闭的缓存语句
+     */
+    void release(CachedStatement cached) {
+        try {
+            cached.statement.clearParameters();
+            cached.statement.clearBatch();
+            cached.statement.clearWarnings();
+            cached.inUse = false;
+        } catch (SQLException e) {
+            logger.debug("复位缓存的PreparedStatement失败，从缓存中移除。", e);
+            statements.remove(cached.key, cached);
+            closeQuietly(cached.statement);
+        }
+    }
+
+    /**
+     * 关闭缓存中的所有语句，物理连接被关闭前调用
+     */
+    void closeAll() {
+        for (CachedStatement cached : statements.values()) {
+            closeQuietly(cached.statement);
+        }
+        statements.clear();
+    }
+
+    /**
+     * 超出容量时淘汰最久未使用且未被借出的语句
+     */
+    private void evictIfNecessary() {
+        Iterator<Map.Entry<String, CachedStatement>> iterator = statements.entrySet().iterator();
+        while (statements.size() > maxSize && iterator.hasNext()) {
+            CachedStatement cached = iterator.next().getValue();
+            if (cached.inUse) {
+                continue;
+            }
+            iterator.remove();
+            closeQuietly(cached.statement);
+        }
+    }
+
+    /**
+     * 根据prepareStatement的参数生成缓存键
+     * 只缓存 (sql)、(sql, autoGeneratedKeys)、(sql, resultSetType, resultSetConcurrency) 三种重载
+     * @param args 调用参数
+     * @return 缓存键，不支持缓存时返回null
+     */
+    private static String cacheKey(Object[] args) {
+        if (args.length == 1) {
+            return (String) args[0];
+        }
+        if (args.length == 2 && args[1] instanceof Integer) {
+            return args[0] + "\u0000keys=" + args[1];
+        }
+        if (args.length == 3 && args[1] instanceof Integer && args[2] instanceof Integer) {
+            return args[0] + "\u0000type=" + args[1] + "," + args[2];
+        }
+        return null;
+    }
+
+    private static PreparedStatement prepareStatement(Connection connection, Object[] args) throws SQLException {
+        String sql = (String) args[0];
+        if (args.length == 1) {
+            return connection.prepareStatement(sql);
+        }
+        if (args.length == 2) {
+            return connection.prepareStatement(sql, (Integer) args[1]);
+        }
+        return connection.prepareStatement(sql, (Integer) args[1], (Integer) args[2]);
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            logger.debug("关闭缓存的PreparedStatement时发生异常。", e);
+        }
+    }
+
+    /**
+     * 缓存中的一条语句
+     */
+    static final class CachedStatement {
+        final String key;
+        final PreparedStatement statement;
+        //是否正被某个DAO使用
+        boolean inUse;
+
+        CachedStatement(String key, PreparedStatement statement) {
+            this.key = key;
+            this.statement = statement;
+        }
+    }
+}
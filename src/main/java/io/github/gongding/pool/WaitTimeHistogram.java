@@ -0,0 +1,84 @@
+package io.github.gongding.pool;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 借用等待时间直方图
+ * 桶的上界固定，记录一次等待只需一次计数器累加，不会在借用路径上产生竞争
+ */
+public class WaitTimeHistogram {
+    //各个桶的上界（毫秒），最后还有一个不设上界的桶
+    private static final long[] BOUNDS = {1, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];
+    private final LongAdder sum = new LongAdder();
+
+    public WaitTimeHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * 记录一次等待
+     * @param millis 等待时间（毫秒）
+     */
+    public void record(long millis) {
+        int i = 0;
+        while (i < BOUNDS.length && millis > BOUNDS[i]) {
+            i++;
+        }
+        buckets[i].increment();
+        sum.add(millis);
+    }
+
+    /**
+     * 获取各个桶的上界
+     * @return 上界数组（毫秒），不包含最后一个不设上界的桶
+     */
+    public long[] getBounds() {
+        return BOUNDS.clone();
+    }
+
+    /**
+     * 获取各个桶的累计计数，第i个值是等待时间不超过第i个上界的次数，最后一个值是总次数
+     * @return 累计计数数组，长度比上界数组多1
+     */
+    public long[] getCumulativeCounts() {
+        long[] counts = new long[buckets.length];
+        long total = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            total += buckets[i].sum();
+            counts[i] = total;
+        }
+        return counts;
+    }
+
+    /**
+     * 获取累计等待时间
+     * @return 等待时间（毫秒）
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * 按桶估算分位数，返回分位数所在桶的上界
+     * @param quantile 分位数，如0.99
+     * @return 等待时间上界（毫秒），落在最后一个桶时返回最大的上界，没有记录时返回0
+     */
+    public long estimate(double quantile) {
+        long[] counts = getCumulativeCounts();
+        long total = counts[counts.length - 1];
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * quantile);
+        for (int i = 0; i < BOUNDS.length; i++) {
+            if (counts[i] >= rank) {
+                return BOUNDS[i];
+            }
+        }
+        return BOUNDS[BOUNDS.length - 1];
+    }
+}
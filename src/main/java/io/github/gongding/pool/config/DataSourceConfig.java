@@ -1,11 +1,27 @@
 package io.github.gongding.pool.config;
 
+import java.io.File;
+import java.io.InputStream;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URL;
 import java.util.Properties;
 import java.util.Set;
 
+/**
+ * 数据源配置
+ * 从db.properties加载字符串形式的配置，环境变量和系统属性可以覆盖文件中的值，优先级：系统属性 > 环境变量 > 配置文件。
+ * 系统属性与配置项同名（如 -Djdbc.maxSize=20），环境变量为大写加下划线（如 JDBC_MAX_SIZE=20）。
+ * 系统属性anotherview.db.config指定外部配置文件路径时，使用该文件代替classpath中的db.properties。
+ * 连接池使用的是由本类解析得到的PoolSettings
+ */
 public class DataSourceConfig {
+    //主库配置项的前缀
+    public static final String PRIMARY_PREFIX = "jdbc";
+    //指定外部配置文件路径的系统属性
+    public static final String CONFIG_PATH_PROPERTY = "anotherview.db.config";
+
     private String driver;
     private String url;
     private String username;
@@ -15,39 +31,199 @@ public class DataSourceConfig {
     private String initSize = "3";
     //连接池最大大小
     private String maxSize = "10";
+    //最小空闲连接数，后台线程会提前准备好这些备用连接
+    private String minIdle = "0";
+    //最大空闲连接数，超出部分由定时维护任务关闭
+    private String maxIdle = "10";
+    //空闲连接超时时间（毫秒），超过minIdle的空闲连接空闲超过该时间后关闭，0表示不限制
+    private String idleTimeout = "600000";
+    //连接最大存活时间（毫秒），应小于MySQL的wait_timeout，0表示不限制
+    private String maxLifetime = "1800000";
     //是否开启连接安全检查
     private String health = "true";
     //健康检查启动延迟时间（毫秒）
     private String delay = "1000";
     //健康检查执行间隔时间（毫秒）
     private String period = "1000";
-    //连接超时时间（毫秒）
+    //连接持有超时时间（毫秒），超过后由健康检查报告疑似泄漏
     private String timeout = "1000";
+    //泄漏检测时每隔多少次借用记录一次调用栈，0表示不记录
+    private String leakStackSampling = "1";
+    //空闲超过该时间（毫秒）的连接在借出前需要校验，近期使用过的连接直接借出
+    private String validationSkipWindow = "500";
+    //借出前校验连接的超时时间（毫秒）
+    private String validationTimeout = "3000";
+    //校验连接使用的SQL，为空时使用驱动的Connection.isValid（MySQL驱动会发送ping）
+    private String validationQuery = "";
+    //每个连接缓存的PreparedStatement数量，0表示不缓存
+    private String statementCacheSize = "0";
+    //连接池分道，格式为 名称:保留数:上限，多个分道用逗号分隔，为空表示不分道（仅concurrent连接池支持）
+    private String lanes = "";
+    //请求路径到分道的映射，格式为 路径前缀=分道名称，多个映射用逗号分隔，按最长前缀匹配
+    private String laneRoutes = "";
+    //获取连接的最长等待时间（毫秒），超时抛出PoolExhaustedException，0表示一直等待
+    private String connectionTimeout = "30000";
+    //单个HTTP请求的处理预算（毫秒），获取连接和执行SQL都不会超过剩余预算，0表示不限制
+    private String requestTimeout = "0";
+    //按路径前缀单独设置的请求预算，格式为 路径前缀=毫秒，多个用逗号分隔，未匹配的请求使用requestTimeout
+    private String requestTimeoutRoutes = "";
+    //是否根据借用统计自动调整最大连接数（仅concurrent连接池支持）
+    private String adaptiveSizing = "false";
+    //自动调整时最大连接数的下限
+    private String adaptiveMinSize = "5";
+    //自动调整时最大连接数的上限，应小于MySQL的max_connections
+    private String adaptiveMaxSize = "50";
+    //自动调整的采样周期（毫秒）
+    private String adaptiveInterval = "10000";
+    //在估算的占用数之上额外保留的比例
+    private String adaptiveHeadroom = "0.2";
+    //平均借用等待超过该值（毫秒）时扩容
+    private String adaptiveWaitThreshold = "5";
+    //除主库外需要创建的具名连接池，多个名称用逗号分隔，每个连接池使用 名称.xxx 配置项
+    private String pools = "";
+    //承担只读查询的连接池名称，多个时轮流使用，为空时读请求也走主库
+    private String readPools = "";
+    //写入后该时间（毫秒）内同一会话的读请求仍走主库，应大于从库复制延迟
+    private String readYourWritesWindow = "5000";
     //获取连接等待时间（毫秒）
     private String waittime = "500000";
+    //连接池实现：legacy为原有的同步连接池，concurrent为无锁连接池
+    private String poolType = "legacy";
+    //检查配置文件是否修改的间隔（毫秒），修改后自动重新加载，0表示不检查
+    private String reloadInterval = "0";
+    //应用关闭时等待借出的连接归还的最长时间（毫秒），超时后强制关闭
+    private String shutdownTimeout = "10000";
+    //连续失败（获取连接超时、建连失败、连接断开）达到该次数后熔断，0表示不熔断
+    private String breakerThreshold = "5";
+    //熔断后拒绝获取连接的时间（毫秒），之后放行一次探测请求
+    private String breakerOpenTime = "10000";
+    //数据库不可用时兜底返回的只读数据最长可以是多久之前读取的（毫秒），0表示不限制
+    private String lastKnownGoodMaxAge = "300000";
+    //最多保存多少个键的兜底数据，超过后淘汰最久未使用的键
+    private String lastKnownGoodMaxEntries = "10000";
 
     /**
-     * 构造方法
+     * 构造方法，加载主库（jdbc.xxx）配置
      */
     public DataSourceConfig() {
+        this(PRIMARY_PREFIX);
+    }
+
+    /**
+     * 构造方法，加载具名连接池的配置
+     * 先加载主库的jdbc.xxx配置，再用 名称.xxx 覆盖，未单独配置的项沿用主库的值
+     * @param prefix 配置项前缀，即连接池名称
+     * @throws IllegalArgumentException 存在没有对应字段的配置项
+     * @throws IllegalStateException 配置文件不存在或读取失败
+     */
+    public DataSourceConfig(String prefix) {
+        Properties properties = new Properties();
+        try (InputStream in = locate().openStream()) {
+            properties.load(in);
+        } catch (Exception e) {
+            throw new IllegalStateException("读取数据源配置文件失败", e);
+        }
+        applyOverrides(properties, PRIMARY_PREFIX);
+        load(properties, PRIMARY_PREFIX);
+        if (!PRIMARY_PREFIX.equals(prefix)) {
+            applyOverrides(properties, prefix);
+            load(properties, prefix);
+        }
+    }
+
+    /**
+     * 获取配置文件的位置
+     * @return 外部配置文件或classpath中的db.properties
+     * @throws Exception 配置文件不存在
+     */
+    public static URL locate() throws Exception {
+        String path = System.getProperty(CONFIG_PATH_PROPERTY);
+        if (path != null && !path.trim().isEmpty()) {
+            return new File(path.trim()).toURI().toURL();
+        }
+        URL url = DataSourceConfig.class.getClassLoader().getResource("db.properties");
+        if (url == null) {
+            throw new IllegalStateException("找不到配置文件 db.properties");
+        }
+        return url;
+    }
+
+    /**
+     * 获取配置文件的最后修改时间，用于判断是否需要重新加载
+     * @return 最后修改时间，配置文件不在文件系统上（如打包在jar中）时返回0
+     */
+    public static long lastModified() {
         try {
-            Properties properties = new Properties();
-            properties.load(DataSourceConfig.class.getClassLoader().getResourceAsStream("db.properties"));
-            Set<Object> keySet = properties.keySet();
-            for (Object key : keySet) {
-                String filedName = key.toString().split("\\.")[1];
-                String filedValue = properties.getProperty(key.toString());
+            URL url = locate();
+            return "file".equals(url.getProtocol()) ? new File(url.toURI()).lastModified() : 0;
+        } catch (Exception e) {
+            return 0;
+        }
+    }
 
-                //使用反射获取当前类的字段（根据属性名）
-                Field field = this.getClass().getDeclaredField(filedName);
+    /**
+     * 用环境变量和系统属性覆盖指定前缀的配置项
+     * @param properties 配置文件内容
+     * @param prefix 配置项前缀
+     */
+    private void applyOverrides(Properties properties, String prefix) {
+        for (Field field : DataSourceConfig.class.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers())) {
+                continue;
+            }
+            String key = prefix + "." + field.getName();
+            String value = System.getProperty(key);
+            if (value == null) {
+                value = System.getenv(toEnvName(prefix, field.getName()));
+            }
+            if (value != null) {
+                properties.setProperty(key, value);
+            }
+        }
+    }
+
+    /**
+     * 将配置项转换为环境变量名，如 jdbc.maxSize 转换为 JDBC_MAX_SIZE
+     * @param prefix 配置项前缀
+     * @param filedName 字段名
+     * @return 环境变量名
+     */
+    static String toEnvName(String prefix, String filedName) {
+        return (prefix + "_" + filedName.replaceAll("([a-z0-9])([A-Z])", "$1_$2"))
+                .replace('-', '_').replace('.', '_').toUpperCase();
+    }
+
+    /**
+     * 把指定前缀的配置项设置到对应字段中
+     * @param properties 配置文件内容
+     * @param prefix 配置项前缀
+     * @throws IllegalArgumentException 配置项没有对应的字段，如拼写错误
+     */
+    private void load(Properties properties, String prefix) {
+        Set<Object> keySet = properties.keySet();
+        for (Object key : keySet) {
+            String[] parts = key.toString().split("\\.", 2);
+            if (parts.length != 2 || !prefix.equals(parts[0])) {
+                continue;
+            }
+            String filedName = parts[1];
+            String filedValue = properties.getProperty(key.toString());
 
+            Method method;
+            try {
+                //使用反射获取当前类的字段（根据属性名）
+                Field field = DataSourceConfig.class.getDeclaredField(filedName);
                 //使用反射获取当前类的setter方法
-                Method method = this.getClass().getDeclaredMethod(toUpper(filedName), field.getType());
+                method = DataSourceConfig.class.getDeclaredMethod(toUpper(filedName), field.getType());
+            } catch (NoSuchFieldException | NoSuchMethodException e) {
+                throw new IllegalArgumentException("未知的配置项: " + key);
+            }
+            try {
                 //使用反射调用setter方法，将属性值设置到对应的字段中
                 method.invoke(this, filedValue);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("设置配置项 " + key + " 失败", e);
             }
-        } catch (Exception e) {
-            e.printStackTrace();
         }
     }
 
@@ -99,6 +275,38 @@ public class DataSourceConfig {
         this.maxSize = maxSize;
     }
 
+    public String getMinIdle() {
+        return minIdle;
+    }
+
+    public void setMinIdle(String minIdle) {
+        this.minIdle = minIdle;
+    }
+
+    public String getMaxIdle() {
+        return maxIdle;
+    }
+
+    public void setMaxIdle(String maxIdle) {
+        this.maxIdle = maxIdle;
+    }
+
+    public String getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(String idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public String getMaxLifetime() {
+        return maxLifetime;
+    }
+
+    public void setMaxLifetime(String maxLifetime) {
+        this.maxLifetime = maxLifetime;
+    }
+
     public String getHealth() {
         return health;
     }
@@ -131,6 +339,158 @@ public class DataSourceConfig {
         this.timeout = timeout;
     }
 
+    public String getLeakStackSampling() {
+        return leakStackSampling;
+    }
+
+    public void setLeakStackSampling(String leakStackSampling) {
+        this.leakStackSampling = leakStackSampling;
+    }
+
+    public String getValidationSkipWindow() {
+        return validationSkipWindow;
+    }
+
+    public void setValidationSkipWindow(String validationSkipWindow) {
+        this.validationSkipWindow = validationSkipWindow;
+    }
+
+    public String getValidationTimeout() {
+        return validationTimeout;
+    }
+
+    public void setValidationTimeout(String validationTimeout) {
+        this.validationTimeout = validationTimeout;
+    }
+
+    public String getValidationQuery() {
+        return validationQuery;
+    }
+
+    public void setValidationQuery(String validationQuery) {
+        this.validationQuery = validationQuery;
+    }
+
+    public String getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    public void setStatementCacheSize(String statementCacheSize) {
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    public String getLanes() {
+        return lanes;
+    }
+
+    public void setLanes(String lanes) {
+        this.lanes = lanes;
+    }
+
+    public String getLaneRoutes() {
+        return laneRoutes;
+    }
+
+    public void setLaneRoutes(String laneRoutes) {
+        this.laneRoutes = laneRoutes;
+    }
+
+    public String getConnectionTimeout() {
+        return connectionTimeout;
+    }
+
+    public void setConnectionTimeout(String connectionTimeout) {
+        this.connectionTimeout = connectionTimeout;
+    }
+
+    public String getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    public void setRequestTimeout(String requestTimeout) {
+        this.requestTimeout = requestTimeout;
+    }
+
+    public String getRequestTimeoutRoutes() {
+        return requestTimeoutRoutes;
+    }
+
+    public void setRequestTimeoutRoutes(String requestTimeoutRoutes) {
+        this.requestTimeoutRoutes = requestTimeoutRoutes;
+    }
+
+    public String getAdaptiveSizing() {
+        return adaptiveSizing;
+    }
+
+    public void setAdaptiveSizing(String adaptiveSizing) {
+        this.adaptiveSizing = adaptiveSizing;
+    }
+
+    public String getAdaptiveMinSize() {
+        return adaptiveMinSize;
+    }
+
+    public void setAdaptiveMinSize(String adaptiveMinSize) {
+        this.adaptiveMinSize = adaptiveMinSize;
+    }
+
+    public String getAdaptiveMaxSize() {
+        return adaptiveMaxSize;
+    }
+
+    public void setAdaptiveMaxSize(String adaptiveMaxSize) {
+        this.adaptiveMaxSize = adaptiveMaxSize;
+    }
+
+    public String getAdaptiveInterval() {
+        return adaptiveInterval;
+    }
+
+    public void setAdaptiveInterval(String adaptiveInterval) {
+        this.adaptiveInterval = adaptiveInterval;
+    }
+
+    public String getAdaptiveHeadroom() {
+        return adaptiveHeadroom;
+    }
+
+    public void setAdaptiveHeadroom(String adaptiveHeadroom) {
+        this.adaptiveHeadroom = adaptiveHeadroom;
+    }
+
+    public String getAdaptiveWaitThreshold() {
+        return adaptiveWaitThreshold;
+    }
+
+    public void setAdaptiveWaitThreshold(String adaptiveWaitThreshold) {
+        this.adaptiveWaitThreshold = adaptiveWaitThreshold;
+    }
+
+    public String getPools() {
+        return pools;
+    }
+
+    public void setPools(String pools) {
+        this.pools = pools;
+    }
+
+    public String getReadPools() {
+        return readPools;
+    }
+
+    public void setReadPools(String readPools) {
+        this.readPools = readPools;
+    }
+
+    public String getReadYourWritesWindow() {
+        return readYourWritesWindow;
+    }
+
+    public void setReadYourWritesWindow(String readYourWritesWindow) {
+        this.readYourWritesWindow = readYourWritesWindow;
+    }
+
     public String getWaittime() {
         return waittime;
     }
@@ -139,6 +499,62 @@ public class DataSourceConfig {
         this.waittime = waittime;
     }
 
+    public String getPoolType() {
+        return poolType;
+    }
+
+    public void setPoolType(String poolType) {
+        this.poolType = poolType;
+    }
+
+    public String getReloadInterval() {
+        return reloadInterval;
+    }
+
+    public void setReloadInterval(String reloadInterval) {
+        this.reloadInterval = reloadInterval;
+    }
+
+    public String getShutdownTimeout() {
+        return shutdownTimeout;
+    }
+
+    public void setShutdownTimeout(String shutdownTimeout) {
+        this.shutdownTimeout = shutdownTimeout;
+    }
+
+    public String getBreakerThreshold() {
+        return breakerThreshold;
+    }
+
+    public void setBreakerThreshold(String breakerThreshold) {
+        this.breakerThreshold = breakerThreshold;
+    }
+
+    public String getBreakerOpenTime() {
+        return breakerOpenTime;
+    }
+
+    public void setBreakerOpenTime(String breakerOpenTime) {
+        this.breakerOpenTime = breakerOpenTime;
+    }
+
+    public String getLastKnownGoodMaxAge() {
+        return lastKnownGoodMaxAge;
+    }
+
+    public void setLastKnownGoodMaxAge(String lastKnownGoodMaxAge) {
+        this.lastKnownGoodMaxAge = lastKnownGoodMaxAge;
+    }
+
+    public String getLastKnownGoodMaxEntries() {
+        return lastKnownGoodMaxEntries;
+    }
+
+    public void setLastKnownGoodMaxEntries(String lastKnownGoodMaxEntries) {
+        this.lastKnownGoodMaxEntries = lastKnownGoodMaxEntries;
+    }
+
     @Override
     public String toString() {
         return "DataSourceConfig{" +
@@ -148,11 +564,41 @@ public class DataSourceConfig {
                 ", password='" + password + '\'' +
                 ", initSize='" + initSize + '\'' +
                 ", maxSize='" + maxSize + '\'' +
+                ", minIdle='" + minIdle + '\'' +
+                ", maxIdle='" + maxIdle + '\'' +
+                ", idleTimeout='" + idleTimeout + '\'' +
+                ", maxLifetime='" + maxLifetime + '\'' +
                 ", health='" + health + '\'' +
                 ", delay='" + delay + '\'' +
                 ", period='" + period + '\'' +
                 ", timeout='" + timeout + '\'' +
+                ", leakStackSampling='" + leakStackSampling + '\'' +
+                ", validationSkipWindow='" + validationSkipWindow + '\'' +
+                ", validationTimeout='" + validationTimeout + '\'' +
+                ", validationQuery='" + validationQuery + '\'' +
+                ", statementCacheSize='" + statementCacheSize + '\'' +
+                ", lanes='" + lanes + '\'' +
+                ", laneRoutes='" + laneRoutes + '\'' +
+                ", connectionTimeout='" + connectionTimeout + '\'' +
+                ", requestTimeout='" + requestTimeout + '\'' +
+                ", requestTimeoutRoutes='" + requestTimeoutRoutes + '\'' +
+                ", adaptiveSizing='" + adaptiveSizing + '\'' +
+                ", adaptiveMinSize='" + adaptiveMinSize + '\'' +
+                ", adaptiveMaxSize='" + adaptiveMaxSize + '\'' +
+                ", adaptiveInterval='" + adaptiveInterval + '\'' +
+                ", adaptiveHeadroom='" + adaptiveHeadroom + '\'' +
+                ", adaptiveWaitThreshold='" + adaptiveWaitThreshold + '\'' +
+                ", pools='" + pools + '\'' +
+                ", readPools='" + readPools + '\'' +
+                ", readYourWritesWindow='" + readYourWritesWindow + '\'' +
                 ", waittime='" + waittime + '\'' +
+                ", poolType='" + poolType + '\'' +
+                ", reloadInterval='" + reloadInterval + '\'' +
+                ", shutdownTimeout='" + shutdownTimeout + '\'' +
+                ", breakerThreshold='" + breakerThreshold + '\'' +
+                ", breakerOpenTime='" + breakerOpenTime + '\'' +
+                ", lastKnownGoodMaxAge='" + lastKnownGoodMaxAge + '\'' +
+                ", lastKnownGoodMaxEntries='" + lastKnownGoodMaxEntries + '\'' +
                 '}';
     }
 
@@ -0,0 +1,523 @@
+package io.github.gongding.pool.config;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 连接池配置快照
+ * 由DataSourceConfig中的字符串配置解析得到，所有值在创建时完成类型转换和校验，创建后不可修改。
+ * 热加载时生成新的快照并整体替换，连接池不会读到一半新一半旧的配置
+ */
+public final class PoolSettings {
+    //运行时修改后可以生效的配置项，其余配置项需要重启应用。
+    //driver、url、username、password和maxLifetime只对之后新建的连接生效，已有连接到期后自然轮换
+    public static final Set<String> RELOADABLE = Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(
+            "driver", "url", "username", "password", "maxSize", "minIdle", "maxIdle", "idleTimeout", "maxLifetime",
+            "health", "timeout", "leakStackSampling", "validationSkipWindow", "validationTimeout", "validationQuery",
+            "connectionTimeout", "requestTimeout", "requestTimeoutRoutes", "readYourWritesWindow", "waittime", "shutdownTimeout",
+            "breakerThreshold", "breakerOpenTime", "lastKnownGoodMaxAge", "lastKnownGoodMaxEntries")));
+
+    private final String driver;
+    private final String url;
+    private final String username;
+    private final String password;
+    private final int initSize;
+    private final int maxSize;
+    private final int minIdle;
+    private final int maxIdle;
+    private final long idleTimeout;
+    private final long maxLifetime;
+    private final boolean health;
+    private final long delay;
+    private final long period;
+    private final long timeout;
+    private final int leakStackSampling;
+    private final long validationSkipWindow;
+    private final long validationTimeout;
+    private final String validationQuery;
+    private final int statementCacheSize;
+    private final String lanes;
+    private final String laneRoutes;
+    private final long connectionTimeout;
+    private final long requestTimeout;
+    //路径前缀到请求预算的映射，按前缀长度降序排列
+    private final Map<String, Long> requestTimeoutRoutes;
+    private final boolean adaptiveSizing;
+    private final int adaptiveMinSize;
+    private final int adaptiveMaxSize;
+    private final long adaptiveInterval;
+    private final double adaptiveHeadroom;
+    private final double adaptiveWaitThreshold;
+    private final List<String> pools;
+    private final List<String> readPools;
+    private final long readYourWritesWindow;
+    private final long waittime;
+    private final String poolType;
+    private final long reloadInterval;
+    private final long shutdownTimeout;
+    private final int breakerThreshold;
+    private final long breakerOpenTime;
+    private final long lastKnownGoodMaxAge;
+    private final int lastKnownGoodMaxEntries;
+
+    private PoolSettings(DataSourceConfig config, List<String> errors) {
+        driver = text(config.getDriver());
+        url = text(config.getUrl());
+        username = text(config.getUsername());
+        password = config.getPassword() == null ? "" : config.getPassword();
+        initSize = parseInt("initSize", config.getInitSize(), 0, errors);
+        maxSize = parseInt("maxSize", config.getMaxSize(), 1, errors);
+        minIdle = parseInt("minIdle", config.getMinIdle(), 0, errors);
+        maxIdle = parseInt("maxIdle", config.getMaxIdle(), 0, errors);
+        idleTimeout = parseLong("idleTimeout", config.getIdleTimeout(), 0, errors);
+        maxLifetime = parseLong("maxLifetime", config.getMaxLifetime(), 0, errors);
+        health = parseBoolean("health", config.getHealth(), errors);
+        delay = parseLong("delay", config.getDelay(), 0, errors);
+        period = parseLong("period", config.getPeriod(), 1, errors);
+        timeout = parseLong("timeout", config.getTimeout(), 0, errors);
+        leakStackSampling = parseInt("leakStackSampling", config.getLeakStackSampling(), 0, errors);
+        validationSkipWindow = parseLong("validationSkipWindow", config.getValidationSkipWindow(), 0, errors);
+        validationTimeout = parseLong("validationTimeout", config.getValidationTimeout(), 0, errors);
+        validationQuery = text(config.getValidationQuery());
+        statementCacheSize = parseInt("statementCacheSize", config.getStatementCacheSize(), 0, errors);
+        lanes = text(config.getLanes());
+        laneRoutes = text(config.getLaneRoutes());
+        connectionTimeout = parseLong("connectionTimeout", config.getConnectionTimeout(), 0, errors);
+        requestTimeout = parseLong("requestTimeout", config.getRequestTimeout(), 0, errors);
+        requestTimeoutRoutes = routes("requestTimeoutRoutes", config.getRequestTimeoutRoutes(), errors);
+        adaptiveSizing = parseBoolean("adaptiveSizing", config.getAdaptiveSizing(), errors);
+        adaptiveMinSize = parseInt("adaptiveMinSize", config.getAdaptiveMinSize(), 1, errors);
+        adaptiveMaxSize = parseInt("adaptiveMaxSize", config.getAdaptiveMaxSize(), 1, errors);
+        adaptiveInterval = parseLong("adaptiveInterval", config.getAdaptiveInterval(), 1, errors);
+        adaptiveHeadroom = parseDouble("adaptiveHeadroom", config.getAdaptiveHeadroom(), errors);
+        adaptiveWaitThreshold = parseDouble("adaptiveWaitThreshold", config.getAdaptiveWaitThreshold(), errors);
+        pools = names(config.getPools());
+        readPools = names(config.getReadPools());
+        readYourWritesWindow = parseLong("readYourWritesWindow", config.getReadYourWritesWindow(), 0, errors);
+        waittime = parseLong("waittime", config.getWaittime(), 1, errors);
+        poolType = text(config.getPoolType()).toLowerCase();
+        reloadInterval = parseLong("reloadInterval", config.getReloadInterval(), 0, errors);
+        shutdownTimeout = parseLong("shutdownTimeout", config.getShutdownTimeout(), 0, errors);
+        breakerThreshold = parseInt("breakerThreshold", config.getBreakerThreshold(), 0, errors);
+        breakerOpenTime = parseLong("breakerOpenTime", config.getBreakerOpenTime(), 1, errors);
+        lastKnownGoodMaxAge = parseLong("lastKnownGoodMaxAge", config.getLastKnownGoodMaxAge(), 0, errors);
+        lastKnownGoodMaxEntries = parseInt("lastKnownGoodMaxEntries", config.getLastKnownGoodMaxEntries(), 1, errors);
+
+        if (driver.isEmpty()) {
+            errors.add("driver 不能为空");
+        }
+        if (url.isEmpty()) {
+            errors.add("url 不能为空");
+        }
+        if (!"legacy".equals(poolType) && !"concurrent".equals(poolType)) {
+            errors.add("poolType 只能是 legacy 或 concurrent: '" + poolType + "'");
+        }
+        if (adaptiveMinSize > adaptiveMaxSize) {
+            errors.add("adaptiveMinSize 不能大于 adaptiveMaxSize");
+        }
+        if ("concurrent".equals(poolType)) {
+            validateLanes(errors);
+        }
+    }
+
+    /**
+     * 校验分道和分道路由配置，规则与PoolLanes构造方法一致，配置有误时在解析阶段就被拒绝，
+     * 热加载时沿用上一份配置，而不是等到创建连接池或调整最大连接数时才失败
+     * @param errors 收集错误信息
+     */
+    private void validateLanes(List<String> errors) {
+        Set<String> laneNames = new HashSet<>();
+        long reservedTotal = 0;
+        for (String item : lanes.split(",")) {
+            if (item.trim().isEmpty()) {
+                continue;
+            }
+            String[] parts = item.trim().split(":");
+            if (parts.length != 3 || parts[0].trim().isEmpty()) {
+                errors.add("lanes 格式应为 名称:保留数:上限: '" + item.trim() + "'");
+                continue;
+            }
+            String name = parts[0].trim();
+            int reserved = parseInt("lanes." + name + " 保留数", parts[1], 0, errors);
+            int cap = parseInt("lanes." + name + " 上限", parts[2], 1, errors);
+            if (reserved > Math.min(cap, maxSize)) {
+                errors.add("lanes." + name + " 保留数 " + reserved + " 不能大于上限和maxSize: '" + item.trim() + "'");
+            }
+            if (!laneNames.add(name)) {
+                errors.add("lanes 中分道名称重复: " + name);
+            }
+            reservedTotal += reserved;
+        }
+        if (reservedTotal > maxSize) {
+            errors.add("lanes 保留数之和 " + reservedTotal + " 不能大于 maxSize " + maxSize);
+        }
+        for (String item : laneRoutes.split(",")) {
+            if (item.trim().isEmpty()) {
+                continue;
+            }
+            String[] parts = item.split("=");
+            if (parts.length != 2 || parts[0].trim().isEmpty() || parts[1].trim().isEmpty()) {
+                errors.add("laneRoutes 格式应为 路径前缀=分道名称: '" + item.trim() + "'");
+            }
+        }
+    }
+
+    /**
+     * 解析并校验配置
+     * @param config 字符串形式的配置
+     * @return 配置快照
+     * @throws IllegalArgumentException 存在无法解析或不合法的配置项，异常信息列出所有问题
+     */
+    public static PoolSettings from(DataSourceConfig config) {
+        List<String> errors = new ArrayList<>();
+        PoolSettings settings = new PoolSettings(config, errors);
+        if (!errors.isEmpty()) {
+            throw new IllegalArgumentException("连接池配置不合法: " + String.join("；", errors));
+        }
+        return settings;
+    }
+
+    private static String text(String value) {
+        return value == null ? "" : value.trim();
+    }
+
+    private static List<String> names(String value) {
+        return Collections.unmodifiableList(Arrays.stream(text(value).split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .distinct()
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * 解析 路径前缀=毫秒 形式的路由配置
+     * @param key 配置项名称
+     * @param value 配置值
+     * @param errors 收集错误信息
+     * @return 路径前缀到毫秒数的映射，按前缀长度降序排列，最长的前缀优先匹配
+     */
+    private static Map<String, Long> routes(String key, String value, List<String> errors) {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>();
+        for (String item : text(value).split(",")) {
+            if (item.trim().isEmpty()) {
+                continue;
+            }
+            String[] parts = item.split("=");
+            if (parts.length != 2 || parts[0].trim().isEmpty()) {
+                errors.add(key + " 格式应为 路径前缀=毫秒: '" + item.trim() + "'");
+                continue;
+            }
+            entries.add(new AbstractMap.SimpleImmutableEntry<>(parts[0].trim(), parseLong(key, parts[1], 0, errors)));
+        }
+        entries.sort((a, b) -> Integer.compare(b.getKey().length(), a.getKey().length()));
+        Map<String, Long> routes = new LinkedHashMap<>();
+        entries.forEach(entry -> routes.put(entry.getKey(), entry.getValue()));
+        return Collections.unmodifiableMap(routes);
+    }
+
+    private static int parseInt(String key, String value, int min, List<String> errors) {
+        long parsed = parseLong(key, value, min, errors);
+        try {
+            return Math.toIntExact(parsed);
+        } catch (ArithmeticException e) {
+            errors.add(key + " 超出取值范围: " + parsed);
+            return min;
+        }
+    }
+
+    private static long parseLong(String key, String value, long min, List<String> errors) {
+        try {
+            long parsed = Long.parseLong(text(value));
+            if (parsed < min) {
+                errors.add(key + " 不能小于 " + min + ": " + parsed);
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            errors.add(key + " 不是整数: '" + value + "'");
+            return min;
+        }
+    }
+
+    private static double parseDouble(String key, String value, List<String> errors) {
+        try {
+            double parsed = Double.parseDouble(text(value));
+            if (parsed < 0) {
+                errors.add(key + " 不能小于 0: " + parsed);
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            errors.add(key + " 不是数字: '" + value + "'");
+            return 0;
+        }
+    }
+
+    private static boolean parseBoolean(String key, String value, List<String> errors) {
+        String text = text(value);
+        if (!"true".equalsIgnoreCase(text) && !"false".equalsIgnoreCase(text)) {
+            errors.add(key + " 只能是 true 或 false: '" + value + "'");
+        }
+        return Boolean.parseBoolean(text);
+    }
+
+    /**
+     * 找出与另一份配置取值不同的配置项
+     * @param other 另一份配置
+     * @return 取值不同的配置项名称
+     */
+    public Set<String> changedKeys(PoolSettings other) {
+        Map<String, Object> mine = values();
+        Map<String, Object> theirs = other.values();
+        return mine.keySet().stream()
+                .filter(key -> !Objects.equals(mine.get(key), theirs.get(key)))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    private Map<String, Object> values() {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("driver", driver);
+        values.put("url", url);
+        values.put("username", username);
+        values.put("password", password);
+        values.put("initSize", initSize);
+        values.put("maxSize", maxSize);
+        values.put("minIdle", minIdle);
+        values.put("maxIdle", maxIdle);
+        values.put("idleTimeout", idleTimeout);
+        values.put("maxLifetime", maxLifetime);
+        values.put("health", health);
+        values.put("delay", delay);
+        values.put("period", period);
+        values.put("timeout", timeout);
+        values.put("leakStackSampling", leakStackSampling);
+        values.put("validationSkipWindow", validationSkipWindow);
+        values.put("validationTimeout", validationTimeout);
+        values.put("validationQuery", validationQuery);
+        values.put("statementCacheSize", statementCacheSize);
+        values.put("lanes", lanes);
+        values.put("laneRoutes", laneRoutes);
+        values.put("connectionTimeout", connectionTimeout);
+        values.put("requestTimeout", requestTimeout);
+        values.put("requestTimeoutRoutes", requestTimeoutRoutes);
+        values.put("adaptiveSizing", adaptiveSizing);
+        values.put("adaptiveMinSize", adaptiveMinSize);
+        values.put("adaptiveMaxSize", adaptiveMaxSize);
+        values.put("adaptiveInterval", adaptiveInterval);
+        values.put("adaptiveHeadroom", adaptiveHeadroom);
+        values.put("adaptiveWaitThreshold", adaptiveWaitThreshold);
+        values.put("pools", pools);
+        values.put("readPools", readPools);
+        values.put("readYourWritesWindow", readYourWritesWindow);
+        values.put("waittime", waittime);
+        values.put("poolType", poolType);
+        values.put("reloadInterval", reloadInterval);
+        values.put("shutdownTimeout", shutdownTimeout);
+        values.put("breakerThreshold", breakerThreshold);
+        values.put("breakerOpenTime", breakerOpenTime);
+        values.put("lastKnownGoodMaxAge", lastKnownGoodMaxAge);
+        values.put("lastKnownGoodMaxEntries", lastKnownGoodMaxEntries);
+        return values;
+    }
+
+    public String getDriver() {
+        return driver;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public int getInitSize() {
+        return initSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getMinIdle() {
+        return minIdle;
+    }
+
+    public int getMaxIdle() {
+        return maxIdle;
+    }
+
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public long getMaxLifetime() {
+        return maxLifetime;
+    }
+
+    public boolean isHealth() {
+        return health;
+    }
+
+    public long getDelay() {
+        return delay;
+    }
+
+    public long getPeriod() {
+        return period;
+    }
+
+    public long getTimeout() {
+        return timeout;
+    }
+
+    public int getLeakStackSampling() {
+        return leakStackSampling;
+    }
+
+    /**
+     * 获取泄漏检测阈值，未开启健康检查时为0
+     * @return 泄漏阈值（毫秒）
+     */
+    public long getLeakThreshold() {
+        return health ? timeout : 0;
+    }
+
+    public long getValidationSkipWindow() {
+        return validationSkipWindow;
+    }
+
+    public long getValidationTimeout() {
+        return validationTimeout;
+    }
+
+    public String getValidationQuery() {
+        return validationQuery;
+    }
+
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    public String getLanes() {
+        return lanes;
+    }
+
+    public String getLaneRoutes() {
+        return laneRoutes;
+    }
+
+    public long getConnectionTimeout() {
+        return connectionTimeout;
+    }
+
+    public long getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    public Map<String, Long> getRequestTimeoutRoutes() {
+        return requestTimeoutRoutes;
+    }
+
+    /**
+     * 获取指定路径的请求预算，按最长前缀匹配requestTimeoutRoutes，未匹配时使用requestTimeout
+     * @param path 去掉上下文路径的请求路径
+     * @return 请求预算（毫秒），0表示不限制
+     */
+    public long requestTimeoutFor(String path) {
+        for (Map.Entry<String, Long> route : requestTimeoutRoutes.entrySet()) {
+            if (path.startsWith(route.getKey())) {
+                return route.getValue();
+            }
+        }
+        return requestTimeout;
+    }
+
+    public boolean isAdaptiveSizing() {
+        return adaptiveSizing;
+    }
+
+    public int getAdaptiveMinSize() {
+        return adaptiveMinSize;
+    }
+
+    public int getAdaptiveMaxSize() {
+        return adaptiveMaxSize;
+    }
+
+    public long getAdaptiveInterval() {
+        return adaptiveInterval;
+    }
+
+    public double getAdaptiveHeadroom() {
+        return adaptiveHeadroom;
+    }
+
+    public double getAdaptiveWaitThreshold() {
+        return adaptiveWaitThreshold;
+    }
+
+    public List<String> getPools() {
+        return pools;
+    }
+
+    public List<String> getReadPools() {
+        return readPools;
+    }
+
+    public long getReadYourWritesWindow() {
+        return readYourWritesWindow;
+    }
+
+    public long getWaittime() {
+        return waittime;
+    }
+
+    public String getPoolType() {
+        return poolType;
+    }
+
+    public long getReloadInterval() {
+        return reloadInterval;
+    }
+
+    public long getShutdownTimeout() {
+        return shutdownTimeout;
+    }
+
+    public int getBreakerThreshold() {
+        return breakerThreshold;
+    }
+
+    public long getBreakerOpenTime() {
+        return breakerOpenTime;
+    }
+
+    public long getLastKnownGoodMaxAge() {
+        return lastKnownGoodMaxAge;
+    }
+
+    public int getLastKnownGoodMaxEntries() {
+        return lastKnownGoodMaxEntries;
+    }
+
+    @Override
+    public String toString() {
+        Map<String, Object> values = values();
+        values.put("password", "******");
+        return "PoolSettings" + values;
+    }
+}
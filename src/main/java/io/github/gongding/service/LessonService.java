@@ -2,6 +2,7 @@ package io.github.gongding.service;
 
 import io.github.gongding.dao.LessonDao;
 import io.github.gongding.entity.LessonEntity;
+import io.github.gongding.util.LastKnownGood;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -20,7 +21,7 @@ public class LessonService {
     public LessonEntity getLessonById(int lessonId) {
         logger.info("尝试获取课程 ID {}。", lessonId);
         try {
-            return lessonDao.getLessonById(lessonId);
+            return LastKnownGood.read("lesson:" + lessonId, () -> lessonDao.getLessonById(lessonId));
         } catch (Exception e) {
             logger.error("获取课程 ID {} 时发生异常。", lessonId, e);
             return null;
@@ -35,7 +36,7 @@ public class LessonService {
     public List<LessonEntity> getLessonsByTeacherId(int teacherId) {
         logger.info("尝试获取教师 ID {} 的所有课程。", teacherId);
         try {
-            return lessonDao.getLessonsByTeacherId(teacherId);
+            return LastKnownGood.read("lessons:teacher:" + teacherId, () -> lessonDao.getLessonsByTeacherId(teacherId));
         } catch (Exception e) {
             logger.error("获取教师 ID {} 的课程时发生异常。", teacherId, e);
             return null;
@@ -49,7 +50,7 @@ public class LessonService {
     public List<LessonEntity> getAllLessons() {
         logger.info("尝试获取所有课程。");
         try {
-            List<LessonEntity> lessons = lessonDao.getAllLessons();
+            List<LessonEntity> lessons = LastKnownGood.read("lessons:all", lessonDao::getAllLessons);
             logger.debug("成功从 DAO 获取 {} 个课程。", lessons.size());
             return lessons;
         } catch (Exception e) {
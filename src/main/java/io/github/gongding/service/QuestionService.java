@@ -2,6 +2,7 @@ package io.github.gongding.service;
 
 import io.github.gongding.dao.QuestionDao;
 import io.github.gongding.entity.QuestionEntity;
+import io.github.gongding.util.LastKnownGood;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -18,7 +19,7 @@ public class QuestionService {
     public List<QuestionEntity> getAllQuestions() {
         logger.info("尝试检索所有题目。");
         try {
-            List<QuestionEntity> questions = questionDao.getAllQuestions();
+            List<QuestionEntity> questions = LastKnownGood.read("questions:all", questionDao::getAllQuestions);
             logger.debug("成功从DAO检索 {} 个题目.", questions.size());
             return questions;
         } catch (Exception e) {
@@ -35,7 +36,7 @@ public class QuestionService {
     public List<QuestionEntity> getQuestionsByLessonId(int lessonId) {
         logger.info("尝试根据课程ID {} 检索题目。", lessonId);
         try {
-            List<QuestionEntity> questions = questionDao.getQuestionsByLessonId(lessonId);
+            List<QuestionEntity> questions = LastKnownGood.read("questions:lesson:" + lessonId, () -> questionDao.getQuestionsByLessonId(lessonId));
             logger.debug("成功从DAO检索课程ID {} 的 {} 个题目.", lessonId, questions.size());
             return questions;
         } catch (Exception e) {
@@ -54,7 +55,7 @@ public class QuestionService {
     public List<QuestionEntity> getQuestionsByPracticeId(int practiceId) {
         logger.info("尝试根据练习ID {} 检索题目。", practiceId);
         try {
-            List<QuestionEntity> questions = questionDao.getQuestionsByPracticeId(practiceId);
+            List<QuestionEntity> questions = LastKnownGood.read("questions:practice:" + practiceId, () -> questionDao.getQuestionsByPracticeId(practiceId));
             logger.debug("成功从DAO检索练习ID {} 的 {} 个题目。", practiceId, questions.size());
             return questions;
         } catch (Exception e) {
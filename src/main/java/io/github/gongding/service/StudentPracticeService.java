@@ -5,12 +5,15 @@ import io.github.gongding.dao.SubmissionDao;
 import io.github.gongding.entity.PracticeEntity;
 import io.github.gongding.entity.StudentEntity; // 完整性导入，尽管在下面的方法中不直接使用
 import io.github.gongding.util.PracticeStatusUtils;
+import io.github.gongding.util.LastKnownGood;
+import io.github.gongding.util.UnitOfWork;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -55,6 +58,15 @@ public class StudentPracticeService {
             LocalDateTime now = LocalDateTime.now();
             logger.debug("当前时间: {}", now);
 
+            //已开始的练习一次查询统计完成情况和得分，未开始的练习不需要查询
+            List<Integer> startedPracticeIds = new ArrayList<>();
+            for (PracticeEntity practice : practices) {
+                if (!"not_started".equals(PracticeStatusUtils.calculateStatus(practice.getStartAt(), practice.getEndAt()))) {
+                    startedPracticeIds.add(practice.getId());
+                }
+            }
+            Map<Integer, Map<String, Object>> practiceStats = submissionDao.getStudentPracticeStats(studentId, startedPracticeIds);
+
             for (PracticeEntity practice : practices) {
                 Map<String, Object> practiceMap = new HashMap<>();
                 practiceMap.put("id", practice.getId());
@@ -76,16 +88,21 @@ public class StudentPracticeService {
                 if (!"not_started".equals(status)) {
                     logger.debug("练习 {} 状态不是 'not_started'，正在查询学生提交详情。", practice.getId());
                     //获取学生已完成的题目数量
-                    completedQuestions = submissionDao.getStudentCompletedQuestionCount(studentId, practice.getId());
+                    Map<String, Object> stats = practiceStats.get(practice.getId());
+                    if (stats == null) {
+                        //练习在统计之后才开始，单独查询
+                        stats = submissionDao.getStudentPracticeStats(studentId, Collections.singletonList(practice.getId())).get(practice.getId());
+                    }
+                    completedQuestions = (Integer) stats.get("completedQuestions");
                     practiceMap.put("completedQuestions", completedQuestions);
                     logger.debug("学生 ID {} 在练习 {} 中完成了 {} 道题目。", studentId, completedQuestions, practice.getId());
 
                     if ("ended".equals(status)) {
                         logger.debug("练习 {} 已结束，正在查询学生获得的得分和总分。", practice.getId());
                         //获取学生在此练习中获得的得分
-                        obtainedScore = submissionDao.getStudentObtainedScore(studentId, practice.getId());
+                        obtainedScore = (Double) stats.get("obtainedScore");
                         //获取此练习的总分
-                        totalScore = submissionDao.getPracticeTotalScore(practice.getId());
+                        totalScore = (Double) stats.get("totalScore");
 
                         practiceMap.put("obtainedScore", obtainedScore);
                         practiceMap.put("totalScore", totalScore);
@@ -124,7 +141,7 @@ public class StudentPracticeService {
     public PracticeEntity getPracticeById(int practiceId) {
         logger.info("尝试根据 ID {} 检索练习。", practiceId);
         try {
-            PracticeEntity practice = practiceDao.getPracticeById(practiceId);
+            PracticeEntity practice = LastKnownGood.read("practice:" + practiceId, () -> practiceDao.getPracticeById(practiceId));
             if (practice != null) {
                 logger.debug("成功检索到练习 ID {}。", practiceId);
             } else {
@@ -173,24 +190,37 @@ public class StudentPracticeService {
     public int submitStudentAnswers(int studentId, int practiceId, List<Map<String, Object>> answers) {
         logger.info("尝试提交学生 ID {} 对练习 ID {} 的答案。", studentId, practiceId);
         try {
-            //检查是否存在现有提交记录
-            logger.debug("检查学生 ID {} 对练习 ID {} 是否已存在提交记录。", studentId, practiceId);
-            Map<String, Object> existingSubmission = submissionDao.getLatestSubmission(studentId, practiceId);
-            boolean isUpdateOperation = (existingSubmission != null && existingSubmission.containsKey("submissionId"));
-            logger.debug("是否存在现有提交记录: {}", isUpdateOperation);
-
-            logger.debug("调用 SubmissionDao.createSubmission 保存提交记录，学生ID: {}, 练习ID: {}", studentId, practiceId);
-            int submissionId = submissionDao.createSubmission(studentId, practiceId, answers);
-
-            if (submissionId != -1) {
-                logger.info("学生 ID {} 对练习 ID {} 的答案提交成功，提交 ID: {}。", studentId, practiceId, submissionId);
-            } else {
-                logger.error("学生 ID {} 对练习 ID {} 的答案提交失败。", studentId, practiceId);
-            }
-            return submissionId;
+            //提交记录、最近提交指针和答案在同一个事务中写入
+            return UnitOfWork.inTransaction(() -> doSubmitStudentAnswers(studentId, practiceId, answers));
         } catch (Exception e) {
             logger.error("提交学生 ID {} 对练习 ID {} 的答案时发生异常。", studentId, practiceId, e);
             return -1;
         }
     }
+
+    /**
+     * 在事务中保存学生的答案，失败时把事务标记为回滚
+     * @param studentId 学生的ID
+     * @param practiceId 练习的ID
+     * @param answers 包含学生答案的列表
+     * @return 提交记录的 ID；如果提交失败则返回 -1
+     */
+    private int doSubmitStudentAnswers(int studentId, int practiceId, List<Map<String, Object>> answers) {
+        //检查是否存在现有提交记录
+        logger.debug("检查学生 ID {} 对练习 ID {} 是否已存在提交记录。", studentId, practiceId);
+        Map<String, Object> existingSubmission = submissionDao.getLatestSubmission(studentId, practiceId);
+        boolean isUpdateOperation = (existingSubmission != null && existingSubmission.containsKey("submissionId"));
+        logger.debug("是否存在现有提交记录: {}", isUpdateOperation);
+
+        logger.debug("调用 SubmissionDao.createSubmission 保存提交记录，学生ID: {}, 练习ID: {}", studentId, practiceId);
+        int submissionId = submissionDao.createSubmission(studentId, practiceId, answers);
+
+        if (submissionId != -1) {
+            logger.info("学生 ID {} 对练习 ID {} 的答案提交成功，提交 ID: {}。", studentId, practiceId, submissionId);
+        } else {
+            logger.error("学生 ID {} 对练习 ID {} 的答案提交失败。", studentId, practiceId);
+            UnitOfWork.setRollbackOnly();
+        }
+        return submissionId;
+    }
 }
@@ -4,6 +4,7 @@ import io.github.gongding.dao.StudentDao;
 import io.github.gongding.entity.LessonEntity;
 import io.github.gongding.entity.StudentEntity;
 import io.github.gongding.util.PasswordUtils;
+import io.github.gongding.util.UnitOfWork;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -52,7 +53,8 @@ public class StudentService {
             logger.debug("创建学生实体对象，学号: {}", studentNumber);
 
             logger.debug("调用 StudentDao 添加学生到数据库，学号: {}", studentNumber);
-            boolean success = studentDao.addStudent(student);
+            //学生记录、班级查询和班级关联共用同一个连接
+            boolean success = UnitOfWork.execute(() -> studentDao.addStudent(student));
 
             if (success) {
                 logger.info("学号 {} 注册成功。", studentNumber);
@@ -189,7 +191,8 @@ public class StudentService {
     public boolean updateStudentLessons(int studentId, List<Integer> lessonIds) {
         logger.info("尝试更新学生 ID {} 的课程关联。", studentId);
         try {
-            return studentDao.updateStudentLessons(studentId, lessonIds);
+            //删除旧关联和插入新关联共用同一个连接
+            return UnitOfWork.execute(() -> studentDao.updateStudentLessons(studentId, lessonIds));
         } catch (Exception e) {
             logger.error("更新学生 ID {} 课程关联时发生异常。", studentId, e);
             return false;
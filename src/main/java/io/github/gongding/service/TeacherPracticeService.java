@@ -16,6 +16,7 @@ import io.github.gongding.entity.QuestionEntity;
 import io.github.gongding.entity.StudentEntity;
 import io.github.gongding.entity.SemesterEntity;
 import io.github.gongding.entity.TeacherEntity;
+import io.github.gongding.util.UnitOfWork;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -102,6 +103,22 @@ public class TeacherPracticeService {
      * @return 包含练习详情和学生提交列表的Map
      */
     public Map<String, Object> getPracticeGradingData(int practiceId) {
+        try {
+            //查询次数固定，与学生人数无关，不放进工作单元：工作单元总是绑定主库连接，
+            //这里每次DAO调用单独借还连接，getPracticeTotalScore等只读查询才能走从库
+            return loadPracticeGradingData(practiceId);
+        } catch (Exception e) {
+            logger.error("获取练习 {} 的批改数据过程中发生异常。", practiceId, e);
+            return null;
+        }
+    }
+
+    /**
+     * 加载批改数据
+     * @param practiceId 练习ID
+     * @return 包含练习详情和学生提交列表的Map
+     */
+    private Map<String, Object> loadPracticeGradingData(int practiceId) {
         logger.info("尝试获取练习 {} 的批改数据。", practiceId);
         Map<String, Object> gradingData = new HashMap<>();
 
@@ -185,6 +202,14 @@ public class TeacherPracticeService {
                 logger.debug("关联班级 {} 找到 {} 名学生。", classIds, students.size());
             }
 
+            //按ID索引题目，统计得分时直接查找
+            Map<Integer, QuestionEntity> questionsById = questions.stream()
+                    .collect(Collectors.toMap(QuestionEntity::getId, q -> q, (first, second) -> first));
+
+            //一次查询取出所有学生的最近提交及答案，查询次数与学生人数无关
+            logger.debug("批量获取练习 {} 下所有学生的最近提交记录。", practiceId);
+            Map<Integer, Map<String, Object>> latestSubmissions = submissionDao.getLatestSubmissionsByPractice(practiceId);
+
             //组织学生提交数据
             List<Map<String, Object>> studentSubmissions = new ArrayList<>();
             //获取练习的总分
@@ -202,9 +227,8 @@ public class TeacherPracticeService {
                 studentData.put("className", student.getClassof() != null ? student.getClassof() : "未知班级");
                 logger.debug("处理学生: {} (学号: {})", student.getName(), student.getStudentNumber());
 
-                //获取该学生对该练习的最新提交记录
-                logger.debug("获取学生 {} (ID: {}) 对练习 {} 的最新提交记录。", student.getName(), student.getId(), practiceId);
-                Map<String, Object> latestSubmission = submissionDao.getLatestSubmission(student.getId(), practiceId);
+                //该学生对该练习的最新提交记录
+                Map<String, Object> latestSubmission = latestSubmissions.get(student.getId());
 
                 int completedQuestions = 0;
                 double obtainedScore = 0.0;
@@ -244,7 +268,7 @@ public class TeacherPracticeService {
                             //计算学生在该练习中获得的总分
                             if (isCorrect != null && isCorrect) {
                                 //查找对应的题目实体，获取其分数
-                                QuestionEntity q = questions.stream().filter(qi -> qi.getId() == questionId).findFirst().orElse(null);
+                                QuestionEntity q = questionsById.get(questionId);
                                 if (q != null) {
                                     //加上题目的分数
                                     obtainedScore += q.getScore();
@@ -356,45 +380,64 @@ public class TeacherPracticeService {
     public int createPracticeWithDetails(int teacherId, String title, int lessonId, List<Integer> classIds, int[] questionIds, LocalDateTime startTime, LocalDateTime endTime) {
         logger.info("尝试在 Service 层创建新练习 - 标题: {}, 教师ID: {}, 课程ID: {}", title, teacherId, lessonId);
         try {
-            logger.debug("调用 LessonDao 获取课程 ID {} 的信息以获取学期ID。", lessonId);
-            LessonEntity lesson = lessonDao.getLessonById(lessonId);
-            if (lesson == null) {
-                logger.error("创建练习失败，未找到课程 ID {} 的信息。", lessonId);
-                return -1;
-            }
-            int semesterId = lesson.getSemesterId();
-            logger.debug("获取到课程 ID {} 的学期 ID: {}", lessonId, semesterId);
+            //查询和写入共用一个连接，练习、题目关联和班级关联在同一个事务中提交
+            return UnitOfWork.inTransaction(() -> doCreatePractice(teacherId, title, lessonId, classIds, questionIds, startTime, endTime));
+        } catch (Exception e) {
+            logger.error("在 Service 层创建练习时发生异常。", e);
+            return -1;
+        }
+    }
 
-            String classofString = "";
-            if (classIds != null && !classIds.isEmpty()) {
-                List<String> classNames = new ArrayList<>();
-                logger.debug("获取班级名称，共 {} 个班级ID。", classIds.size());
-                for (Integer classId : classIds) {
-                    logger.trace("获取班级 ID {} 的名称。", classId);
-                    ClassEntity cls = classDao.getClassById(classId);
-                    if (cls != null) {
-                        classNames.add(cls.getName());
-                        logger.trace("找到班级 ID {} 的名称: {}", classId, cls.getName());
-                    } else {
-                        logger.warn("创建练习时，班级 ID {} 在数据库中未找到。", classId);
-                    }
+    /**
+     * 在事务中创建练习，失败时把事务标记为回滚
+     * @param teacherId 教师ID
+     * @param title 练习标题
+     * @param lessonId 课程ID
+     * @param classIds 关联的班级ID列表
+     * @param questionIds 包含的题目ID数组
+     * @param startTime 练习开始时间
+     * @param endTime 练习结束时间
+     * @return 新创建练习的ID，如果创建失败则返回-1
+     */
+    private int doCreatePractice(int teacherId, String title, int lessonId, List<Integer> classIds, int[] questionIds, LocalDateTime startTime, LocalDateTime endTime) {
+        logger.debug("调用 LessonDao 获取课程 ID {} 的信息以获取学期ID。", lessonId);
+        LessonEntity lesson = lessonDao.getLessonById(lessonId);
+        if (lesson == null) {
+            logger.error("创建练习失败，未找到课程 ID {} 的信息。", lessonId);
+            return -1;
+        }
+        int semesterId = lesson.getSemesterId();
+        logger.debug("获取到课程 ID {} 的学期 ID: {}", lessonId, semesterId);
+
+        String classofString = "";
+        if (classIds != null && !classIds.isEmpty()) {
+            List<String> classNames = new ArrayList<>();
+            logger.debug("获取班级名称，共 {} 个班级ID。", classIds.size());
+            for (Integer classId : classIds) {
+                logger.trace("获取班级 ID {} 的名称。", classId);
+                ClassEntity cls = classDao.getClassById(classId);
+                if (cls != null) {
+                    classNames.add(cls.getName());
+                    logger.trace("找到班级 ID {} 的名称: {}", classId, cls.getName());
+                } else {
+                    logger.warn("创建练习时，班级 ID {} 在数据库中未找到。", classId);
                 }
-                classofString = classNames.stream().collect(Collectors.joining(","));
-                logger.debug("格式化后的班级信息字符串: '{}'", classofString);
-            } else {
-                logger.debug("没有关联的班级ID。");
             }
+            classofString = classNames.stream().collect(Collectors.joining(","));
+            logger.debug("格式化后的班级信息字符串: '{}'", classofString);
+        } else {
+            logger.debug("没有关联的班级ID。");
+        }
 
-            logger.debug("调用 PracticeDao.createPractice 创建练习，教师ID: {}, 课程ID: {}, 学期ID: {}, 标题: '{}', 班级信息: '{}', 开始时间: {}, 结束时间: {}, 题目数量: {}",
-                    teacherId, lessonId, semesterId, title, classofString, startTime, endTime, (questionIds != null ? questionIds.length : 0));
-            int newPracticeId = practiceDao.createPractice(teacherId, lessonId, semesterId, title, classIds.stream().mapToInt(i -> i).toArray(), classofString, startTime, endTime, questionIds);
-            logger.debug("PracticeDao.createPractice 返回新练习 ID: {}", newPracticeId);
-
-            return newPracticeId;
-        } catch (Exception e) {
-            logger.error("在 Service 层创建练习时发生异常。", e);
-            return -1;
+        logger.debug("调用 PracticeDao.createPractice 创建练习，教师ID: {}, 课程ID: {}, 学期ID: {}, 标题: '{}', 班级信息: '{}', 开始时间: {}, 结束时间: {}, 题目数量: {}",
+                teacherId, lessonId, semesterId, title, classofString, startTime, endTime, (questionIds != null ? questionIds.length : 0));
+        int newPracticeId = practiceDao.createPractice(teacherId, lessonId, semesterId, title, classIds.stream().mapToInt(i -> i).toArray(), classofString, startTime, endTime, questionIds);
+        logger.debug("PracticeDao.createPractice 返回新练习 ID: {}", newPracticeId);
+        if (newPracticeId == -1) {
+            UnitOfWork.setRollbackOnly();
         }
+
+        return newPracticeId;
     }
 
     /**
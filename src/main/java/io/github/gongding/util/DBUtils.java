@@ -10,10 +10,29 @@ import java.sql.Statement;
 public class DBUtils {
     /**
      * 获取数据库连接
+     * 当前线程处于工作单元中时返回工作单元绑定的连接
      * @return 一个数据库连接对象
      */
     public static Connection getConnection() {
-        return DataSourceManager.getConn();
+        Connection bound = UnitOfWork.currentConnection();
+        return bound != null ? bound : DataSourceManager.getConn();
+    }
+
+    /**
+     * 获取只读查询使用的数据库连接
+     * 配置了从库时可能返回从库连接，只能用于查询
+     * @return 一个数据库连接对象
+     */
+    public static Connection getReadConnection() {
+        Connection bound = UnitOfWork.currentConnection();
+        return bound != null ? bound : DataSourceManager.getReadConn();
+    }
+
+    /**
+     * 记录当前请求写入了主库，随后一段时间内的只读查询仍走主库
+     */
+    public static void recordWrite() {
+        DataSourceManager.recordWrite();
     }
 
     /**
@@ -34,7 +53,16 @@ public class DBUtils {
             e.printStackTrace();
         }
         if (conn != null) {
-            DataSourceManager.close(conn);
+            if (UnitOfWork.isBound(conn)) {
+                //工作单元绑定的连接在作用域结束时才归还
+                try {
+                    conn.close();
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            } else {
+                DataSourceManager.close(conn);
+            }
         }
     }
 
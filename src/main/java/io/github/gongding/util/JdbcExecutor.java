@@ -0,0 +1,303 @@
+package io.github.gongding.util;
+
+import io.github.gongding.pool.WaitTimeHistogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * DAO使用的JDBC执行模板
+ * 统一完成获取连接、绑定参数、遍历结果集和关闭资源，DAO只需要提供SQL、参数和行映射。
+ * 连接通过DBUtils获取，工作单元内共用同一个连接；写操作后自动调用DBUtils.recordWrite()。
+ * 需要在自己持有的连接上执行多条语句的DAO使用带Connection参数的insert和batch，连接由调用方关闭。
+ * 每次执行都计时并记入查询耗时直方图，超过SLOW_QUERY_MILLIS的语句记录告警日志。
+ * 数据库异常原样抛出SQLException，由DAO决定如何记录和返回
+ */
+public final class JdbcExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(JdbcExecutor.class);
+    //慢查询告警阈值（毫秒）
+    private static final long SLOW_QUERY_MILLIS = 1000;
+
+    //语句执行和结果映射的耗时，不包含等待连接的时间
+    private static final WaitTimeHistogram queryTime = new WaitTimeHistogram();
+
+    private JdbcExecutor() {
+    }
+
+    /**
+     * 把结果集的当前行映射为一个对象
+     * @param <T> 结果类型
+     */
+    @FunctionalInterface
+    public interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    /**
+     * 批量执行时为一个元素绑定参数
+     * @param <T> 元素类型
+     */
+    @FunctionalInterface
+    public interface ParameterBinder<T> {
+        void bind(PreparedStatement pstmt, T item) throws SQLException;
+    }
+
+    /**
+     * 在主库上查询多行
+     * @param sql SQL语句
+     * @param mapper 行映射
+     * @param params 按顺序绑定的参数
+     * @param <T> 结果类型
+     * @return 结果列表，没有结果时为空列表
+     * @throws SQLException 查询失败
+     */
+    public static <T> List<T> query(String sql, RowMapper<T> mapper, Object... params) throws SQLException {
+        return query(DBUtils.getConnection(), sql, mapper, 0, params);
+    }
+
+    /**
+     * 在只读连接上查询多行，配置了从库时可能读取从库
+     * @param sql SQL语句
+     * @param mapper 行映射
+     * @param params 按顺序绑定的参数
+     * @param <T> 结果类型
+     * @return 结果列表，没有结果时为空列表
+     * @throws SQLException 查询失败
+     */
+    public static <T> List<T> queryRead(String sql, RowMapper<T> mapper, Object... params) throws SQLException {
+        return query(DBUtils.getReadConnection(), sql, mapper, 0, params);
+    }
+
+    /**
+     * 在主库上查询单行
+     * @param sql SQL语句
+     * @param mapper 行映射
+     * @param params 按顺序绑定的参数
+     * @param <T> 结果类型
+     * @return 第一行的映射结果，没有结果时返回null；其余行不会被读取
+     * @throws SQLException 查询失败
+     */
+    public static <T> T queryOne(String sql, RowMapper<T> mapper, Object... params) throws SQLException {
+        List<T> results = query(DBUtils.getConnection(), sql, mapper, 1, params);
+        return results.isEmpty() ? null : results.get(0);
+    }
+
+    /**
+     * 在只读连接上查询单行
+     * @param sql SQL语句
+     * @param mapper 行映射
+     * @param params 按顺序绑定的参数
+     * @param <T> 结果类型
+     * @return 第一行的映射结果，没有结果时返回null；其余行不会被读取
+     * @throws SQLException 查询失败
+     */
+    public static <T> T queryOneRead(String sql, RowMapper<T> mapper, Object... params) throws SQLException {
+        List<T> results = query(DBUtils.getReadConnection(), sql, mapper, 1, params);
+        return results.isEmpty() ? null : results.get(0);
+    }
+
+    /**
+     * 执行INSERT、UPDATE或DELETE
+     * @param sql SQL语句
+     * @param params 按顺序绑定的参数
+     * @return 影响行数
+     * @throws SQLException 执行失败
+     */
+    public static int update(String sql, Object... params) throws SQLException {
+        Connection conn = DBUtils.getConnection();
+        PreparedStatement pstmt = null;
+        long start = System.nanoTime();
+        try {
+            pstmt = conn.prepareStatement(sql);
+            bind(pstmt, params);
+            int affectedRows = pstmt.executeUpdate();
+            DBUtils.recordWrite();
+            return affectedRows;
+        } finally {
+            record(sql, start);
+            DBUtils.close(conn, pstmt);
+        }
+    }
+
+    /**
+     * 执行INSERT并返回自增主键
+     * @param sql INSERT语句
+     * @param params 按顺序绑定的参数
+     * @return 生成的主键，未插入行或没有生成主键时返回-1
+     * @throws SQLException 执行失败
+     */
+    public static int insert(String sql, Object... params) throws SQLException {
+        Connection conn = DBUtils.getConnection();
+        try {
+            return insert(conn, sql, params);
+        } finally {
+            DBUtils.close(conn, null, null);
+        }
+    }
+
+    /**
+     * 在调用方持有的连接上执行INSERT并返回自增主键
+     * @param conn 数据库连接，由调用方关闭
+     * @param sql INSERT语句
+     * @param params 按顺序绑定的参数
+     * @return 生成的主键，未插入行或没有生成主键时返回-1
+     * @throws SQLException 执行失败
+     */
+    public static int insert(Connection conn, String sql, Object... params) throws SQLException {
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        long start = System.nanoTime();
+        try {
+            pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            bind(pstmt, params);
+            int affectedRows = pstmt.executeUpdate();
+            DBUtils.recordWrite();
+            if (affectedRows == 0) {
+                return -1;
+            }
+            rs = pstmt.getGeneratedKeys();
+            return rs.next() ? rs.getInt(1) : -1;
+        } finally {
+            record(sql, start);
+            DBUtils.close(null, pstmt, rs);
+        }
+    }
+
+    /**
+     * 对每个元素绑定一组参数后批量执行
+     * @param sql SQL语句
+     * @param items 要写入的元素，为空时不执行
+     * @param binder 为一个元素绑定参数
+     * @param <T> 元素类型
+     * @return 每组参数的影响行数
+     * @throws SQLException 执行失败
+     */
+    public static <T> int[] batch(String sql, Collection<T> items, ParameterBinder<T> binder) throws SQLException {
+        if (items == null || items.isEmpty()) {
+            return new int[0];
+        }
+        Connection conn = DBUtils.getConnection();
+        try {
+            return batch(conn, sql, items, binder);
+        } finally {
+            DBUtils.close(conn, null, null);
+        }
+    }
+
+    /**
+     * 在调用方持有的连接上对每个元素绑定一组参数后批量执行
+     * @param conn 数据库连接，由调用方关闭
+     * @param sql SQL语句
+     * @param items 要写入的元素，为空时不执行
+     * @param binder 为一个元素绑定参数
+     * @param <T> 元素类型
+     * @return 每组参数的影响行数
+     * @throws SQLException 执行失败
+     */
+    public static <T> int[] batch(Connection conn, String sql, Collection<T> items, ParameterBinder<T> binder) throws SQLException {
+        if (items == null || items.isEmpty()) {
+            return new int[0];
+        }
+        PreparedStatement pstmt = null;
+        long start = System.nanoTime();
+        try {
+            pstmt = conn.prepareStatement(sql);
+            for (T item : items) {
+                binder.bind(pstmt, item);
+                pstmt.addBatch();
+            }
+            int[] results = pstmt.executeBatch();
+            DBUtils.recordWrite();
+            return results;
+        } finally {
+            record(sql, start);
+            DBUtils.close(null, pstmt, null);
+        }
+    }
+
+    /**
+     * 生成IN子句的参数占位符
+     * @param count 参数个数，必须大于0
+     * @return 形如"?,?,?"的字符串
+     */
+    public static String placeholders(int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
+
+    /**
+     * 获取查询耗时直方图
+     * @return 所有经过本类执行的语句的耗时分布
+     */
+    public static WaitTimeHistogram getQueryTime() {
+        return queryTime;
+    }
+
+    /**
+     * 执行查询并映射结果
+     * @param maxRows 最多读取的行数，0表示读取全部
+     */
+    private static <T> List<T> query(Connection conn, String sql, RowMapper<T> mapper, int maxRows, Object... params) throws SQLException {
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        long start = System.nanoTime();
+        try {
+            pstmt = conn.prepareStatement(sql);
+            bind(pstmt, params);
+            rs = pstmt.executeQuery();
+            List<T> results = new ArrayList<>();
+            while ((maxRows == 0 || results.size() < maxRows) && rs.next()) {
+                results.add(mapper.map(rs));
+            }
+            return results;
+        } finally {
+            record(sql, start);
+            DBUtils.close(conn, pstmt, rs);
+        }
+    }
+
+    /**
+     * 按顺序绑定参数，LocalDateTime转换为Timestamp，null按SQL NULL绑定
+     * @param pstmt 预编译语句
+     * @param params 参数
+     * @throws SQLException 绑定失败
+     */
+    private static void bind(PreparedStatement pstmt, Object... params) throws SQLException {
+        if (params == null) {
+            return;
+        }
+        for (int i = 0; i < params.length; i++) {
+            Object param = params[i];
+            if (param instanceof LocalDateTime) {
+                pstmt.setTimestamp(i + 1, Timestamp.valueOf((LocalDateTime) param));
+            } else {
+                pstmt.setObject(i + 1, param);
+            }
+        }
+    }
+
+    /**
+     * 记录一次执行的耗时，超过阈值时记录慢查询日志
+     * @param sql 执行的SQL
+     * @param start 开始时间（System.nanoTime）
+     */
+    private static void record(String sql, long start) {
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        queryTime.record(millis);
+        if (millis >= SLOW_QUERY_MILLIS) {
+            logger.warn("慢查询，耗时 {} ms: {}", millis, sql);
+        } else {
+            logger.trace("SQL执行耗时 {} ms: {}", millis, sql);
+        }
+    }
+}
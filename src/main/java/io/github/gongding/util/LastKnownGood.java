@@ -0,0 +1,137 @@
+package io.github.gongding.util;
+
+import io.github.gongding.pool.DataSourceManager;
+import io.github.gongding.pool.PoolExhaustedException;
+import io.github.gongding.pool.RequestDeadline;
+import io.github.gongding.pool.config.PoolSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 只读数据的最近一次成功结果
+ * 每次成功读取后按键保存结果；数据库熔断、获取连接超时、查询超时或查询期间连接断开时，返回该键最近一次成功读取的数据，
+ * 课程列表、题目列表、练习信息等页面在数据库短暂不可用时仍能正常显示。没有可用的旧数据时保持原来的失败行为。
+ * 超过lastKnownGoodMaxAge的旧数据不再返回；最多保存lastKnownGoodMaxEntries个键，超出时淘汰最久未使用的键。
+ * 返回的对象会被多个请求共享，调用方不应修改
+ */
+public final class LastKnownGood {
+    private static final Logger logger = LoggerFactory.getLogger(LastKnownGood.class);
+
+    //按访问顺序排列，最久未使用的键在最前面；所有访问都在values上同步
+    private static final LinkedHashMap<String, Entry> values = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * 一次成功读取的结果及读取时间
+     */
+    private static final class Entry {
+        final Object value;
+        //读取时间（System.nanoTime()）
+        final long loadedAt;
+
+        Entry(Object value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private LastKnownGood() {
+    }
+
+    /**
+     * 读取数据，成功时保存结果，数据库不可用时返回保存的结果
+     * 读取期间发生过连接池耗尽、熔断或数据库错误都视为失败，即使DAO捕获了异常并返回了空结果
+     * @param key 缓存键，应包含查询参数
+     * @param loader 实际的读取操作
+     * @param <T> 结果类型
+     * @return 读取结果，失败且有旧数据时返回旧数据
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T read(String key, Supplier<T> loader) {
+        PoolExhaustedException exhaustedBefore = RequestDeadline.exhausted();
+        int errorsBefore = RequestDeadline.databaseErrors();
+        T value;
+        try {
+            value = loader.get();
+        } catch (RuntimeException e) {
+            Object cached = fallback(key);
+            if (cached == null) {
+                throw e;
+            }
+            clearNewExhausted(exhaustedBefore);
+            logger.warn("读取 {} 失败，使用最近一次成功读取的数据: {}", key, e.toString());
+            return (T) cached;
+        }
+        PoolExhaustedException exhaustedAfter = RequestDeadline.exhausted();
+        boolean failed = exhaustedAfter != exhaustedBefore || RequestDeadline.databaseErrors() != errorsBefore;
+        if (!failed) {
+            if (value != null) {
+                store(key, value);
+            }
+            return value;
+        }
+        Object cached = fallback(key);
+        if (cached == null) {
+            return value;
+        }
+        clearNewExhausted(exhaustedBefore);
+        logger.warn("读取 {} 时数据库不可用，使用最近一次成功读取的数据。", key);
+        return (T) cached;
+    }
+
+    /**
+     * 保存一次成功读取的结果，超过最大键数时淘汰最久未使用的键
+     * @param key 缓存键
+     * @param value 读取结果
+     */
+    private static void store(String key, Object value) {
+        int maxEntries = DataSourceManager.getSettings().getLastKnownGoodMaxEntries();
+        synchronized (values) {
+            values.put(key, new Entry(value, System.nanoTime()));
+            //最大键数可以热加载调小，一次淘汰到上限以内
+            Iterator<Entry> eldest = values.values().iterator();
+            while (values.size() > maxEntries && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+
+    /**
+     * 获取可以兜底返回的旧数据，超过lastKnownGoodMaxAge的数据直接丢弃
+     * @param key 缓存键
+     * @return 旧数据，没有或已过期时返回null
+     */
+    private static Object fallback(String key) {
+        PoolSettings settings = DataSourceManager.getSettings();
+        long maxAgeNanos = TimeUnit.MILLISECONDS.toNanos(settings.getLastKnownGoodMaxAge());
+        Entry entry;
+        synchronized (values) {
+            entry = values.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (maxAgeNanos <= 0 || System.nanoTime() - entry.loadedAt <= maxAgeNanos) {
+                return entry.value;
+            }
+            values.remove(key);
+        }
+        logger.warn("{} 最近一次成功读取的数据已超过 {} ms，不再使用。", key, settings.getLastKnownGoodMaxAge());
+        return null;
+    }
+
+    /**
+     * 清除读取期间新记录的连接池耗尽，请求已经由旧数据兜底，不需要返回503
+     * @param exhaustedBefore 读取前记录的异常
+     */
+    private static void clearNewExhausted(PoolExhaustedException exhaustedBefore) {
+        PoolExhaustedException exhausted = RequestDeadline.exhausted();
+        if (exhausted != null && exhausted != exhaustedBefore) {
+            RequestDeadline.clearExhausted(exhausted);
+        }
+    }
+}
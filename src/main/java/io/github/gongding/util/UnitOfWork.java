@@ -0,0 +1,261 @@
+package io.github.gongding.util;
+
+import io.github.gongding.pool.DataSourceManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * 工作单元
+ * 在当前线程上绑定一个数据库连接，作用域内所有DAO通过DBUtils获取到的都是同一个连接，
+ * DAO关闭连接时不会真正归还连接池，作用域结束时才归还。连接在第一次使用时才借用，且总是主库连接。
+ * inTransaction在作用域内开启事务：DAO的commit、setAutoCommit被忽略，rollback只把事务标记为回滚，
+ * 作用域正常结束且未标记回滚时统一提交，否则回滚。嵌套的作用域加入外层作用域
+ */
+public final class UnitOfWork {
+    private static final Logger logger = LoggerFactory.getLogger(UnitOfWork.class);
+    private static final ThreadLocal<UnitOfWork> CURRENT = new ThreadLocal<>();
+
+    //从连接池借到的连接，未使用时为null
+    private Connection physical;
+    //交给DAO的连接代理
+    private Connection bound;
+    //是否处于事务中
+    private boolean transactional;
+    //事务是否只能回滚
+    private boolean rollbackOnly;
+
+    private UnitOfWork() {
+    }
+
+    /**
+     * 作用域内执行的操作
+     * @param <T> 返回值类型
+     */
+    public interface Work<T> {
+        T run() throws Exception;
+    }
+
+    /**
+     * 在工作单元内执行操作，作用域内的DAO共用一个连接，不开启事务
+     * @param work 要执行的操作
+     * @param <T> 返回值类型
+     * @return 操作的返回值
+     * @throws Exception 操作抛出的异常
+     */
+    public static <T> T execute(Work<T> work) throws Exception {
+        return run(work, false);
+    }
+
+    /**
+     * 在事务中执行操作，作用域内的DAO共用一个连接，正常结束时提交，抛出异常或被标记回滚时回滚
+     * @param work 要执行的操作
+     * @param <T> 返回值类型
+     * @return 操作的返回值
+     * @throws Exception 操作抛出的异常或提交失败
+     */
+    public static <T> T inTransaction(Work<T> work) throws Exception {
+        return run(work, true);
+    }
+
+    /**
+     * 把当前事务标记为只能回滚，用于DAO以返回值而不是异常表示失败的场景
+     */
+    public static void setRollbackOnly() {
+        UnitOfWork unit = CURRENT.get();
+        if (unit == null || !unit.transactional) {
+            throw new IllegalStateException("当前线程没有进行中的事务");
+        }
+        unit.rollbackOnly = true;
+    }
+
+    /**
+     * 获取当前工作单元绑定的连接，第一次调用时从连接池借用
+     * @return 绑定的连接，当前线程不在工作单元中时返回null
+     */
+    static Connection currentConnection() {
+        UnitOfWork unit = CURRENT.get();
+        if (unit == null) {
+            return null;
+        }
+        if (unit.bound == null) {
+            unit.physical = DataSourceManager.getConn();
+            try {
+                if (unit.transactional) {
+                    unit.physical.setAutoCommit(false);
+                }
+            } catch (SQLException e) {
+                DataSourceManager.close(unit.physical);
+                unit.physical = null;
+                throw new RuntimeException("开启事务失败", e);
+            }
+            unit.bound = (Connection) Proxy.newProxyInstance(UnitOfWork.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, unit.new BoundConnection());
+        }
+        return unit.bound;
+    }
+
+    /**
+     * 判断连接是否为工作单元绑定的连接
+     * @param connection 连接
+     * @return 是否为绑定的连接
+     */
+    static boolean isBound(Connection connection) {
+        UnitOfWork unit = CURRENT.get();
+        return unit != null && connection != null && connection == unit.bound;
+    }
+
+    private static <T> T run(Work<T> work, boolean transactional) throws Exception {
+        UnitOfWork outer = CURRENT.get();
+        if (outer != null) {
+            if (transactional && !outer.transactional) {
+                //外层只是共用连接，由内层负责这段事务
+                return outer.runNestedTransaction(work);
+            }
+            return work.run();
+        }
+        UnitOfWork unit = new UnitOfWork();
+        unit.transactional = transactional;
+        CURRENT.set(unit);
+        long start = System.currentTimeMillis();
+        try {
+            T result = work.run();
+            unit.complete(!unit.rollbackOnly);
+            return result;
+        } catch (Exception | Error e) {
+            unit.complete(false);
+            throw e;
+        } finally {
+            CURRENT.remove();
+            unit.release();
+            logger.debug("工作单元结束，事务: {}，耗时 {} ms", transactional, System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * 在共用连接的工作单元内开启一段事务
+     */
+    private <T> T runNestedTransaction(Work<T> work) throws Exception {
+        transactional = true;
+        rollbackOnly = false;
+        if (physical != null) {
+            physical.setAutoCommit(false);
+        }
+        try {
+            T result = work.run();
+            complete(!rollbackOnly);
+            return result;
+        } catch (Exception | Error e) {
+            complete(false);
+            throw e;
+        } finally {
+            transactional = false;
+            rollbackOnly = false;
+            if (physical != null) {
+                physical.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * 结束事务，未开启事务或连接未被使用时不做任何操作
+     * @param commit 是否提交
+     * @throws SQLException 提交失败，此时已回滚
+     */
+    private void complete(boolean commit) throws SQLException {
+        if (!transactional || physical == null) {
+            return;
+        }
+        if (commit) {
+            try {
+                physical.commit();
+                return;
+            } catch (SQLException e) {
+                rollbackQuietly();
+                throw e;
+            }
+        }
+        logger.info("工作单元中的事务被回滚。");
+        rollbackQuietly();
+    }
+
+    private void rollbackQuietly() {
+        try {
+            physical.rollback();
+        } catch (SQLException e) {
+            logger.warn("回滚事务失败。", e);
+        }
+    }
+
+    /**
+     * 复位自动提交后把连接归还连接池
+     * 旧版ConnectionPool归还时不会复位连接状态，不能依赖连接池，否则下一个借到连接的DAO写入的数据不会提交
+     */
+    private void release() {
+        if (physical != null) {
+            try {
+                if (!physical.getAutoCommit()) {
+                    //正常结束时事务已经提交或回滚，这里只回滚残留的未结束事务
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                logger.warn("归还连接前复位自动提交失败。", e);
+            }
+            DataSourceManager.close(physical);
+            physical = null;
+            bound = null;
+        }
+    }
+
+    /**
+     * 交给DAO的连接代理，屏蔽close和事务边界操作
+     */
+    private final class BoundConnection implements InvocationHandler {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!transactional && !physical.getAutoCommit()) {
+                        //DAO自行管理事务时，和归还连接池一样复位未结束的事务
+                        physical.rollback();
+                        physical.setAutoCommit(true);
+                    }
+                    return null;
+                case "isClosed":
+                    return physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "UnitOfWork[" + physical + "]";
+                case "commit":
+                case "setAutoCommit":
+                    if (transactional) {
+                        return null;
+                    }
+                    break;
+                case "rollback":
+                    if (transactional && (args == null || args.length == 0)) {
+                        rollbackOnly = true;
+                        return null;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            try {
+                return method.invoke(physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
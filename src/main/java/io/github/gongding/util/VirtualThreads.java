@@ -0,0 +1,59 @@
+package io.github.gongding.util;
+
+import java.lang.reflect.Method;
+
+/**
+ * 虚拟线程相关的运行时检测
+ * 项目按Java 9编译，不能直接引用Java 21的虚拟线程API，这里通过反射判断当前运行时是否支持以及某个线程是否为虚拟线程。
+ * 在Java 21+上可以让Tomcat用虚拟线程处理请求（Tomcat 10.1在server.xml的Connector上配置）：
+ * <pre>
+ * &lt;Connector port="8080" protocol="HTTP/1.1" useVirtualThreads="true" /&gt;
+ * </pre>
+ * 这样大量等待数据库连接的请求只占用虚拟线程，不需要很大的平台线程池。应用本身不创建虚拟线程，是否启用完全由Tomcat配置决定，
+ * 本类只用于检测运行时是否支持以及请求是否运行在虚拟线程上。
+ * 连接池的等待基于ReentrantLock/Condition、Semaphore和SynchronousQueue，等待连接时只挂起虚拟线程；
+ * MySQL驱动8.0.29起也已用ReentrantLock替换了内部的synchronized。
+ * 日志不是这样：log4j 1.x写日志时持有Category和Appender的锁，因此log4j.xml让请求线程只把日志放进AsyncAppender的缓冲区
+ * （缓冲区满时丢弃而不是等待），写文件在后台平台线程上进行；请求线程在这两把锁上的竞争仍然存在，但持锁时间很短且不会在锁内等待。
+ * VirtualThreadPinningTest在Java 21+上通过JFR的jdk.VirtualThreadPinned事件检查这条调用链，
+ * 部署后也可以加上-Djdk.tracePinnedThreads=short启动参数，确认日志中没有占住载体线程的调用栈
+ */
+public final class VirtualThreads {
+    //Thread.isVirtual()，运行时不支持虚拟线程时为null
+    private static final Method IS_VIRTUAL = findIsVirtual();
+
+    private VirtualThreads() {
+    }
+
+    private static Method findIsVirtual() {
+        try {
+            return Thread.class.getMethod("isVirtual");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 当前运行时是否支持虚拟线程
+     * @return 支持时返回true
+     */
+    public static boolean isSupported() {
+        return IS_VIRTUAL != null;
+    }
+
+    /**
+     * 判断线程是否为虚拟线程
+     * @param thread 线程
+     * @return 是虚拟线程时返回true，运行时不支持虚拟线程时总是返回false
+     */
+    public static boolean isVirtual(Thread thread) {
+        if (IS_VIRTUAL == null) {
+            return false;
+        }
+        try {
+            return (Boolean) IS_VIRTUAL.invoke(thread);
+        } catch (ReflectiveOperationException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+-- 学生在每个练习中最近一次提交的指针表
+-- 每个 (student_id, practice_id) 一行，由 SubmissionDao.createSubmission 在写入提交时维护，
+-- 读取最近一次提交时按主键点查，不再对学生的全部提交历史做 MAX(submitted_at) 子查询。
+-- 部署新版本前执行一次，可以重复执行。
+
+CREATE TABLE IF NOT EXISTS submission_latest (
+    student_id    INT NOT NULL,
+    practice_id   INT NOT NULL,
+    submission_id INT NOT NULL,
+    PRIMARY KEY (student_id, practice_id),
+    KEY idx_submission_latest_practice (practice_id)
+);
+
+-- 回填已有数据：取每个学生在每个练习中最近一次的提交（提交时间相同时取ID较大的）
+INSERT INTO submission_latest (student_id, practice_id, submission_id)
+SELECT s.student_id, s.practice_id, s.submission_id
+FROM submission s
+WHERE s.submission_id = (
+    SELECT s2.submission_id FROM submission s2
+    WHERE s2.student_id = s.student_id AND s2.practice_id = s.practice_id
+    ORDER BY s2.submitted_at DESC, s2.submission_id DESC LIMIT 1)
+ON DUPLICATE KEY UPDATE submission_id = VALUES(submission_id);
@@ -0,0 +1,88 @@
+package io.github.gongding.dao;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Scanner;
+
+/**
+ * DAO测试使用的嵌入式数据库
+ * 数据源仍然连接模拟驱动，由模拟驱动把SQL交给H2（MySQL兼容模式）执行，DAO走的是与生产相同的连接池路径
+ */
+final class EmbeddedDatabase {
+    private static final String USERNAME = "sa";
+    private static final String PASSWORD = "";
+
+    private final String h2Url;
+
+    private EmbeddedDatabase(String name) {
+        this.h2Url = "jdbc:h2:mem:" + name + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    }
+
+    /**
+     * 创建嵌入式数据库并把DataSourceManager指向它，必须在第一次使用DataSourceManager之前调用
+     * @param name 数据库名称，同一个测试进程内不能重复
+     * @return 嵌入式数据库
+     */
+    static EmbeddedDatabase configure(String name) {
+        EmbeddedDatabase database = new EmbeddedDatabase(name);
+        System.setProperty("jdbc.driver", "io.github.gongding.pool.sim.SimulatedDriver");
+        System.setProperty("jdbc.url", "jdbc:sim:" + name + "?delegate=" + database.h2Url);
+        System.setProperty("jdbc.username", USERNAME);
+        System.setProperty("jdbc.password", PASSWORD);
+        System.setProperty("jdbc.poolType", "concurrent");
+        System.setProperty("jdbc.initSize", "0");
+        System.setProperty("jdbc.minIdle", "0");
+        System.setProperty("jdbc.maxSize", "4");
+        System.setProperty("jdbc.lanes", "");
+        System.setProperty("jdbc.laneRoutes", "");
+        System.setProperty("jdbc.adaptiveSizing", "false");
+        System.setProperty("jdbc.reloadInterval", "0");
+        return database;
+    }
+
+    /**
+     * 绕过连接池直接在H2上执行classpath中的SQL脚本
+     * 语句以分号结尾，以--开头的行视为注释
+     * @param resource 脚本路径，如 "sql/exam_schema.sql"
+     * @throws SQLException 执行失败
+     * @throws IOException 读取脚本失败
+     */
+    void runScript(String resource) throws SQLException, IOException {
+        String script;
+        try (InputStream in = EmbeddedDatabase.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IOException("找不到SQL脚本: " + resource);
+            }
+            script = new Scanner(in, StandardCharsets.UTF_8.name()).useDelimiter("\\A").next();
+        }
+        StringBuilder withoutComments = new StringBuilder();
+        for (String line : script.split("\\R")) {
+            if (!line.trim().startsWith("--")) {
+                withoutComments.append(line).append('\n');
+            }
+        }
+        try (Connection conn = DriverManager.getConnection(h2Url, USERNAME, PASSWORD); Statement stmt = conn.createStatement()) {
+            for (String sql : withoutComments.toString().split(";")) {
+                if (!sql.trim().isEmpty()) {
+                    stmt.execute(sql);
+                }
+            }
+        }
+    }
+
+    /**
+     * 绕过连接池直接在H2上执行一条语句，用于准备测试数据
+     * @param sql SQL语句
+     * @throws SQLException 执行失败
+     */
+    void execute(String sql) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(h2Url, USERNAME, PASSWORD); Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package io.github.gongding.dao;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * 批改页面的批量查询getLatestSubmissionsByPractice必须与逐个学生调用getLatestSubmission的结果一致
+ * 提交数据在回填前写入，再执行sql/submission_latest.sql，同时验证部署脚本的回填结果
+ */
+public class SubmissionDaoGradingTest {
+    private static final int PRACTICE_ID = 1;
+    private static final int OTHER_PRACTICE_ID = 2;
+    private static final List<Integer> STUDENT_IDS = Arrays.asList(1, 2, 3, 4, 5, 6, 7);
+
+    private static final SubmissionDao submissionDao = new SubmissionDao();
+
+    @BeforeClass
+    public static void createData() throws Exception {
+        EmbeddedDatabase database = EmbeddedDatabase.configure("grading");
+        database.runScript("sql/exam_schema.sql");
+        database.execute("INSERT INTO practice (practice_id, title) VALUES (1, '练习一'), (2, '练习二')");
+        database.execute("INSERT INTO question (question_id, type, correct_answer, score) VALUES " +
+                "(1, 'single_choice', 'A', 2), (2, 'fill_blank', 'x, y', 3), (3, 'short_answer', NULL, 5)");
+        database.execute("INSERT INTO practice_question (practice_id, question_id) VALUES (1, 1), (1, 2), (1, 3), (2, 1)");
+        //学生1：两次提交，较早的一次不应出现在结果中
+        database.execute("INSERT INTO submission (submission_id, student_id, practice_id, submitted_at) VALUES " +
+                "(10, 1, 1, '2024-03-01 10:00:00'), (11, 1, 1, '2024-03-02 10:00:00')");
+        database.execute("INSERT INTO submission_answer (submission_id, question_id, student_answer, is_correct, grade, feedback) VALUES " +
+                "(10, 1, 'B', FALSE, 0, NULL), (11, 1, 'A', TRUE, 2, NULL), (11, 2, 'x,y', TRUE, 3, NULL), (11, 3, '论述', NULL, 4.5, '不错')");
+        //学生2：一次提交，主观题未批改
+        database.execute("INSERT INTO submission (submission_id, student_id, practice_id, submitted_at) VALUES (20, 2, 1, '2024-03-01 11:00:00')");
+        database.execute("INSERT INTO submission_answer (submission_id, question_id, student_answer, is_correct, grade, feedback) VALUES " +
+                "(20, 1, 'C', FALSE, 0, NULL), (20, 3, '回答', NULL, NULL, NULL)");
+        //学生3：提交记录没有任何答案
+        database.execute("INSERT INTO submission (submission_id, student_id, practice_id, submitted_at) VALUES (30, 3, 1, '2024-03-01 12:00:00')");
+        //学生4：只提交过另一个练习
+        database.execute("INSERT INTO submission (submission_id, student_id, practice_id, submitted_at) VALUES (40, 4, 2, '2024-03-01 13:00:00')");
+        database.execute("INSERT INTO submission_answer (submission_id, question_id, student_answer, is_correct, grade, feedback) VALUES " +
+                "(40, 1, 'A', TRUE, 2, NULL)");
+        //学生5：两次提交时间相同，取ID较大的一次
+        database.execute("INSERT INTO submission (submission_id, student_id, practice_id, submitted_at) VALUES " +
+                "(50, 5, 1, '2024-03-01 14:00:00'), (51, 5, 1, '2024-03-01 14:00:00')");
+        database.execute("INSERT INTO submission_answer (submission_id, question_id, student_answer, is_correct, grade, feedback) VALUES " +
+                "(50, 1, 'D', FALSE, 0, NULL), (51, 1, 'A', TRUE, 2, NULL)");
+        database.runScript("sql/submission_latest.sql");
+
+        //学生6：回填之后通过应用提交两次，第二次复用同一条提交记录
+        submissionDao.createSubmission(6, PRACTICE_ID, Arrays.asList(answer(1, "B"), answer(2, "x,z")));
+        submissionDao.createSubmission(6, PRACTICE_ID, Arrays.asList(answer(1, "A"), answer(2, "x, y"), answer(3, "再答")));
+    }
+
+    @Test
+    public void bulkLoadMatchesPerStudentLoad() {
+        Map<Integer, Map<String, Object>> bulk = submissionDao.getLatestSubmissionsByPractice(PRACTICE_ID);
+        for (Integer studentId : STUDENT_IDS) {
+            Map<String, Object> expected = submissionDao.getLatestSubmission(studentId, PRACTICE_ID);
+            Map<String, Object> actual = bulk.get(studentId);
+            if (expected == null) {
+                assertNull("学生 " + studentId + " 没有提交，不应出现在批量结果中", actual);
+                continue;
+            }
+            assertNotNull("学生 " + studentId + " 的提交缺失", actual);
+            assertEquals("学生 " + studentId + " 的提交ID", expected.get("submissionId"), actual.get("submissionId"));
+            assertEquals("学生 " + studentId + " 的答案", sortedAnswers(expected), sortedAnswers(actual));
+        }
+        assertEquals(new HashSet<>(Arrays.asList(1, 2, 3, 5, 6)), bulk.keySet());
+    }
+
+    @Test
+    public void bulkLoadReturnsLatestSubmissions() {
+        Map<Integer, Map<String, Object>> bulk = submissionDao.getLatestSubmissionsByPractice(PRACTICE_ID);
+        assertEquals(11, bulk.get(1).get("submissionId"));
+        assertEquals(51, bulk.get(5).get("submissionId"));
+        assertEquals(0, sortedAnswers(bulk.get(3)).size());
+
+        List<Map<String, Object>> studentOne = sortedAnswers(bulk.get(1));
+        assertEquals(3, studentOne.size());
+        assertEquals(4.5, studentOne.get(2).get("grade"));
+        assertEquals("不错", studentOne.get(2).get("feedback"));
+
+        List<Map<String, Object>> studentTwo = sortedAnswers(bulk.get(2));
+        assertEquals(Boolean.FALSE, studentTwo.get(0).get("isCorrect"));
+        assertNull(studentTwo.get(1).get("grade"));
+
+        //应用写入的提交：第二次提交覆盖了第一次的答案
+        List<Map<String, Object>> studentSix = sortedAnswers(bulk.get(6));
+        assertEquals(3, studentSix.size());
+        assertEquals(Boolean.TRUE, studentSix.get(0).get("isCorrect"));
+        assertEquals(Boolean.TRUE, studentSix.get(1).get("isCorrect"));
+        assertNull(studentSix.get(2).get("isCorrect"));
+    }
+
+    @Test
+    public void otherPracticesAreNotMixedIn() {
+        Map<Integer, Map<String, Object>> bulk = submissionDao.getLatestSubmissionsByPractice(OTHER_PRACTICE_ID);
+        assertEquals(1, bulk.size());
+        assertEquals(40, bulk.get(4).get("submissionId"));
+        assertFalse(submissionDao.getLatestSubmissionsByPractice(99).containsKey(4));
+    }
+
+    private static Map<String, Object> answer(int questionId, String studentAnswer) {
+        Map<String, Object> answer = new HashMap<>();
+        answer.put("questionId", questionId);
+        answer.put("studentAnswer", studentAnswer);
+        return answer;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> sortedAnswers(Map<String, Object> submission) {
+        List<Map<String, Object>> answers = new ArrayList<>((List<Map<String, Object>>) submission.get("answers"));
+        answers.sort(Comparator.comparing(answer -> (Integer) answer.get("questionId")));
+        return answers;
+    }
+}
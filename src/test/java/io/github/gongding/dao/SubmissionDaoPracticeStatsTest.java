@@ -0,0 +1,75 @@
+package io.github.gongding.dao;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * 学生练习列表的分组统计getStudentPracticeStats必须与逐个练习调用
+ * getStudentCompletedQuestionCount、getStudentObtainedScore、getPracticeTotalScore的结果一致
+ */
+public class SubmissionDaoPracticeStatsTest {
+    private static final List<Integer> PRACTICE_IDS = Arrays.asList(1, 2, 3, 4, 99);
+    private static final double DELTA = 1e-9;
+
+    private static final SubmissionDao submissionDao = new SubmissionDao();
+
+    @BeforeClass
+    public static void createData() throws Exception {
+        EmbeddedDatabase database = EmbeddedDatabase.configure("practice-stats");
+        database.runScript("sql/exam_schema.sql");
+        //练习1有三道题，练习2有一道题，练习3没有题目，练习4有提交但答案对应的题目已删除，练习99不存在
+        database.execute("INSERT INTO practice (practice_id, title) VALUES (1, '练习一'), (2, '练习二'), (3, '练习三'), (4, '练习四')");
+        database.execute("INSERT INTO question (question_id, type, correct_answer, score) VALUES " +
+                "(1, 'single_choice', 'A', 2), (2, 'fill_blank', 'x', 3.5), (3, 'short_answer', NULL, 5), (4, 'single_choice', 'B', 1)");
+        database.execute("INSERT INTO practice_question (practice_id, question_id) VALUES (1, 1), (1, 2), (1, 3), (2, 4), (4, 404)");
+        database.execute("INSERT INTO submission (submission_id, student_id, practice_id, submitted_at) VALUES " +
+                "(10, 1, 1, '2024-03-01 10:00:00'), (11, 1, 1, '2024-03-02 10:00:00'), " +
+                "(12, 1, 3, '2024-03-02 11:00:00'), (13, 1, 4, '2024-03-02 12:00:00'), " +
+                "(20, 2, 1, '2024-03-02 10:00:00'), (21, 2, 2, '2024-03-02 10:00:00')");
+        database.execute("INSERT INTO submission_answer (submission_id, question_id, student_answer, is_correct, grade, feedback) VALUES " +
+                //较早的一次提交不计入
+                "(10, 1, 'A', TRUE, 2, NULL), (10, 2, 'x', TRUE, 3.5, NULL), (10, 3, '旧答案', NULL, 5, NULL), " +
+                //最近一次提交：答对、空答案、已批改的主观题
+                "(11, 1, 'A', TRUE, 2, NULL), (11, 2, '', FALSE, 0, NULL), (11, 3, '论述', NULL, 4.5, NULL), " +
+                "(12, 1, 'C', FALSE, 0, NULL), " +
+                "(13, 404, '孤立答案', NULL, 3, NULL), " +
+                //其他学生的提交不计入
+                "(20, 1, 'A', TRUE, 2, NULL), (21, 4, 'B', TRUE, 1, NULL)");
+        database.runScript("sql/submission_latest.sql");
+    }
+
+    @Test
+    public void groupedStatsMatchPerPracticeMethods() {
+        for (int studentId : new int[]{1, 2, 3}) {
+            Map<Integer, Map<String, Object>> stats = submissionDao.getStudentPracticeStats(studentId, PRACTICE_IDS);
+            assertEquals(PRACTICE_IDS.size(), stats.size());
+            for (Integer practiceId : PRACTICE_IDS) {
+                Map<String, Object> stat = stats.get(practiceId);
+                String label = "学生 " + studentId + " 练习 " + practiceId;
+                assertNotNull(label, stat);
+                assertEquals(label + " 完成题目数", submissionDao.getStudentCompletedQuestionCount(studentId, practiceId),
+                        ((Integer) stat.get("completedQuestions")).intValue());
+                assertEquals(label + " 得分", submissionDao.getStudentObtainedScore(studentId, practiceId),
+                        (Double) stat.get("obtainedScore"), DELTA);
+                assertEquals(label + " 总分", submissionDao.getPracticeTotalScore(practiceId),
+                        (Double) stat.get("totalScore"), DELTA);
+            }
+        }
+    }
+
+    @Test
+    public void groupedStatsCountLatestSubmissionOnly() {
+        Map<String, Object> stat = submissionDao.getStudentPracticeStats(1, PRACTICE_IDS).get(1);
+        assertEquals(2, stat.get("completedQuestions"));
+        assertEquals(6.5, (Double) stat.get("obtainedScore"), DELTA);
+        assertEquals(10.5, (Double) stat.get("totalScore"), DELTA);
+        assertEquals(0.0, (Double) submissionDao.getStudentPracticeStats(1, PRACTICE_IDS).get(3).get("totalScore"), DELTA);
+    }
+}
@@ -0,0 +1,103 @@
+package io.github.gongding.pool;
+
+import io.github.gongding.pool.config.DataSourceConfig;
+import io.github.gongding.pool.config.PoolSettings;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CircuitBreakerTest {
+    private static final long OPEN_TIME = 200;
+
+    private static CircuitBreaker breaker(int threshold) {
+        DataSourceConfig config = new DataSourceConfig();
+        config.setBreakerThreshold(String.valueOf(threshold));
+        config.setBreakerOpenTime(String.valueOf(OPEN_TIME));
+        return new CircuitBreaker("test", PoolSettings.from(config));
+    }
+
+    @Test
+    public void opensAfterConsecutiveFailuresAndRejects() {
+        CircuitBreaker breaker = breaker(3);
+        breaker.recordFailure();
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertFalse(breaker.acquirePermission());
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(1, breaker.getTripCount());
+        try {
+            breaker.acquirePermission();
+            fail("熔断打开时应直接拒绝");
+        } catch (CircuitOpenException e) {
+            assertTrue(e.getRetryAfterMillis() > 0 && e.getRetryAfterMillis() <= OPEN_TIME);
+        }
+    }
+
+    @Test
+    public void successResetsConsecutiveFailures() {
+        CircuitBreaker breaker = breaker(2);
+        breaker.recordFailure();
+        breaker.recordSuccess();
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(1, breaker.getConsecutiveFailures());
+    }
+
+    @Test
+    public void halfOpenProbeSuccessCloses() throws Exception {
+        CircuitBreaker breaker = tripped();
+        assertTrue("打开时间结束后第一个请求获得探测许可", breaker.acquirePermission());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        try {
+            breaker.acquirePermission();
+            fail("探测进行中时其他请求应被拒绝");
+        } catch (CircuitOpenException expected) {
+            //只放行一个探测请求
+        }
+        breaker.recordSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertFalse(breaker.acquirePermission());
+    }
+
+    @Test
+    public void halfOpenProbeFailureReopens() throws Exception {
+        CircuitBreaker breaker = tripped();
+        assertTrue(breaker.acquirePermission());
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(2, breaker.getTripCount());
+    }
+
+    @Test
+    public void releasedProbeLetsNextRequestProbe() throws Exception {
+        CircuitBreaker breaker = tripped();
+        assertTrue(breaker.acquirePermission());
+        //探测请求没有结果（如连接池已关闭），归还许可后不能一直停在半开状态
+        breaker.releaseProbe();
+        assertTrue(breaker.acquirePermission());
+        breaker.recordSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void zeroThresholdNeverOpens() {
+        CircuitBreaker breaker = breaker(0);
+        for (int i = 0; i < 100; i++) {
+            breaker.recordFailure();
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertFalse(breaker.acquirePermission());
+    }
+
+    private static CircuitBreaker tripped() throws InterruptedException {
+        CircuitBreaker breaker = breaker(1);
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        Thread.sleep(OPEN_TIME + 50);
+        return breaker;
+    }
+}
@@ -0,0 +1,161 @@
+package io.github.gongding.pool;
+
+import io.github.gongding.pool.config.DataSourceConfig;
+import io.github.gongding.pool.sim.SimulatedDriver;
+import io.github.gongding.pool.sim.SimulationProfile;
+import org.junit.After;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ConcurrentConnectionPoolTest {
+    private ConcurrentConnectionPool pool;
+
+    @After
+    public void closePool() {
+        if (pool != null) {
+            pool.close(0);
+        }
+    }
+
+    @Test
+    public void borrowAndReleaseUnderContention() throws Exception {
+        pool = PoolTestSupport.concurrentPool(PoolTestSupport.config("contention"));
+        int threads = 16;
+        int rounds = 200;
+        AtomicInteger maxActive = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < rounds; i++) {
+                        Connection conn = pool.getConn();
+                        try {
+                            maxActive.accumulateAndGet(pool.getActiveCount(), Math::max);
+                            PreparedStatement pstmt = conn.prepareStatement("SELECT 1");
+                            pstmt.executeQuery();
+                            pstmt.close();
+                        } finally {
+                            conn.close();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                //任何一次借用超时或失败都会在这里抛出
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(threads * rounds, pool.getBorrowCount());
+        assertEquals(0, pool.getTimeoutCount());
+        assertEquals(0, pool.getActiveCount());
+        assertTrue("借出数不能超过最大连接数", maxActive.get() <= 4);
+        assertTrue("连接总数不能超过最大连接数", pool.getTotalCount() <= 4);
+        assertEquals(pool.getTotalCount(), pool.getIdleCount());
+        assertEquals(pool.getTotalCount(), SimulatedDriver.profile("contention").getOpenConnections());
+    }
+
+    @Test
+    public void exhaustedPoolTimesOut() {
+        DataSourceConfig config = PoolTestSupport.config("timeout");
+        config.setMaxSize("1");
+        config.setConnectionTimeout("200");
+        pool = PoolTestSupport.concurrentPool(config);
+        Connection held = pool.getConn();
+        long start = System.currentTimeMillis();
+        try {
+            pool.getConn();
+            fail("连接池耗尽时应在超时后失败");
+        } catch (PoolExhaustedException e) {
+            long waited = System.currentTimeMillis() - start;
+            assertTrue("应等待到超时时间: " + waited, waited >= 150);
+            assertTrue("不应明显超过超时时间: " + waited, waited < 1000);
+        } finally {
+            pool.releaseConn(held);
+        }
+        assertEquals(1, pool.getTimeoutCount());
+        assertEquals(0, pool.getWaiterCount());
+        //超时的等待者退出后，归还的连接可以正常借出
+        pool.releaseConn(pool.getConn());
+    }
+
+    @Test
+    public void releasedConnectionIsHandedToWaiter() throws Exception {
+        DataSourceConfig config = PoolTestSupport.config("handoff");
+        config.setMaxSize("1");
+        config.setConnectionTimeout("5000");
+        pool = PoolTestSupport.concurrentPool(config);
+        Connection held = pool.getConn();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Long> waiter = executor.submit(() -> {
+                long start = System.currentTimeMillis();
+                pool.releaseConn(pool.getConn());
+                return System.currentTimeMillis() - start;
+            });
+            while (pool.getWaiterCount() == 0) {
+                Thread.sleep(5);
+            }
+            Thread.sleep(100);
+            long releaseStart = System.currentTimeMillis();
+            held.close();
+            assertTrue("归还连接不应长时间阻塞", System.currentTimeMillis() - releaseStart < 500);
+            assertTrue("等待者应在归还后很快拿到连接", waiter.get(2, TimeUnit.SECONDS) < 1000);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, pool.getTotalCount());
+        assertEquals(0, pool.getActiveCount());
+    }
+
+    @Test
+    public void brokenConnectionIsEvicted() throws Exception {
+        pool = PoolTestSupport.concurrentPool(PoolTestSupport.config("evict"));
+        SimulationProfile profile = SimulatedDriver.profile("evict");
+        Connection conn = pool.getConn();
+        Connection physical = ProxyConnection.unwrap(conn).getEntry().getConnection();
+        profile.setDeathRate(1);
+        try {
+            conn.prepareStatement("SELECT 1").executeQuery();
+            fail("模拟的连接断开应抛出异常");
+        } catch (SQLException e) {
+            assertEquals("08S01", e.getSQLState());
+        }
+        conn.close();
+        assertTrue("断开的物理连接应被关闭", physical.isClosed());
+        assertEquals(0, pool.getTotalCount());
+        assertEquals(0, pool.getIdleCount());
+
+        profile.setDeathRate(0);
+        Connection next = pool.getConn();
+        try {
+            assertNotSame(physical, ProxyConnection.unwrap(next).getEntry().getConnection());
+            next.prepareStatement("SELECT 1").executeQuery();
+        } finally {
+            next.close();
+        }
+        assertEquals(2, profile.getConnects());
+    }
+}
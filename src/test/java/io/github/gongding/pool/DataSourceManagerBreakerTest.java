@@ -0,0 +1,131 @@
+package io.github.gongding.pool;
+
+import io.github.gongding.pool.sim.SimulatedDriver;
+import org.junit.BeforeClass;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import java.sql.Connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 经过DataSourceManager获取连接时熔断器的状态变化
+ * 最后一个用例会关闭数据源，按方法名顺序执行
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class DataSourceManagerBreakerTest {
+
+    @BeforeClass
+    public static void configure() {
+        System.setProperty("jdbc.driver", "io.github.gongding.pool.sim.SimulatedDriver");
+        System.setProperty("jdbc.url", "jdbc:sim:breaker");
+        System.setProperty("jdbc.poolType", "concurrent");
+        System.setProperty("jdbc.initSize", "0");
+        System.setProperty("jdbc.minIdle", "0");
+        System.setProperty("jdbc.maxSize", "2");
+        System.setProperty("jdbc.lanes", "teacher:0:1");
+        System.setProperty("jdbc.laneRoutes", "");
+        System.setProperty("jdbc.adaptiveSizing", "false");
+        System.setProperty("jdbc.reloadInterval", "0");
+        System.setProperty("jdbc.connectionTimeout", "200");
+        System.setProperty("jdbc.breakerThreshold", "2");
+        System.setProperty("jdbc.breakerOpenTime", "200");
+    }
+
+    @Test
+    public void partialExhaustionLeavesBreakerAlone() {
+        CircuitBreaker breaker = DataSourceManager.getCircuitBreaker(DataSourceManager.PRIMARY);
+        PoolLanes.enter("teacher");
+        Connection teacher = DataSourceManager.getConn();
+        PoolLanes.exit();
+        Connection other = DataSourceManager.getConn();
+        try {
+            breaker.recordFailure();
+
+            //分道上限已满，连接池本身可能仍有空闲连接
+            PoolLanes.enter("teacher");
+            try {
+                DataSourceManager.getConn();
+                fail("分道上限已满时获取连接应失败");
+            } catch (PoolExhaustedException e) {
+                assertEquals(PoolExhaustedException.Reason.LANE, e.getReason());
+            } finally {
+                PoolLanes.exit();
+            }
+
+            //请求预算短于connectionTimeout，预算先用完
+            RequestDeadline.begin(50);
+            try {
+                DataSourceManager.getConn();
+                fail("请求预算用完时获取连接应失败");
+            } catch (PoolExhaustedException e) {
+                assertEquals(PoolExhaustedException.Reason.BUDGET, e.getReason());
+            } finally {
+                RequestDeadline.end();
+            }
+
+            //既没有熔断，也没有清零之前的失败次数
+            assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+            assertEquals(1, breaker.getConsecutiveFailures());
+        } finally {
+            DataSourceManager.close(teacher);
+            DataSourceManager.close(other);
+        }
+        DataSourceManager.close(DataSourceManager.getConn());
+        assertEquals(0, breaker.getConsecutiveFailures());
+    }
+
+    @Test
+    public void outageOpensBreakerAndRecoveryClosesIt() throws Exception {
+        CircuitBreaker breaker = DataSourceManager.getCircuitBreaker(DataSourceManager.PRIMARY);
+        SimulatedDriver.profile("breaker").setConnectFailureRate(1);
+        for (int i = 0; i < 2; i++) {
+            try {
+                DataSourceManager.getConn();
+                fail("数据库不可用时获取连接应失败");
+            } catch (CircuitOpenException e) {
+                fail("未达到阈值前不应熔断");
+            } catch (RuntimeException expected) {
+                //建连失败
+            }
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        long start = System.currentTimeMillis();
+        try {
+            DataSourceManager.getConn();
+            fail("熔断打开时应快速失败");
+        } catch (CircuitOpenException expected) {
+            assertTrue("熔断打开时不应等待连接", System.currentTimeMillis() - start < 100);
+        }
+
+        SimulatedDriver.profile("breaker").setConnectFailureRate(0);
+        Thread.sleep(250);
+        DataSourceManager.close(DataSourceManager.getConn());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void probeHittingClosedPoolReleasesPermit() throws Exception {
+        CircuitBreaker breaker = DataSourceManager.getCircuitBreaker(DataSourceManager.PRIMARY);
+        breaker.recordFailure();
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        Thread.sleep(250);
+        DataSourceManager.shutdown();
+        for (int i = 0; i < 2; i++) {
+            try {
+                DataSourceManager.getConn();
+                fail("连接池关闭后获取连接应失败");
+            } catch (CircuitOpenException e) {
+                fail("探测请求遇到已关闭的连接池后应归还探测许可");
+            } catch (IllegalStateException expected) {
+                //连接池已关闭，不算作数据库故障
+            }
+        }
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    }
+}
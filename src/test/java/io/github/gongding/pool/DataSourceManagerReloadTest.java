@@ -0,0 +1,95 @@
+package io.github.gongding.pool;
+
+import io.github.gongding.pool.config.DataSourceConfig;
+import io.github.gongding.pool.config.PoolSettings;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 热加载遇到不合法的配置时保留原配置，连接池不受影响
+ */
+public class DataSourceManagerReloadTest {
+    private static File configFile;
+
+    @BeforeClass
+    public static void configure() throws IOException {
+        //使用外部配置文件，测试可以修改文件内容
+        configFile = File.createTempFile("reload-db", ".properties");
+        configFile.deleteOnExit();
+        writeConfig("");
+        System.setProperty(DataSourceConfig.CONFIG_PATH_PROPERTY, configFile.getPath());
+        System.setProperty("jdbc.driver", "io.github.gongding.pool.sim.SimulatedDriver");
+        System.setProperty("jdbc.url", "jdbc:sim:reload");
+        System.setProperty("jdbc.poolType", "concurrent");
+        System.setProperty("jdbc.initSize", "0");
+        System.setProperty("jdbc.minIdle", "0");
+        System.setProperty("jdbc.maxSize", "6");
+        System.setProperty("jdbc.lanes", "student-submit:2:6,teacher:0:3");
+        System.setProperty("jdbc.laneRoutes", "");
+        System.setProperty("jdbc.adaptiveSizing", "false");
+        System.setProperty("jdbc.reloadInterval", "0");
+    }
+
+    /**
+     * 用classpath中的db.properties加上额外的内容覆盖外部配置文件
+     * @param extra 追加的配置项
+     */
+    private static void writeConfig(String extra) throws IOException {
+        try (InputStream in = DataSourceManagerReloadTest.class.getClassLoader().getResourceAsStream("db.properties")) {
+            Files.copy(in, configFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.write(configFile.toPath(), ("\n" + extra).getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+    }
+
+    @After
+    public void restoreMaxSize() throws IOException {
+        writeConfig("");
+        System.setProperty("jdbc.maxSize", "6");
+        DataSourceManager.reload();
+    }
+
+    @Test
+    public void overflowingIntKeepsPreviousSettings() {
+        IConnectionPool pool = DataSourceManager.getPools().get(DataSourceManager.PRIMARY);
+        System.setProperty("jdbc.maxSize", "4294967297");
+        assertFalse(DataSourceManager.reload());
+        assertEquals(6, DataSourceManager.getSettings().getMaxSize());
+        assertEquals(6, pool.getMaxSize());
+    }
+
+    @Test
+    public void maxSizeBelowReservedLanesKeepsPreviousSettings() {
+        IConnectionPool pool = DataSourceManager.getPools().get(DataSourceManager.PRIMARY);
+        System.setProperty("jdbc.maxSize", "1");
+        assertFalse(DataSourceManager.reload());
+        assertEquals(6, pool.getMaxSize());
+
+        System.setProperty("jdbc.maxSize", "8");
+        assertTrue(DataSourceManager.reload());
+        assertEquals(8, pool.getMaxSize());
+    }
+
+    @Test
+    public void unknownKeyKeepsPreviousSettings() throws IOException {
+        IConnectionPool pool = DataSourceManager.getPools().get(DataSourceManager.PRIMARY);
+        PoolSettings before = DataSourceManager.getSettings();
+        writeConfig("jdbc.maxSize = 8\njdbc.maxSzie = 8\n");
+        assertFalse(DataSourceManager.reload());
+        assertSame(before, DataSourceManager.getSettings());
+        assertEquals(6, pool.getMaxSize());
+    }
+}
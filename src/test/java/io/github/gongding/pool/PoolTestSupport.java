@@ -0,0 +1,43 @@
+package io.github.gongding.pool;
+
+import io.github.gongding.pool.config.DataSourceConfig;
+import io.github.gongding.pool.config.PoolSettings;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * 连接池测试的公共配置，连接到进程内的模拟数据库
+ */
+final class PoolTestSupport {
+    static final ScheduledExecutorService SCHEDULER = Executors.newScheduledThreadPool(1, new PoolThreadFactory("test-scheduler"));
+
+    private PoolTestSupport() {
+    }
+
+    /**
+     * 连接到指定模拟数据库的配置，关闭分道、自适应调整、健康检查和热加载
+     * @param simulation 模拟数据库名称及参数，如 "exam?deathRate=1"
+     * @return 可以继续修改的配置
+     */
+    static DataSourceConfig config(String simulation) {
+        DataSourceConfig config = new DataSourceConfig();
+        config.setDriver("io.github.gongding.pool.sim.SimulatedDriver");
+        config.setUrl("jdbc:sim:" + simulation);
+        config.setInitSize("0");
+        config.setMinIdle("0");
+        config.setMaxSize("4");
+        config.setMaxIdle("4");
+        config.setHealth("false");
+        config.setLanes("");
+        config.setLaneRoutes("");
+        config.setAdaptiveSizing("false");
+        config.setReloadInterval("0");
+        config.setConnectionTimeout("1000");
+        return config;
+    }
+
+    static ConcurrentConnectionPool concurrentPool(DataSourceConfig config) {
+        return new ConcurrentConnectionPool(PoolSettings.from(config), SCHEDULER);
+    }
+}
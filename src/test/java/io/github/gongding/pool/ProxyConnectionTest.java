@@ -0,0 +1,62 @@
+package io.github.gongding.pool;
+
+import io.github.gongding.pool.config.DataSourceConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ProxyConnectionTest {
+    private ConcurrentConnectionPool pool;
+
+    @Before
+    public void createPool() {
+        DataSourceConfig config = PoolTestSupport.config("proxy");
+        config.setStatementCacheSize("10");
+        pool = PoolTestSupport.concurrentPool(config);
+    }
+
+    @After
+    public void closePool() {
+        pool.close(0);
+    }
+
+    @Test
+    public void closedStatementsAreNotRetainedByConnection() throws Exception {
+        Connection conn = pool.getConn();
+        ProxyConnection proxy = ProxyConnection.unwrap(conn);
+        for (int i = 0; i < 1000; i++) {
+            //缓存的语句、未缓存的语句和普通Statement都在关闭时取消登记
+            PreparedStatement cached = conn.prepareStatement("SELECT * FROM question WHERE question_id = ?");
+            cached.setInt(1, i);
+            cached.executeQuery();
+            cached.close();
+            PreparedStatement uncached = conn.prepareStatement("SELECT " + i);
+            uncached.close();
+            Statement statement = conn.createStatement();
+            statement.close();
+        }
+        assertEquals(0, proxy.getOpenStatementCount());
+        conn.close();
+    }
+
+    @Test
+    public void unclosedStatementsAreClosedWithConnection() throws Exception {
+        Connection conn = pool.getConn();
+        ProxyConnection proxy = ProxyConnection.unwrap(conn);
+        PreparedStatement leaked = conn.prepareStatement("SELECT * FROM question WHERE question_id = ?");
+        Statement leakedPlain = conn.createStatement();
+        conn.prepareStatement("SELECT 1").close();
+        assertEquals(2, proxy.getOpenStatementCount());
+        conn.close();
+        assertEquals(0, proxy.getOpenStatementCount());
+        assertTrue(leaked.isClosed());
+        assertTrue(leakedPlain.isClosed());
+    }
+}
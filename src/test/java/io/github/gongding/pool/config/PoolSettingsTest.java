@@ -0,0 +1,123 @@
+package io.github.gongding.pool.config;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PoolSettingsTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static DataSourceConfig config() {
+        DataSourceConfig config = new DataSourceConfig();
+        config.setDriver("io.github.gongding.pool.sim.SimulatedDriver");
+        config.setUrl("jdbc:sim:settings");
+        config.setPoolType("concurrent");
+        config.setMaxSize("10");
+        config.setLanes("");
+        config.setLaneRoutes("");
+        return config;
+    }
+
+    private static void assertRejected(DataSourceConfig config, String expectedMessage) {
+        try {
+            PoolSettings.from(config);
+            fail("配置应被拒绝: " + expectedMessage);
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(expectedMessage));
+        }
+    }
+
+    @Test
+    public void intValueOutOfRangeIsRejected() {
+        DataSourceConfig config = config();
+        config.setMaxSize("4294967297");
+        //截断为int后是1，不能被当作合法值接受
+        assertRejected(config, "maxSize 超出取值范围");
+
+        config = config();
+        config.setBreakerThreshold(String.valueOf(Integer.MAX_VALUE + 1L));
+        assertRejected(config, "breakerThreshold 超出取值范围");
+    }
+
+    @Test
+    public void intValueAtUpperBoundIsAccepted() {
+        DataSourceConfig config = config();
+        config.setStatementCacheSize(String.valueOf(Integer.MAX_VALUE));
+        assertEquals(Integer.MAX_VALUE, PoolSettings.from(config).getStatementCacheSize());
+    }
+
+    @Test
+    public void validLanesAreAccepted() {
+        DataSourceConfig config = config();
+        config.setLanes("student-submit:4:10,teacher:0:4,admin:0:20");
+        config.setLaneRoutes("/api/student/submit=student-submit,/api/teacher=teacher");
+        assertEquals("student-submit:4:10,teacher:0:4,admin:0:20", PoolSettings.from(config).getLanes());
+    }
+
+    @Test
+    public void malformedLanesAreRejected() {
+        DataSourceConfig config = config();
+        config.setLanes("teacher:4");
+        assertRejected(config, "lanes 格式应为");
+
+        config = config();
+        config.setLanes("teacher:x:4");
+        assertRejected(config, "lanes.teacher 保留数 不是整数");
+
+        config = config();
+        config.setLanes("teacher:0:0");
+        assertRejected(config, "lanes.teacher 上限 不能小于 1");
+
+        config = config();
+        config.setLanes("teacher:1:4,teacher:1:4");
+        assertRejected(config, "分道名称重复");
+
+        config = config();
+        config.setLaneRoutes("/api/teacher");
+        assertRejected(config, "laneRoutes 格式应为");
+    }
+
+    @Test
+    public void reservedLaneCapacityMustFitMaxSize() {
+        DataSourceConfig config = config();
+        config.setLanes("teacher:5:4");
+        assertRejected(config, "不能大于上限和maxSize");
+
+        config = config();
+        config.setLanes("student-submit:6:10,teacher:6:10");
+        assertRejected(config, "保留数之和 12 不能大于 maxSize 10");
+    }
+
+    @Test
+    public void legacyPoolIgnoresLanes() {
+        DataSourceConfig config = config();
+        config.setPoolType("legacy");
+        config.setMaxSize("2");
+        config.setLanes("student-submit:4:10");
+        assertEquals(2, PoolSettings.from(config).getMaxSize());
+    }
+
+    @Test
+    public void unknownKeyIsRejected() throws Exception {
+        File file = folder.newFile("db.properties");
+        Files.write(file.toPath(), "jdbc.maxSize = 8\njdbc.maxSzie = 20\n".getBytes(StandardCharsets.UTF_8));
+        System.setProperty(DataSourceConfig.CONFIG_PATH_PROPERTY, file.getPath());
+        try {
+            new DataSourceConfig();
+            fail("拼写错误的配置项应被拒绝");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("jdbc.maxSzie"));
+        } finally {
+            System.clearProperty(DataSourceConfig.CONFIG_PATH_PROPERTY);
+        }
+    }
+}
@@ -0,0 +1,400 @@
+package io.github.gongding.pool.sim;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 模拟连接
+ * 每次执行SQL（以及commit、rollback）都按SimulationProfile注入延迟、卡顿和连接断开；
+ * 连接断开后所有操作都抛出SQLState为08S01的异常，isValid返回false，和MySQL驱动的表现一致
+ */
+final class SimulatedConnection implements InvocationHandler {
+    //没有委托数据库时生成自增主键使用的序列
+    private static final AtomicLong generatedKeys = new AtomicLong();
+
+    private final SimulationProfile profile;
+    private final Random random;
+    //实际执行SQL的连接，为null时不执行SQL
+    private final Connection delegate;
+    private volatile boolean closed;
+    //连接是否已被模拟断开
+    private volatile boolean dead;
+    private volatile long lastUsed = System.currentTimeMillis();
+    private boolean autoCommit = true;
+
+    private SimulatedConnection(SimulationProfile profile, Random random, Connection delegate) {
+        this.profile = profile;
+        this.random = random;
+        this.delegate = delegate;
+    }
+
+    static Connection create(SimulationProfile profile, Random random, Connection delegate) {
+        profile.openConnectionCounter().incrementAndGet();
+        return (Connection) Proxy.newProxyInstance(SimulatedConnection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new SimulatedConnection(profile, random, delegate));
+    }
+
+    /**
+     * 休眠指定时间
+     * @param millis 时间（毫秒）
+     * @throws SQLException 休眠时线程被中断
+     */
+    static void pause(long millis) throws SQLException {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("模拟数据库操作时线程被中断", e);
+        }
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "close":
+                close();
+                return null;
+            case "isClosed":
+                return closed;
+            case "isValid":
+                return !closed && !isDead();
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "SimulatedConnection[" + profile.getName() + "]";
+            case "createStatement":
+            case "prepareStatement":
+            case "prepareCall":
+                checkUsable();
+                Statement statement = delegate == null ? null : (Statement) invokeDelegate(method, args);
+                String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                boolean returnKeys = args != null && args.length == 2 && args[1] instanceof Integer
+                        && (Integer) args[1] == Statement.RETURN_GENERATED_KEYS;
+                return createStatement(proxy, method.getReturnType(), statement, sql, returnKeys);
+            case "commit":
+            case "rollback":
+                checkUsable();
+                roundTrip(0);
+                return delegate == null ? null : invokeDelegate(method, args);
+            case "setAutoCommit":
+                checkUsable();
+                autoCommit = (Boolean) args[0];
+                return delegate == null ? null : invokeDelegate(method, args);
+            case "getAutoCommit":
+                checkUsable();
+                return autoCommit;
+            case "unwrap":
+                return delegate == null ? null : delegate.unwrap((Class<?>) args[0]);
+            case "isWrapperFor":
+                return delegate != null && delegate.isWrapperFor((Class<?>) args[0]);
+            default:
+                checkUsable();
+                return delegate == null ? defaultValue(method.getReturnType()) : invokeDelegate(method, args);
+        }
+    }
+
+    private void close() throws SQLException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        profile.openConnectionCounter().decrementAndGet();
+        if (delegate != null) {
+            delegate.close();
+        }
+    }
+
+    /**
+     * 检查连接是否仍然可用，超过服务端空闲时间的连接在此时被断开
+     * @return 是否已断开
+     */
+    private boolean isDead() {
+        long idleTimeout = profile.getServerIdleTimeout();
+        if (!dead && idleTimeout > 0 && System.currentTimeMillis() - lastUsed > idleTimeout) {
+            dead = true;
+        }
+        return dead;
+    }
+
+    private void checkUsable() throws SQLException {
+        if (closed) {
+            throw new SQLNonTransientConnectionException("连接已关闭", "08003");
+        }
+        if (isDead()) {
+            throw new SQLNonTransientConnectionException("Communications link failure（模拟）", "08S01");
+        }
+    }
+
+    /**
+     * 模拟一次与数据库的往返：按概率断开连接，按分布和卡顿概率休眠
+     * @param queryTimeoutSeconds 语句的查询超时（秒），0表示不限制
+     * @throws SQLException 连接断开或超过查询超时
+     */
+    private void roundTrip(int queryTimeoutSeconds) throws SQLException {
+        checkUsable();
+        profile.recordQuery();
+        long latency;
+        //同一连接上的随机数按调用顺序取用，保证每个连接的行为可重现
+        synchronized (random) {
+            if (random.nextDouble() < profile.getDeathRate()) {
+                dead = true;
+                profile.recordDeath();
+                throw new SQLNonTransientConnectionException("Communications link failure（模拟）", "08S01");
+            }
+            latency = profile.sampleQueryMillis(random);
+            if (random.nextDouble() < profile.getStallRate()) {
+                profile.recordStall();
+                latency += profile.getStallMillis();
+            }
+        }
+        if (queryTimeoutSeconds > 0 && latency > queryTimeoutSeconds * 1000L) {
+            pause(queryTimeoutSeconds * 1000L);
+            profile.recordQueryTimeout();
+            throw new SQLTimeoutException("Statement cancelled due to timeout（模拟）", "HY008");
+        }
+        pause(latency);
+        lastUsed = System.currentTimeMillis();
+    }
+
+    private Object invokeDelegate(Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(delegate, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Object createStatement(Object connection, Class<?> type, Statement delegateStatement, String sql, boolean returnKeys) {
+        Class<?> statementType = type == CallableStatement.class ? CallableStatement.class
+                : type == PreparedStatement.class ? PreparedStatement.class : Statement.class;
+        return Proxy.newProxyInstance(SimulatedConnection.class.getClassLoader(), new Class<?>[]{statementType},
+                new SimulatedStatement((Connection) connection, delegateStatement, sql != null && returnKeys));
+    }
+
+    static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == double.class) {
+            return 0d;
+        }
+        if (type == float.class) {
+            return 0f;
+        }
+        if (type == short.class) {
+            return (short) 0;
+        }
+        if (type == byte.class) {
+            return (byte) 0;
+        }
+        return null;
+    }
+
+    /**
+     * 模拟语句，执行前注入延迟和故障，有委托数据库时交给委托语句执行
+     */
+    private final class SimulatedStatement implements InvocationHandler {
+        private final Connection connection;
+        private final Statement delegateStatement;
+        private final boolean returnKeys;
+        private int queryTimeout;
+        private int batchSize;
+        private boolean statementClosed;
+        private long lastGeneratedKey;
+
+        SimulatedStatement(Connection connection, Statement delegateStatement, boolean returnKeys) {
+            this.connection = connection;
+            this.delegateStatement = delegateStatement;
+            this.returnKeys = returnKeys;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    statementClosed = true;
+                    return delegateStatement == null ? null : invoke(method, args);
+                case "isClosed":
+                    return statementClosed;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "SimulatedStatement[" + profile.getName() + "]";
+                case "getConnection":
+                    return connection;
+                case "setQueryTimeout":
+                    queryTimeout = (Integer) args[0];
+                    return delegateStatement == null ? null : invoke(method, args);
+                case "getQueryTimeout":
+                    return queryTimeout;
+                case "addBatch":
+                    batchSize++;
+                    return delegateStatement == null ? null : invoke(method, args);
+                case "clearBatch":
+                    batchSize = 0;
+                    return delegateStatement == null ? null : invoke(method, args);
+                default:
+                    break;
+            }
+            if (statementClosed) {
+                throw new SQLException("语句已关闭");
+            }
+            if (name.startsWith("execute")) {
+                roundTrip(queryTimeout);
+                if (delegateStatement != null) {
+                    Object result = invoke(method, args);
+                    if ("executeBatch".equals(name)) {
+                        batchSize = 0;
+                    }
+                    return result;
+                }
+                return simulateExecute(name);
+            }
+            if (delegateStatement != null) {
+                return invoke(method, args);
+            }
+            switch (name) {
+                case "getGeneratedKeys":
+                    return returnKeys && lastGeneratedKey > 0
+                            ? SimulatedResultSet.create(Collections.singletonList(new Object[]{lastGeneratedKey}))
+                            : SimulatedResultSet.create(Collections.emptyList());
+                case "getResultSet":
+                    return SimulatedResultSet.create(Collections.emptyList());
+                case "getUpdateCount":
+                    return -1;
+                case "unwrap":
+                    return null;
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        }
+
+        /**
+         * 没有委托数据库时模拟执行结果：查询返回空结果，更新返回1并生成自增主键
+         * @param name 执行方法名
+         * @return 执行结果
+         */
+        private Object simulateExecute(String name) {
+            switch (name) {
+                case "executeQuery":
+                    return SimulatedResultSet.create(Collections.emptyList());
+                case "executeUpdate":
+                case "executeLargeUpdate":
+                    lastGeneratedKey = generatedKeys.incrementAndGet();
+                    return "executeUpdate".equals(name) ? (Object) 1 : (Object) 1L;
+                case "executeBatch":
+                case "executeLargeBatch":
+                    int[] counts = new int[batchSize];
+                    Arrays.fill(counts, 1);
+                    batchSize = 0;
+                    if ("executeBatch".equals(name)) {
+                        return counts;
+                    }
+                    return Arrays.stream(counts).asLongStream().toArray();
+                default:
+                    return false;
+            }
+        }
+
+        private Object invoke(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(delegateStatement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * 内存中的只读结果集，用于空结果和自增主键
+     */
+    static final class SimulatedResultSet implements InvocationHandler {
+        private final List<Object[]> rows;
+        private int cursor = -1;
+        private boolean wasNull;
+
+        private SimulatedResultSet(List<Object[]> rows) {
+            this.rows = new ArrayList<>(rows);
+        }
+
+        static ResultSet create(List<Object[]> rows) {
+            return (ResultSet) Proxy.newProxyInstance(SimulatedConnection.class.getClassLoader(),
+                    new Class<?>[]{ResultSet.class}, new SimulatedResultSet(rows));
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "next":
+                    return ++cursor < rows.size();
+                case "close":
+                    return null;
+                case "wasNull":
+                    return wasNull;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "SimulatedResultSet" + rows.size();
+                default:
+                    break;
+            }
+            if (name.startsWith("get") && args != null && args.length >= 1 && args[0] instanceof Integer) {
+                if (cursor < 0 || cursor >= rows.size()) {
+                    throw new SQLException("结果集没有当前行");
+                }
+                Object[] row = rows.get(cursor);
+                int column = (Integer) args[0];
+                Object value = column >= 1 && column <= row.length ? row[column - 1] : null;
+                wasNull = value == null;
+                if (value instanceof Number) {
+                    Number number = (Number) value;
+                    Class<?> type = method.getReturnType();
+                    if (type == int.class) {
+                        return number.intValue();
+                    }
+                    if (type == long.class) {
+                        return number.longValue();
+                    }
+                    if (type == String.class) {
+                        return number.toString();
+                    }
+                }
+                return value == null ? defaultValue(method.getReturnType()) : value;
+            }
+            return defaultValue(method.getReturnType());
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package io.github.gongding.pool.sim;
+
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLNonTransientConnectionException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * 进程内的模拟JDBC驱动，用于在没有MySQL的环境下对连接池和DAO做可重现的压测
+ * URL格式为 jdbc:sim:名称?参数=值&参数=值，驱动通过META-INF/services自动注册，
+ * DriverManager按URL前缀选中本驱动，因此只需把jdbc.url改为jdbc:sim:...即可，例如：
+ * -Djdbc.url="jdbc:sim:exam?connectLatency=50&queryLatency=5&querySpread=1&distribution=lognormal&stallRate=0.01&stallMillis=2000&deathRate=0.001&seed=7"
+ * 可用参数见SimulationProfile。未指定delegate时SQL不会被执行，查询返回空结果、更新返回1；
+ * 指定delegate（必须是最后一个参数）时SQL交给对应的数据库（如测试classpath中的嵌入式数据库）执行，模拟的延迟和故障叠加在其上。
+ * 同名的模拟数据库共享同一个SimulationProfile，可以通过profile(name)在运行中修改参数或读取统计
+ */
+public class SimulatedDriver implements Driver {
+    public static final String URL_PREFIX = "jdbc:sim:";
+
+    private static final Map<String, SimulationProfile> profiles = new ConcurrentHashMap<>();
+
+    static {
+        try {
+            DriverManager.registerDriver(new SimulatedDriver());
+        } catch (SQLException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * 获取指定名称的模拟数据库参数，不存在时创建
+     * @param name 模拟数据库名称
+     * @return 参数和统计
+     */
+    public static SimulationProfile profile(String name) {
+        return profiles.computeIfAbsent(name, SimulationProfile::new);
+    }
+
+    /**
+     * 移除所有模拟数据库，下一次连接时按URL重新创建参数
+     */
+    public static void reset() {
+        profiles.clear();
+    }
+
+    @Override
+    public Connection connect(String url, Properties info) throws SQLException {
+        if (!acceptsURL(url)) {
+            return null;
+        }
+        String rest = url.substring(URL_PREFIX.length());
+        int queryIndex = rest.indexOf('?');
+        String name = queryIndex < 0 ? rest : rest.substring(0, queryIndex);
+        SimulationProfile profile = profiles.computeIfAbsent(name, key -> {
+            SimulationProfile created = new SimulationProfile(key);
+            created.apply(queryIndex < 0 ? "" : rest.substring(queryIndex + 1));
+            return created;
+        });
+
+        Random random = profile.nextConnectionRandom();
+        SimulatedConnection.pause(profile.getConnectLatency());
+        int limit = profile.getMaxConnections();
+        if (random.nextDouble() < profile.getConnectFailureRate()
+                || (limit > 0 && profile.openConnectionCounter().get() >= limit)) {
+            profile.recordConnectFailure();
+            throw new SQLNonTransientConnectionException("模拟数据库 " + name + " 拒绝连接", "08001");
+        }
+        Connection delegate = null;
+        if (!profile.getDelegateUrl().isEmpty()) {
+            delegate = DriverManager.getConnection(profile.getDelegateUrl(), info);
+        }
+        profile.recordConnect();
+        return SimulatedConnection.create(profile, random, delegate);
+    }
+
+    @Override
+    public boolean acceptsURL(String url) {
+        return url != null && url.startsWith(URL_PREFIX);
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+        return new DriverPropertyInfo[0];
+    }
+
+    @Override
+    public int getMajorVersion() {
+        return 1;
+    }
+
+    @Override
+    public int getMinorVersion() {
+        return 0;
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+        return false;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+}
@@ -0,0 +1,340 @@
+package io.github.gongding.pool.sim;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 模拟数据库的行为参数和统计
+ * 参数来自jdbc:sim:URL中的查询参数，同名的模拟数据库共享一个实例，压测过程中可以直接修改参数，
+ * 例如在运行中途调大stallRate模拟数据库卡顿。所有随机数都由seed和连接序号决定，相同参数下每个连接的行为可重现
+ */
+public class SimulationProfile {
+    /**
+     * 查询耗时分布
+     */
+    public enum Distribution {
+        //固定为queryLatency
+        FIXED,
+        //在queryLatency ± querySpread之间均匀分布
+        UNIFORM,
+        //均值为queryLatency的指数分布
+        EXPONENTIAL,
+        //中位数为queryLatency、对数标准差为querySpread的对数正态分布，长尾较明显
+        LOGNORMAL
+    }
+
+    private final String name;
+    //建立连接的耗时（毫秒）
+    private volatile long connectLatency = 0;
+    //建立连接失败的概率
+    private volatile double connectFailureRate = 0;
+    //查询耗时的基准值（毫秒），含义见Distribution
+    private volatile double queryLatency = 0;
+    private volatile double querySpread = 0;
+    private volatile Distribution distribution = Distribution.FIXED;
+    //每次查询发生卡顿的概率及卡顿时长（毫秒）
+    private volatile double stallRate = 0;
+    private volatile long stallMillis = 0;
+    //每次查询时连接断开的概率
+    private volatile double deathRate = 0;
+    //服务端关闭空闲连接的时间（毫秒），相当于MySQL的wait_timeout，0表示不关闭
+    private volatile long serverIdleTimeout = 0;
+    //同时打开的连接数上限，相当于MySQL的max_connections，0表示不限制
+    private volatile int maxConnections = 0;
+    //随机数种子
+    private volatile long seed = 42;
+    //实际执行SQL的数据库URL，为空时不执行SQL，查询返回空结果
+    private volatile String delegateUrl = "";
+
+    private final AtomicLong connectionSequence = new AtomicLong();
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final LongAdder connects = new LongAdder();
+    private final LongAdder connectFailures = new LongAdder();
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder stalls = new LongAdder();
+    private final LongAdder deaths = new LongAdder();
+    private final LongAdder queryTimeouts = new LongAdder();
+
+    SimulationProfile(String name) {
+        this.name = name;
+    }
+
+    /**
+     * 按URL中的查询参数设置行为参数
+     * @param query 查询参数，格式为 key=value&key=value
+     * @throws IllegalArgumentException 参数名不存在或值无法解析
+     */
+    void apply(String query) {
+        if (query == null || query.isEmpty()) {
+            return;
+        }
+        //delegate必须是最后一个参数，之后的内容原样作为被委托数据库的URL，其中可以包含&
+        int delegateIndex = query.startsWith("delegate=") ? 0 : query.indexOf("&delegate=") + 1;
+        if (delegateIndex >= 0 && query.startsWith("delegate=", delegateIndex)) {
+            delegateUrl = query.substring(delegateIndex + "delegate=".length());
+            query = query.substring(0, Math.max(0, delegateIndex - 1));
+        }
+        for (String pair : query.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            String[] parts = pair.split("=", 2);
+            String key = parts[0].trim();
+            String value = parts.length > 1 ? parts[1].trim() : "";
+            switch (key) {
+                case "connectLatency":
+                    connectLatency = Long.parseLong(value);
+                    break;
+                case "connectFailureRate":
+                    connectFailureRate = Double.parseDouble(value);
+                    break;
+                case "queryLatency":
+                    queryLatency = Double.parseDouble(value);
+                    break;
+                case "querySpread":
+                    querySpread = Double.parseDouble(value);
+                    break;
+                case "distribution":
+                    distribution = Distribution.valueOf(value.toUpperCase());
+                    break;
+                case "stallRate":
+                    stallRate = Double.parseDouble(value);
+                    break;
+                case "stallMillis":
+                    stallMillis = Long.parseLong(value);
+                    break;
+                case "deathRate":
+                    deathRate = Double.parseDouble(value);
+                    break;
+                case "serverIdleTimeout":
+                    serverIdleTimeout = Long.parseLong(value);
+                    break;
+                case "maxConnections":
+                    maxConnections = Integer.parseInt(value);
+                    break;
+                case "seed":
+                    seed = Long.parseLong(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("未知的模拟参数: " + key);
+            }
+        }
+    }
+
+    /**
+     * 为新连接生成随机数序列，同一个种子下第n个连接的序列总是相同
+     * @return 随机数生成器
+     */
+    Random nextConnectionRandom() {
+        long id = connectionSequence.incrementAndGet();
+        return new Random(seed ^ (id * 0x9E3779B97F4A7C15L));
+    }
+
+    /**
+     * 按分布抽取一次查询耗时
+     * @param random 连接的随机数生成器
+     * @return 查询耗时（毫秒）
+     */
+    long sampleQueryMillis(Random random) {
+        double latency;
+        switch (distribution) {
+            case UNIFORM:
+                latency = queryLatency + (random.nextDouble() * 2 - 1) * querySpread;
+                break;
+            case EXPONENTIAL:
+                latency = -queryLatency * Math.log(1 - random.nextDouble());
+                break;
+            case LOGNORMAL:
+                latency = queryLatency * Math.exp(querySpread * random.nextGaussian());
+                break;
+            default:
+                latency = queryLatency;
+                break;
+        }
+        return Math.max(0, Math.round(latency));
+    }
+
+    /**
+     * 清零统计，参数保持不变
+     */
+    public void resetStats() {
+        connects.reset();
+        connectFailures.reset();
+        queries.reset();
+        stalls.reset();
+        deaths.reset();
+        queryTimeouts.reset();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getConnectLatency() {
+        return connectLatency;
+    }
+
+    public void setConnectLatency(long connectLatency) {
+        this.connectLatency = connectLatency;
+    }
+
+    public double getConnectFailureRate() {
+        return connectFailureRate;
+    }
+
+    public void setConnectFailureRate(double connectFailureRate) {
+        this.connectFailureRate = connectFailureRate;
+    }
+
+    public double getQueryLatency() {
+        return queryLatency;
+    }
+
+    public void setQueryLatency(double queryLatency) {
+        this.queryLatency = queryLatency;
+    }
+
+    public double getQuerySpread() {
+        return querySpread;
+    }
+
+    public void setQuerySpread(double querySpread) {
+        this.querySpread = querySpread;
+    }
+
+    public Distribution getDistribution() {
+        return distribution;
+    }
+
+    public void setDistribution(Distribution distribution) {
+        this.distribution = distribution;
+    }
+
+    public double getStallRate() {
+        return stallRate;
+    }
+
+    public void setStallRate(double stallRate) {
+        this.stallRate = stallRate;
+    }
+
+    public long getStallMillis() {
+        return stallMillis;
+    }
+
+    public void setStallMillis(long stallMillis) {
+        this.stallMillis = stallMillis;
+    }
+
+    public double getDeathRate() {
+        return deathRate;
+    }
+
+    public void setDeathRate(double deathRate) {
+        this.deathRate = deathRate;
+    }
+
+    public long getServerIdleTimeout() {
+        return serverIdleTimeout;
+    }
+
+    public void setServerIdleTimeout(long serverIdleTimeout) {
+        this.serverIdleTimeout = serverIdleTimeout;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public String getDelegateUrl() {
+        return delegateUrl;
+    }
+
+    public void setDelegateUrl(String delegateUrl) {
+        this.delegateUrl = delegateUrl;
+    }
+
+    AtomicInteger openConnectionCounter() {
+        return openConnections;
+    }
+
+    void recordConnect() {
+        connects.increment();
+    }
+
+    void recordConnectFailure() {
+        connectFailures.increment();
+    }
+
+    void recordQuery() {
+        queries.increment();
+    }
+
+    void recordStall() {
+        stalls.increment();
+    }
+
+    void recordDeath() {
+        deaths.increment();
+    }
+
+    void recordQueryTimeout() {
+        queryTimeouts.increment();
+    }
+
+    public int getOpenConnections() {
+        return openConnections.get();
+    }
+
+    public long getConnects() {
+        return connects.sum();
+    }
+
+    public long getConnectFailures() {
+        return connectFailures.sum();
+    }
+
+    public long getQueries() {
+        return queries.sum();
+    }
+
+    public long getStalls() {
+        return stalls.sum();
+    }
+
+    public long getDeaths() {
+        return deaths.sum();
+    }
+
+    public long getQueryTimeouts() {
+        return queryTimeouts.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "SimulationProfile{" +
+                "name='" + name + '\'' +
+                ", open=" + getOpenConnections() +
+                ", connects=" + getConnects() +
+                ", connectFailures=" + getConnectFailures() +
+                ", queries=" + getQueries() +
+                ", stalls=" + getStalls() +
+                ", deaths=" + getDeaths() +
+                ", queryTimeouts=" + getQueryTimeouts() +
+                '}';
+    }
+}
@@ -0,0 +1,62 @@
+package io.github.gongding.util;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * 兜底数据的过期时间和按最久未使用淘汰
+ */
+public class LastKnownGoodTest {
+    private static final Supplier<String> FAILING = () -> {
+        throw new RuntimeException("数据库不可用");
+    };
+
+    @BeforeClass
+    public static void configure() {
+        System.setProperty("jdbc.driver", "io.github.gongding.pool.sim.SimulatedDriver");
+        System.setProperty("jdbc.url", "jdbc:sim:last-known-good");
+        System.setProperty("jdbc.poolType", "concurrent");
+        System.setProperty("jdbc.initSize", "0");
+        System.setProperty("jdbc.minIdle", "0");
+        System.setProperty("jdbc.lanes", "");
+        System.setProperty("jdbc.laneRoutes", "");
+        System.setProperty("jdbc.adaptiveSizing", "false");
+        System.setProperty("jdbc.reloadInterval", "0");
+        System.setProperty("jdbc.lastKnownGoodMaxAge", "300");
+        System.setProperty("jdbc.lastKnownGoodMaxEntries", "2");
+    }
+
+    @Test
+    public void staleValueIsNotReturned() throws Exception {
+        LastKnownGood.read("stale", () -> "旧数据");
+        assertEquals("旧数据", LastKnownGood.read("stale", FAILING));
+        Thread.sleep(400);
+        assertFailsWithoutFallback("stale");
+    }
+
+    @Test
+    public void leastRecentlyUsedKeyIsEvicted() {
+        LastKnownGood.read("a", () -> "A");
+        LastKnownGood.read("b", () -> "B");
+        //访问a之后b成为最久未使用的键
+        assertEquals("A", LastKnownGood.read("a", FAILING));
+        LastKnownGood.read("c", () -> "C");
+        assertFailsWithoutFallback("b");
+        assertEquals("A", LastKnownGood.read("a", FAILING));
+        assertEquals("C", LastKnownGood.read("c", FAILING));
+    }
+
+    private static void assertFailsWithoutFallback(String key) {
+        try {
+            LastKnownGood.read(key, FAILING);
+            fail(key + " 没有可用的旧数据时应抛出原来的异常");
+        } catch (RuntimeException expected) {
+            assertEquals("数据库不可用", expected.getMessage());
+        }
+    }
+}
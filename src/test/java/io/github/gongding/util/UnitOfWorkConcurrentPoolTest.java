@@ -0,0 +1,24 @@
+package io.github.gongding.util;
+
+import io.github.gongding.pool.ConcurrentConnectionPool;
+import io.github.gongding.pool.DataSourceManager;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertSame;
+
+/**
+ * ConcurrentConnectionPool的连接代理在归还时也会复位自动提交，两层复位不能互相干扰
+ */
+public class UnitOfWorkConcurrentPoolTest extends UnitOfWorkPoolTestBase {
+
+    @BeforeClass
+    public static void configure() {
+        configure("uow-concurrent", "concurrent");
+    }
+
+    @Test
+    public void usesConcurrentPool() {
+        assertSame(ConcurrentConnectionPool.class, DataSourceManager.getPools().get(DataSourceManager.PRIMARY).getClass());
+    }
+}
@@ -0,0 +1,24 @@
+package io.github.gongding.util;
+
+import io.github.gongding.pool.ConnectionPool;
+import io.github.gongding.pool.DataSourceManager;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertSame;
+
+/**
+ * 旧版ConnectionPool归还连接时不复位连接状态，由工作单元负责恢复自动提交
+ */
+public class UnitOfWorkLegacyPoolTest extends UnitOfWorkPoolTestBase {
+
+    @BeforeClass
+    public static void configure() {
+        configure("uow-legacy", "legacy");
+    }
+
+    @Test
+    public void usesLegacyPool() {
+        assertSame(ConnectionPool.class, DataSourceManager.getPools().get(DataSourceManager.PRIMARY).getClass());
+    }
+}
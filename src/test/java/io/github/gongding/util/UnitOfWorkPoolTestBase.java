@@ -0,0 +1,83 @@
+package io.github.gongding.util;
+
+import io.github.gongding.pool.DataSourceManager;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 工作单元结束后借到的连接必须已经恢复自动提交，子类在@BeforeClass中配置只有一个连接的连接池
+ */
+public abstract class UnitOfWorkPoolTestBase {
+
+    /**
+     * 配置只有一个连接的模拟数据源，工作单元归还的连接一定会被下一次借用拿到
+     * @param name 模拟数据库名称
+     * @param poolType 连接池实现
+     */
+    protected static void configure(String name, String poolType) {
+        System.setProperty("jdbc.driver", "io.github.gongding.pool.sim.SimulatedDriver");
+        System.setProperty("jdbc.url", "jdbc:sim:" + name);
+        System.setProperty("jdbc.poolType", poolType);
+        System.setProperty("jdbc.initSize", "1");
+        System.setProperty("jdbc.maxSize", "1");
+        System.setProperty("jdbc.minIdle", "1");
+        System.setProperty("jdbc.maxIdle", "1");
+        System.setProperty("jdbc.lanes", "");
+        System.setProperty("jdbc.laneRoutes", "");
+        System.setProperty("jdbc.adaptiveSizing", "false");
+        System.setProperty("jdbc.reloadInterval", "0");
+    }
+
+    @Test
+    public void committedTransactionReturnsAutoCommitConnection() throws Exception {
+        int updated = UnitOfWork.inTransaction(() -> {
+            Connection conn = DBUtils.getConnection();
+            PreparedStatement pstmt = conn.prepareStatement("UPDATE student SET last_login = NOW() WHERE student_id = ?");
+            pstmt.setInt(1, 1);
+            int rows = pstmt.executeUpdate();
+            DBUtils.close(conn, pstmt);
+            return rows;
+        });
+        assertEquals(1, updated);
+        assertNextBorrowAutoCommits();
+    }
+
+    @Test
+    public void rolledBackTransactionReturnsAutoCommitConnection() throws Exception {
+        try {
+            UnitOfWork.inTransaction(() -> {
+                DBUtils.getConnection().prepareStatement("DELETE FROM student").executeUpdate();
+                throw new IllegalStateException("模拟业务失败");
+            });
+            fail("事务中的异常应该抛出");
+        } catch (IllegalStateException expected) {
+            //事务已回滚
+        }
+        assertNextBorrowAutoCommits();
+    }
+
+    @Test
+    public void rollbackOnlyTransactionReturnsAutoCommitConnection() throws Exception {
+        UnitOfWork.inTransaction(() -> {
+            DBUtils.getConnection().prepareStatement("DELETE FROM student").executeUpdate();
+            UnitOfWork.setRollbackOnly();
+            return null;
+        });
+        assertNextBorrowAutoCommits();
+    }
+
+    private static void assertNextBorrowAutoCommits() throws Exception {
+        Connection conn = DataSourceManager.getConn();
+        try {
+            assertTrue("归还连接池的连接应恢复自动提交", conn.getAutoCommit());
+        } finally {
+            DataSourceManager.close(conn);
+        }
+    }
+}
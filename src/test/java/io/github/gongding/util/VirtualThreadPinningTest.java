@@ -0,0 +1,98 @@
+package io.github.gongding.util;
+
+import io.github.gongding.pool.sim.SimulatedDriver;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 虚拟线程经过DBUtils和JdbcExecutor借用连接、执行SQL并写日志时不能占住（pin）载体线程
+ * 通过JFR的jdk.VirtualThreadPinned事件检测，需要Java 21+运行，低版本运行时跳过
+ */
+public class VirtualThreadPinningTest {
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadPinningTest.class);
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    @BeforeClass
+    public static void configure() {
+        System.setProperty("jdbc.driver", "io.github.gongding.pool.sim.SimulatedDriver");
+        System.setProperty("jdbc.url", "jdbc:sim:pinning");
+        System.setProperty("jdbc.poolType", "concurrent");
+        System.setProperty("jdbc.initSize", "0");
+        System.setProperty("jdbc.minIdle", "0");
+        //连接数远少于并发数，大部分虚拟线程要等待连接
+        System.setProperty("jdbc.maxSize", "2");
+        System.setProperty("jdbc.lanes", "");
+        System.setProperty("jdbc.laneRoutes", "");
+        System.setProperty("jdbc.adaptiveSizing", "false");
+        System.setProperty("jdbc.reloadInterval", "0");
+        System.setProperty("jdbc.connectionTimeout", "30000");
+    }
+
+    @Test
+    public void poolWaitsQueriesAndLoggingDoNotPin() throws Exception {
+        Assume.assumeTrue("当前运行时不支持虚拟线程", VirtualThreads.isSupported());
+        SimulatedDriver.profile("pinning").setQueryLatency(2);
+
+        List<RecordedEvent> pinned = new ArrayList<>();
+        Path file = Files.createTempFile("pinning", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(PINNED_EVENT).withoutThreshold().withStackTrace();
+            recording.start();
+            runOnVirtualThreads(32, 5);
+            recording.stop();
+            recording.dump(file);
+            for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+                if (PINNED_EVENT.equals(event.getEventType().getName())) {
+                    pinned.add(event);
+                }
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        assertTrue("虚拟线程占住了载体线程: " + pinned, pinned.isEmpty());
+    }
+
+    /**
+     * 在虚拟线程上并发执行查询，每次查询后写一条日志
+     * @param threads 虚拟线程数
+     * @param rounds 每个线程的查询次数
+     */
+    private static void runOnVirtualThreads(int threads, int rounds) throws Exception {
+        //项目按Java 9编译，通过反射创建虚拟线程执行器
+        ExecutorService executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < rounds; i++) {
+                        JdbcExecutor.query("SELECT 1", rs -> rs.getInt(1));
+                        logger.warn("虚拟线程 {} 完成第 {} 次查询", Thread.currentThread(), i);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
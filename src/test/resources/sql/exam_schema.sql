@@ -0,0 +1,41 @@
+-- DAO测试使用的表结构，只包含测试涉及的表和列，在H2的MySQL兼容模式下执行
+
+CREATE TABLE practice (
+    practice_id INT PRIMARY KEY,
+    title       VARCHAR(255)
+);
+
+CREATE TABLE question (
+    question_id    INT AUTO_INCREMENT PRIMARY KEY,
+    lesson_id      INT,
+    content        TEXT,
+    correct_answer TEXT,
+    error_answer   TEXT,
+    type           VARCHAR(32),
+    difficulty     VARCHAR(32),
+    score          DECIMAL(5, 2)
+);
+
+CREATE TABLE practice_question (
+    practice_id INT NOT NULL,
+    question_id INT NOT NULL,
+    PRIMARY KEY (practice_id, question_id)
+);
+
+CREATE TABLE submission (
+    submission_id INT AUTO_INCREMENT PRIMARY KEY,
+    student_id    INT NOT NULL,
+    practice_id   INT NOT NULL,
+    submitted_at  DATETIME
+);
+
+CREATE TABLE submission_answer (
+    submission_id  INT NOT NULL,
+    question_id    INT NOT NULL,
+    student_answer TEXT,
+    is_correct     BOOLEAN,
+    grade          DECIMAL(5, 2),
+    feedback       TEXT,
+    graded_at      DATETIME,
+    PRIMARY KEY (submission_id, question_id)
+);